@@ -0,0 +1,115 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.comcast.vrex.benchmark;
+
+import com.comcast.vrex.sdk.audio.codec.BeamSelector;
+import com.comcast.vrex.sdk.audio.codec.PcmConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.sound.sampled.AudioFormat;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+// Reducing one 20 ms chunk of interleaved 16 kHz, 16-bit far-field audio to mono. The copy benchmark is
+// the baseline for restoring the chunk that the in-place stages overwrite; downmix is the PcmConverter
+// average that multi-channel audio gets without detector metadata.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BeamBenchmark {
+
+    @Param({"4", "8"})
+    private int channels;
+
+    private ByteBuffer pcm;
+    private ByteBuffer chunk;
+    private ByteBuffer mono;
+    private BeamSelector select;
+    private BeamSelector mix;
+    private PcmConverter downmix;
+
+    @Setup
+    public void setUp() {
+        AudioFormat format = new AudioFormat(16000, 16, channels, true, false);
+        int frames = 320;
+        pcm = ByteBuffer.allocateDirect(frames * channels * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < frames; i++) {
+            for (int c = 0; c < channels; c++) {
+                pcm.putShort((short) (8000 * Math.sin(2 * Math.PI * 440 * i / 16000.0 + c)));
+            }
+        }
+        ((Buffer) pcm).flip();
+        chunk = ByteBuffer.allocateDirect(pcm.capacity());
+        mono = ByteBuffer.allocateDirect(frames * 2 + 16);
+        select = BeamSelector.select(format, 1);
+        float[] weights = new float[channels];
+        for (int c = 0; c < channels; c++) weights[c] = c + 1;
+        mix = BeamSelector.mix(format, weights);
+        downmix = new PcmConverter(format);
+    }
+
+    @Benchmark
+    public ByteBuffer copy() {
+        return restore();
+    }
+
+    @Benchmark
+    public ByteBuffer select() {
+        ByteBuffer buffer = restore();
+        select.process(buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public ByteBuffer mix() {
+        ByteBuffer buffer = restore();
+        mix.process(buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public ByteBuffer downmix() {
+        ByteBuffer buffer = restore();
+        ((Buffer) mono).clear();
+        downmix.convert(buffer, mono);
+        return mono;
+    }
+
+    private ByteBuffer restore() {
+        ((Buffer) chunk).clear();
+        chunk.put(pcm.duplicate());
+        ((Buffer) chunk).flip();
+        return chunk;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.benchmark;
+
+import com.comcast.vrex.sdk.messageModel.common.EventMessage;
+import com.comcast.vrex.sdk.messageModel.common.MessageType;
+import com.comcast.vrex.sdk.messageModel.receive.VrexResponse;
+import com.comcast.vrex.sdk.messageModel.send.InitMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Latency of the first messages of a fresh JVM: a new mapper writes an init message and reads a response, once.
+// That is where the reflective codecs pay for introspecting the model classes. Each fork is one cold JVM.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class ColdStartBenchmark {
+
+    @Param({"reflective", "generated"})
+    private String codec;
+
+    private InitMessage init;
+
+    @Setup
+    public void setUp() {
+        init = JsonCodecBenchmark.newInit();
+    }
+
+    @Benchmark
+    public VrexResponse firstMessages() throws IOException {
+        ObjectMapper objectMapper = JsonCodecBenchmark.newMapper(codec);
+        objectMapper.writeValueAsBytes(EventMessage.typed("trx", MessageType.INIT, init));
+        return objectMapper.readValue(JsonCodecBenchmark.VREX_RESPONSE, VrexResponse.class);
+    }
+}
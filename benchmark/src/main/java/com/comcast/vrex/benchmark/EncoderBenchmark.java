@@ -0,0 +1,97 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.comcast.vrex.benchmark;
+
+import com.comcast.vrex.sdk.audio.codec.AudioEncoder;
+import com.comcast.vrex.sdk.audio.codec.ImaAdpcmEncoder;
+import com.comcast.vrex.sdk.audio.codec.MuLawEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+// Encoding cost per chunk of 16 kHz PCM. The copy benchmark is the baseline, as every encode
+// first restores the chunk it encoded in place on the previous invocation.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncoderBenchmark {
+
+    // 20 ms frames and the SDK's default chunk size
+    @Param({"640", "2048"})
+    private int chunkSize;
+
+    private ByteBuffer pcm;
+    private ByteBuffer chunk;
+    private AudioEncoder muLaw;
+    private AudioEncoder adpcm;
+
+    @Setup
+    public void setUp() {
+        pcm = ByteBuffer.allocateDirect(chunkSize).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < chunkSize / 2; i++) {
+            pcm.putShort((short) (12000 * Math.sin(2 * Math.PI * 440 * i / 16000.0)));
+        }
+        ((Buffer) pcm).flip();
+        chunk = ByteBuffer.allocateDirect(chunkSize);
+        muLaw = new MuLawEncoder();
+        adpcm = new ImaAdpcmEncoder();
+    }
+
+    @Benchmark
+    public ByteBuffer copy() {
+        return restore();
+    }
+
+    @Benchmark
+    public ByteBuffer muLaw() {
+        ByteBuffer buffer = restore();
+        muLaw.encode(buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public ByteBuffer adpcm() {
+        ByteBuffer buffer = restore();
+        adpcm.encode(buffer);
+        return buffer;
+    }
+
+    private ByteBuffer restore() {
+        ((Buffer) chunk).clear();
+        chunk.put(pcm.duplicate());
+        ((Buffer) chunk).flip();
+        return chunk;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.benchmark;
+
+import com.comcast.vrex.sdk.audio.AudioConfig;
+import com.comcast.vrex.sdk.message.InitPayloadBuilder;
+import com.comcast.vrex.sdk.messageModel.send.ImmutableInitPayload;
+import com.comcast.vrex.sdk.messageModel.send.InitPayload;
+import com.comcast.vrex.sdk.messageModel.send.Roles;
+import com.comcast.vrex.sdk.messageModel.send.VrexMode;
+import com.comcast.vrex.sdk.util.ObjectMappers;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Cost of deriving a session's payload from one cached per device. The json copy is how payloads used to be copied.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InitPayloadBenchmark {
+
+    private final ObjectMapper objectMapper = ObjectMappers.defaultMapper();
+    private InitPayload payload;
+    private ImmutableInitPayload immutablePayload;
+
+    @Setup
+    public void setUp() {
+        payload = InitPayloadBuilder.fromEmptyInitPayload()
+                .withRoles(Roles.INPUT)
+                .withCapabilities("WBW", "UHD")
+                .withVrexModes(VrexMode.EXEC, VrexMode.NLP)
+                .withExecuteResponse(true)
+                .withDeviceId("device")
+                .withAccountId("account")
+                .withAudio(AudioConfig.fromDefaultPttConfig())
+                .buildMessage();
+        immutablePayload = ImmutableInitPayload.copyOf(payload);
+    }
+
+    @Benchmark
+    public InitPayload jsonCopy() {
+        InitPayload copy = objectMapper.convertValue(objectMapper.valueToTree(payload), InitPayload.class);
+        copy.setCapabilities(copy.getCapabilities().with("CONTEXT"));
+        return copy;
+    }
+
+    @Benchmark
+    public InitPayload copy() {
+        return InitPayloadBuilder.copyFromExistingPayload(payload).withContextCapability().buildMessage();
+    }
+
+    @Benchmark
+    public ImmutableInitPayload derive() {
+        return immutablePayload.withAddedCapability("CONTEXT");
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.benchmark;
+
+import com.comcast.vrex.sdk.audio.AudioConfig;
+import com.comcast.vrex.sdk.message.InitPayloadBuilder;
+import com.comcast.vrex.sdk.message.InitTemplate;
+import com.comcast.vrex.sdk.messageModel.common.EventMessage;
+import com.comcast.vrex.sdk.messageModel.common.MessageType;
+import com.comcast.vrex.sdk.messageModel.send.InitMessage;
+import com.comcast.vrex.sdk.messageModel.send.InitPayload;
+import com.comcast.vrex.sdk.messageModel.send.Roles;
+import com.comcast.vrex.sdk.messageModel.send.VrexMode;
+import com.comcast.vrex.sdk.util.ObjectMappers;
+import com.comcast.vrex.sdk.util.PooledBufferOutputStream;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+// Cost of a session's init frame. The payload benchmark prepares the caller's payload the way SpeechSession does
+// (context capability and ids) and writes it as a typed message; the template benchmark splices the same fields
+// into the bytes of an InitTemplate.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InitTemplateBenchmark {
+
+    private final ObjectWriter writer = ObjectMappers.eventMessageWriter();
+    private final ByteBufferPool bufferPool = new MappedByteBufferPool();
+    private InitPayload payload;
+    private InitTemplate template;
+
+    @Setup
+    public void setUp() {
+        payload = profile().buildMessage();
+        template = InitTemplate.of("ptt", profile());
+    }
+
+    private InitPayloadBuilder profile() {
+        return InitPayloadBuilder.fromEmptyInitPayload()
+                .withRoles(Roles.INPUT)
+                .withCapabilities("WBW", "UHD")
+                .withVrexModes(VrexMode.EXEC, VrexMode.NLP)
+                .withExecuteResponse(true)
+                .withAudio(AudioConfig.fromDefaultPttConfig());
+    }
+
+    @Benchmark
+    public int payload() throws IOException {
+        InitPayloadBuilder builder = InitPayloadBuilder.customizeExistingPayload(payload)
+                .withContextCapability()
+                .withDeviceId("device")
+                .withAccountId("account");
+        builder.refreshIds();
+        EventMessage message = EventMessage.typed("trx", MessageType.INIT, new InitMessage(builder.buildMessage()));
+        PooledBufferOutputStream out = new PooledBufferOutputStream(bufferPool, 2048);
+        writer.writeValue(out, message);
+        return release(out.takeBuffer());
+    }
+
+    @Benchmark
+    public int template() {
+        return release(template.render(bufferPool, "trx", true, "device", "account", null));
+    }
+
+    private int release(ByteBuffer frame) {
+        int length = frame.remaining();
+        bufferPool.release(frame);
+        return length;
+    }
+}
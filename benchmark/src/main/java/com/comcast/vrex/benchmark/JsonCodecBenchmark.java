@@ -0,0 +1,110 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.benchmark;
+
+import com.comcast.vrex.sdk.audio.AudioConfig;
+import com.comcast.vrex.sdk.message.InitPayloadBuilder;
+import com.comcast.vrex.sdk.messageModel.JsonCodecModule;
+import com.comcast.vrex.sdk.messageModel.common.EventMessage;
+import com.comcast.vrex.sdk.messageModel.common.MessageType;
+import com.comcast.vrex.sdk.messageModel.receive.VrexResponse;
+import com.comcast.vrex.sdk.messageModel.receive.WbwResponse;
+import com.comcast.vrex.sdk.messageModel.send.InitMessage;
+import com.comcast.vrex.sdk.messageModel.send.Roles;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Steady-state cost of the message model codecs: Jackson's reflective bean codecs against the ones generated at
+// build time. Run with -prof gc to compare allocation as well.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonCodecBenchmark {
+
+    static final byte[] VREX_RESPONSE = ("{\"returnCode\":0,\"connectionClosed\":true,\"displayMessage\":\"Showing results\","
+            + "\"executeResponse\":{\"executeAgent\":\"search\",\"responseTime\":42,\"jsonResponse\":{\"results\":[1,2,3]}},"
+            + "\"lastCommand\":{\"created\":1}}").getBytes(StandardCharsets.UTF_8);
+    static final byte[] WBW_RESPONSE = "{\"text\":\"show me comedies\",\"isFinal\":false}".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"reflective", "generated"})
+    private String codec;
+
+    private ObjectWriter messageWriter;
+    private ObjectReader vrexReader;
+    private ObjectReader wbwReader;
+    private InitMessage init;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = newMapper(codec);
+        messageWriter = objectMapper.writerFor(EventMessage.class);
+        vrexReader = objectMapper.readerFor(VrexResponse.class);
+        wbwReader = objectMapper.readerFor(WbwResponse.class);
+        init = newInit();
+    }
+
+    static ObjectMapper newMapper(String codec) {
+        ObjectMapper objectMapper = new ObjectMapper();
+        return codec.equals("generated") ? objectMapper.registerModule(new JsonCodecModule()) : objectMapper;
+    }
+
+    static InitMessage newInit() {
+        return new InitMessage(InitPayloadBuilder.fromEmptyInitPayload()
+                .withRoles(Roles.INPUT)
+                .withAudio(AudioConfig.fromDefaultPttConfig())
+                .withDeviceId("device")
+                .withAccountId("account")
+                .buildMessage());
+    }
+
+    @Benchmark
+    public byte[] writeInit() throws IOException {
+        return messageWriter.writeValueAsBytes(EventMessage.typed("trx", MessageType.INIT, init));
+    }
+
+    @Benchmark
+    public VrexResponse readVrexResponse() throws IOException {
+        return vrexReader.readValue(VREX_RESPONSE);
+    }
+
+    @Benchmark
+    public WbwResponse readWbwResponse() throws IOException {
+        return wbwReader.readValue(WBW_RESPONSE);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.benchmark;
+
+import com.comcast.vrex.sdk.audio.AudioConfig;
+import com.comcast.vrex.sdk.message.InitPayloadBuilder;
+import com.comcast.vrex.sdk.messageModel.common.EventMessage;
+import com.comcast.vrex.sdk.messageModel.common.MessageType;
+import com.comcast.vrex.sdk.messageModel.send.EndOfStream;
+import com.comcast.vrex.sdk.messageModel.send.InitMessage;
+import com.comcast.vrex.sdk.messageModel.send.InitPayload;
+import com.comcast.vrex.sdk.messageModel.send.Roles;
+import com.comcast.vrex.sdk.util.ObjectMappers;
+import com.comcast.vrex.sdk.util.PooledBufferOutputStream;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Cost of turning an outbound message into the bytes of its text frame. The tree benchmark is the former path:
+// the payload converted to a JsonNode, the message written to a String, and the String encoded to UTF-8 when sent.
+// The typed benchmark writes the payload in one pass into a pooled buffer, as WebSocketSender does now.
+// Run with -prof gc to compare allocation as well.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageBenchmark {
+
+    @Param({"init", "endOfStream"})
+    private String message;
+
+    private final ObjectMapper objectMapper = ObjectMappers.defaultMapper();
+    private final ObjectWriter writer = ObjectMappers.eventMessageWriter();
+    private final ByteBufferPool bufferPool = new MappedByteBufferPool();
+    private MessageType type;
+    private Object payload;
+
+    @Setup
+    public void setUp() {
+        if (message.equals("init")) {
+            InitPayload init = InitPayloadBuilder.fromEmptyInitPayload()
+                    .withRoles(Roles.INPUT)
+                    .withAudio(AudioConfig.fromDefaultPttConfig())
+                    .withDeviceId("device")
+                    .withAccountId("account")
+                    .buildMessage();
+            type = MessageType.INIT;
+            payload = new InitMessage(init);
+        } else {
+            type = MessageType.END_OF_STREAM;
+            payload = new EndOfStream(EndOfStream.END_OF_AUDIO);
+        }
+    }
+
+    @Benchmark
+    public byte[] tree() throws IOException {
+        EventMessage eventMessage = new EventMessage("trx", type, objectMapper.valueToTree(payload));
+        return objectMapper.writeValueAsString(eventMessage).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int typed() throws IOException {
+        PooledBufferOutputStream out = new PooledBufferOutputStream(bufferPool, 2048);
+        writer.writeValue(out, EventMessage.typed("trx", type, payload));
+        ByteBuffer frame = out.takeBuffer();
+        int length = frame.remaining();
+        bufferPool.release(frame);
+        return length;
+    }
+}
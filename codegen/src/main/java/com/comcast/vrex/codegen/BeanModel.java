@@ -0,0 +1,82 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.codegen;
+
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import java.util.ArrayList;
+import java.util.List;
+
+// The json properties of a class as Jackson would see them, in the order it would write them
+final class BeanModel {
+
+    enum Inclusion {
+        ALWAYS,
+        NON_NULL,
+        // As the mapper's default inclusion says
+        MAPPER_DEFAULT
+    }
+
+    final TypeElement type;
+    final boolean serializer;
+    final boolean deserializer;
+    final Inclusion inclusion;
+    final List<Property> written = new ArrayList<>();
+    final List<Property> read = new ArrayList<>();
+    // Names skipped when reading, for properties marked @JsonIgnore
+    final List<String> ignored = new ArrayList<>();
+
+    BeanModel(TypeElement type, boolean serializer, boolean deserializer, Inclusion inclusion) {
+        this.type = type;
+        this.serializer = serializer;
+        this.deserializer = deserializer;
+        this.inclusion = inclusion;
+    }
+
+    String packageName() {
+        String qualified = type.getQualifiedName().toString();
+        return qualified.substring(0, qualified.length() - type.getSimpleName().length() - 1);
+    }
+
+    static final class Property {
+        // The name the property is known by in Java: the field, or the getter or setter without its prefix
+        final String implicitName;
+        String name;
+        boolean explicitName;
+        boolean hasField;
+        boolean fieldFinal;
+        boolean ignored;
+        String getter;
+        TypeMirror getterType;
+        boolean getterPublic;
+        String setter;
+        TypeMirror setterType;
+        boolean setterAccessible;
+
+        Property(String implicitName) {
+            this.implicitName = implicitName;
+            this.name = implicitName;
+        }
+
+        boolean isRenamed() {
+            return explicitName && !name.equals(implicitName);
+        }
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.codegen;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Finds the json properties of a class the way Jackson's reflective introspection does. Getters and setters come
+// from the class or from Lombok annotations, as Lombok may not have added them yet. Anything the generated code
+// cannot treat the same way is reported as an error, rather than generating code that writes other json.
+final class BeanScanner {
+
+    private static final String JACKSON = "com.fasterxml.jackson.";
+    private static final String JSON_IGNORE = "com.fasterxml.jackson.annotation.JsonIgnore";
+    private static final String JSON_PROPERTY = "com.fasterxml.jackson.annotation.JsonProperty";
+    private static final String JSON_INCLUDE = "com.fasterxml.jackson.annotation.JsonInclude";
+    private static final String JSON_PROPERTY_ORDER = "com.fasterxml.jackson.annotation.JsonPropertyOrder";
+    private static final String JSON_SERIALIZE = "com.fasterxml.jackson.databind.annotation.JsonSerialize";
+    private static final Set<String> MEMBER_ANNOTATIONS = new HashSet<>(Arrays.asList(JSON_IGNORE, JSON_PROPERTY));
+
+    private final Messager messager;
+    private boolean failed;
+
+    BeanScanner(Messager messager) {
+        this.messager = messager;
+    }
+
+    // Null when the class cannot have generated codecs; the reasons have been reported
+    BeanModel scan(TypeElement type, boolean serializer, boolean deserializer) {
+        failed = false;
+        checkClass(type, serializer, deserializer);
+        BeanModel.Inclusion inclusion = inclusion(type);
+        Map<String, BeanModel.Property> properties = new LinkedHashMap<>();
+
+        // Fields first, in declaration order, with the accessors Lombok gives them
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (field.getModifiers().contains(Modifier.STATIC)) continue;
+            checkAnnotations(field, MEMBER_ANNOTATIONS);
+            if (field.getModifiers().contains(Modifier.TRANSIENT)) continue;
+            String fieldName = field.getSimpleName().toString();
+            boolean primitiveBoolean = field.asType().getKind() == TypeKind.BOOLEAN;
+            if (primitiveBoolean && fieldName.length() > 2 && fieldName.startsWith("is")
+                    && Character.isUpperCase(fieldName.charAt(2))) {
+                error(field, "boolean fields named is... are not supported");
+                continue;
+            }
+            BeanModel.Property property = properties.computeIfAbsent(fieldName, BeanModel.Property::new);
+            property.hasField = true;
+            property.fieldFinal = field.getModifiers().contains(Modifier.FINAL);
+            applyAnnotations(property, field);
+
+            String getterLevel = lombokLevel(field, type, "lombok.Getter");
+            if (getterLevel != null) {
+                String getter = (primitiveBoolean ? "is" : "get") + capitalize(fieldName);
+                BeanModel.Property target = properties.computeIfAbsent(implicitName(getter), BeanModel.Property::new);
+                target.getter = getter;
+                target.getterType = field.asType();
+                target.getterPublic = "PUBLIC".equals(getterLevel);
+            }
+            String setterLevel = property.fieldFinal ? null : lombokLevel(field, type, "lombok.Setter");
+            if (setterLevel != null) {
+                String setter = "set" + capitalize(fieldName);
+                BeanModel.Property target = properties.computeIfAbsent(implicitName(setter), BeanModel.Property::new);
+                target.setter = setter;
+                target.setterType = field.asType();
+                target.setterAccessible = !"PRIVATE".equals(setterLevel);
+            }
+        }
+
+        // Then getters and setters written in the class, or already added by Lombok, which win over the above
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            if (method.getModifiers().contains(Modifier.STATIC)) continue;
+            String name = method.getSimpleName().toString();
+            boolean getter = isGetter(method, name);
+            boolean setter = !getter && isSetter(method, name);
+            if (!getter && !setter) {
+                checkAnnotations(method, new HashSet<>());
+                continue;
+            }
+            checkAnnotations(method, MEMBER_ANNOTATIONS);
+            BeanModel.Property property = properties.computeIfAbsent(implicitName(name), BeanModel.Property::new);
+            if (getter) {
+                property.getter = name;
+                property.getterType = method.getReturnType();
+                property.getterPublic = method.getModifiers().contains(Modifier.PUBLIC);
+            } else {
+                property.setter = name;
+                property.setterType = method.getParameters().get(0).asType();
+                property.setterAccessible = !method.getModifiers().contains(Modifier.PRIVATE);
+            }
+            applyAnnotations(property, method);
+        }
+
+        BeanModel model = new BeanModel(type, serializer, deserializer, inclusion);
+        for (BeanModel.Property property : order(type, properties)) {
+            if (property.ignored) {
+                model.ignored.add(property.implicitName);
+                continue;
+            }
+            if (property.getter != null && property.getterPublic) {
+                model.written.add(property);
+            } else if (property.explicitName && serializer) {
+                error(type, "property " + property.name + " is written from a field; give it a public getter");
+            }
+            if (property.setter != null) {
+                if (!property.setterAccessible && deserializer) {
+                    error(type, "property " + property.name + " has a private setter");
+                } else {
+                    model.read.add(property);
+                }
+            } else if (property.hasField && (property.getter != null || property.explicitName) && deserializer) {
+                // Jackson sets such a field directly, which generated code cannot do
+                error(type, "property " + property.name + " is read into its field; give it a setter that is not private");
+            }
+        }
+        return failed ? null : model;
+    }
+
+    private void checkClass(TypeElement type, boolean serializer, boolean deserializer) {
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            error(type, "only concrete classes are supported");
+        }
+        if (!type.getModifiers().contains(Modifier.PUBLIC) || type.getEnclosingElement().getKind() != ElementKind.PACKAGE) {
+            error(type, "only public top-level classes are supported");
+        }
+        if (!type.getTypeParameters().isEmpty()) {
+            error(type, "generic classes are not supported");
+        }
+        if (!"java.lang.Object".equals(type.getSuperclass().toString())) {
+            error(type, "subclasses are not supported");
+        }
+        for (TypeMirror implemented : type.getInterfaces()) {
+            // Jackson would look for accessors there too
+            TypeElement element = (TypeElement) ((DeclaredType) implemented).asElement();
+            if (!element.getInterfaces().isEmpty() || ElementFilter.methodsIn(element.getEnclosedElements()).stream()
+                    .anyMatch(method -> !method.getModifiers().contains(Modifier.STATIC))) {
+                error(type, "only marker interfaces are supported");
+            }
+        }
+        Set<String> allowed = new HashSet<>(Arrays.asList(JSON_INCLUDE, JSON_PROPERTY_ORDER));
+        if (!serializer) allowed.add(JSON_SERIALIZE);
+        checkAnnotations(type, allowed);
+        if (deserializer && !hasNoArgsConstructor(type)) {
+            error(type, "deserializers need a constructor without arguments that is not private");
+        }
+    }
+
+    private boolean hasNoArgsConstructor(TypeElement type) {
+        AnnotationMirror lombok = annotation(type, "lombok.NoArgsConstructor");
+        if (lombok != null) return !"PRIVATE".equals(enumValue(lombok, "access", "PUBLIC"));
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty()) return !constructor.getModifiers().contains(Modifier.PRIVATE);
+        }
+        return false;
+    }
+
+    private BeanModel.Inclusion inclusion(TypeElement type) {
+        AnnotationMirror include = annotation(type, JSON_INCLUDE);
+        if (include == null) return BeanModel.Inclusion.MAPPER_DEFAULT;
+        for (ExecutableElement element : include.getElementValues().keySet()) {
+            if (!element.getSimpleName().contentEquals("value")) error(type, "@JsonInclude only supports its value");
+        }
+        String value = enumValue(include, "value", "ALWAYS");
+        if ("NON_NULL".equals(value)) return BeanModel.Inclusion.NON_NULL;
+        if (!"ALWAYS".equals(value)) error(type, "@JsonInclude(" + value + ") is not supported");
+        return BeanModel.Inclusion.ALWAYS;
+    }
+
+    // Jackson writes renamed properties after the others, and then puts those of @JsonPropertyOrder first
+    private List<BeanModel.Property> order(TypeElement type, Map<String, BeanModel.Property> properties) {
+        List<BeanModel.Property> ordered = new ArrayList<>();
+        List<BeanModel.Property> renamed = new ArrayList<>();
+        for (BeanModel.Property property : properties.values()) {
+            (property.isRenamed() ? renamed : ordered).add(property);
+        }
+        ordered.addAll(renamed);
+        AnnotationMirror propertyOrder = annotation(type, JSON_PROPERTY_ORDER);
+        if (propertyOrder == null) return ordered;
+        List<BeanModel.Property> first = new ArrayList<>();
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : propertyOrder.getElementValues().entrySet()) {
+            if (!entry.getKey().getSimpleName().contentEquals("value")) {
+                error(type, "@JsonPropertyOrder only supports its value");
+                continue;
+            }
+            for (Object name : (List<?>) entry.getValue().getValue()) {
+                String listed = ((AnnotationValue) name).getValue().toString();
+                ordered.stream().filter(p -> p.name.equals(listed)).findFirst().ifPresent(first::add);
+            }
+        }
+        ordered.removeAll(first);
+        first.addAll(ordered);
+        return first;
+    }
+
+    private void applyAnnotations(BeanModel.Property property, Element element) {
+        AnnotationMirror ignore = annotation(element, JSON_IGNORE);
+        if (ignore != null && !"false".equals(String.valueOf(value(ignore, "value")))) property.ignored = true;
+        AnnotationMirror jsonProperty = annotation(element, JSON_PROPERTY);
+        if (jsonProperty == null) return;
+        for (ExecutableElement key : jsonProperty.getElementValues().keySet()) {
+            if (key.getSimpleName().contentEquals("access")) error(element, "@JsonProperty(access) is not supported");
+        }
+        Object name = value(jsonProperty, "value");
+        property.explicitName = true;
+        if (name != null && !name.toString().isEmpty()) property.name = name.toString();
+    }
+
+    private void checkAnnotations(Element element, Set<String> allowed) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            String name = mirror.getAnnotationType().toString();
+            if (name.startsWith(JACKSON) && !allowed.contains(name)) {
+                error(element, "@" + name.substring(name.lastIndexOf('.') + 1) + " is not supported by generated codecs");
+            }
+        }
+    }
+
+    // The access level of a Lombok getter or setter for the field, or null when it has none
+    private static String lombokLevel(VariableElement field, TypeElement type, String annotationName) {
+        AnnotationMirror onField = annotation(field, annotationName);
+        String level;
+        if (onField != null) {
+            level = enumValue(onField, "value", "PUBLIC");
+        } else if (annotation(type, annotationName) != null) {
+            level = enumValue(annotation(type, annotationName), "value", "PUBLIC");
+        } else if (annotation(type, "lombok.Data") != null
+                || (annotation(type, "lombok.Value") != null && annotationName.equals("lombok.Getter"))) {
+            level = "PUBLIC";
+        } else {
+            return null;
+        }
+        return "NONE".equals(level) ? null : level;
+    }
+
+    private static boolean isGetter(ExecutableElement method, String name) {
+        if (!method.getParameters().isEmpty() || method.getReturnType().getKind() == TypeKind.VOID) return false;
+        if (name.startsWith("get") && name.length() > 3) return !name.equals("getClass");
+        return name.startsWith("is") && name.length() > 2 && method.getReturnType().getKind() == TypeKind.BOOLEAN;
+    }
+
+    private static boolean isSetter(ExecutableElement method, String name) {
+        return method.getParameters().size() == 1 && name.startsWith("set") && name.length() > 3;
+    }
+
+    // As Jackson names the property of an accessor: the prefix dropped and the leading capitals lower-cased
+    static String implicitName(String accessor) {
+        String base = accessor.substring(accessor.startsWith("is") ? 2 : 3);
+        StringBuilder name = new StringBuilder(base.length());
+        int i = 0;
+        while (i < base.length() && Character.isUpperCase(base.charAt(i))) {
+            name.append(Character.toLowerCase(base.charAt(i++)));
+        }
+        return name.append(base, i, base.length()).toString();
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static AnnotationMirror annotation(Element element, String name) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (mirror.getAnnotationType().toString().equals(name)) return mirror;
+        }
+        return null;
+    }
+
+    private static Object value(AnnotationMirror mirror, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) return entry.getValue().getValue();
+        }
+        return null;
+    }
+
+    // An enum value by its constant name
+    private static String enumValue(AnnotationMirror mirror, String name, String defaultValue) {
+        Object value = value(mirror, name);
+        return value == null ? defaultValue : ((VariableElement) value).getSimpleName().toString();
+    }
+
+    private void error(Element element, String message) {
+        failed = true;
+        messager.printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.codegen;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+// Generates a Jackson serializer and deserializer for each class annotated with @GenerateJsonCodec, and a module
+// registering all of them in the common package of the classes. The module is also listed as a service, so
+// ObjectMapper.findAndRegisterModules() picks it up.
+@SupportedAnnotationTypes("com.comcast.vrex.codegen.GenerateJsonCodec")
+public class JsonCodecProcessor extends AbstractProcessor {
+
+    static final String MODULE_NAME = "JsonCodecModule";
+    private static final String MODULE_SERVICE = "META-INF/services/com.fasterxml.jackson.databind.Module";
+
+    private boolean generated;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (annotations.isEmpty() || generated) return false;
+        BeanScanner scanner = new BeanScanner(processingEnv.getMessager());
+        List<BeanModel> models = new ArrayList<>();
+        boolean failed = false;
+        for (Element element : roundEnv.getElementsAnnotatedWith(GenerateJsonCodec.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@GenerateJsonCodec only applies to classes");
+                failed = true;
+                continue;
+            }
+            GenerateJsonCodec codec = element.getAnnotation(GenerateJsonCodec.class);
+            BeanModel model = scanner.scan((TypeElement) element, codec.serializer(), codec.deserializer());
+            if (model == null) {
+                failed = true;
+            } else {
+                models.add(model);
+            }
+        }
+        generated = true;
+        if (failed || models.isEmpty()) return false;
+
+        String modulePackage = commonPackage(models);
+        try {
+            for (BeanModel model : models) {
+                if (model.serializer) {
+                    writeSource(model.packageName() + "." + JsonCodecWriter.serializerName(model),
+                            JsonCodecWriter.serializer(model), model.type);
+                }
+                if (model.deserializer) {
+                    writeSource(model.packageName() + "." + JsonCodecWriter.deserializerName(model),
+                            JsonCodecWriter.deserializer(model), model.type);
+                }
+            }
+            String module = modulePackage.isEmpty() ? MODULE_NAME : modulePackage + "." + MODULE_NAME;
+            writeSource(module, JsonCodecWriter.module(modulePackage, MODULE_NAME, models),
+                    models.stream().map(model -> model.type).toArray(Element[]::new));
+            FileObject service = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", MODULE_SERVICE);
+            try (Writer writer = service.openWriter()) {
+                writer.write(module + "\n");
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write json codecs: " + e.getMessage());
+        }
+        return false;
+    }
+
+    private void writeSource(String name, String source, Element... originatingElements) throws IOException {
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(name, originatingElements);
+        try (Writer writer = file.openWriter()) {
+            writer.write(source);
+        }
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private static String commonPackage(List<BeanModel> models) {
+        String common = models.get(0).packageName();
+        for (BeanModel model : models) {
+            String name = model.packageName();
+            while (!name.equals(common) && !name.startsWith(common + ".")) {
+                int dot = common.lastIndexOf('.');
+                common = dot < 0 ? "" : common.substring(0, dot);
+                if (common.isEmpty()) return common;
+            }
+        }
+        return common;
+    }
+}
@@ -0,0 +1,413 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.codegen;
+
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Writes the source of the generated serializers, deserializers and the module registering them
+final class JsonCodecWriter {
+
+    private static final String HEADER = "// Generated by JsonCodecProcessor. Do not edit.";
+
+    static String serializerName(BeanModel model) {
+        return model.type.getSimpleName() + "JsonSerializer";
+    }
+
+    static String deserializerName(BeanModel model) {
+        return model.type.getSimpleName() + "JsonDeserializer";
+    }
+
+    // Properties are written with the accessors and in the order Jackson would use. Strings, numbers and booleans
+    // are written directly; other values go through the provider, which finds generated serializers too.
+    static String serializer(BeanModel model) {
+        String type = model.type.getSimpleName().toString();
+        boolean mapperDefault = model.inclusion == BeanModel.Inclusion.MAPPER_DEFAULT;
+        Source out = new Source();
+        out.line(0, "package " + model.packageName() + ";");
+        out.line(0, "");
+        if (mapperDefault) out.line(0, "import com.fasterxml.jackson.annotation.JsonInclude;");
+        out.line(0, "import com.fasterxml.jackson.core.JsonGenerator;");
+        out.line(0, "import com.fasterxml.jackson.core.io.SerializedString;");
+        out.line(0, "import com.fasterxml.jackson.databind.SerializerProvider;");
+        if (mapperDefault) out.line(0, "import com.fasterxml.jackson.databind.ser.ResolvableSerializer;");
+        out.line(0, "import com.fasterxml.jackson.databind.ser.std.StdSerializer;");
+        out.line(0, "");
+        out.line(0, "import java.io.IOException;");
+        out.line(0, "");
+        out.line(0, HEADER);
+        out.line(0, "public final class " + serializerName(model) + " extends StdSerializer<" + type + ">"
+                + (mapperDefault ? " implements ResolvableSerializer {" : " {"));
+        out.line(0, "");
+        for (int i = 0; i < model.written.size(); i++) {
+            out.line(1, "private static final SerializedString NAME_" + i + " = new SerializedString("
+                    + literal(model.written.get(i).name) + ");");
+        }
+        if (mapperDefault) out.line(1, "private boolean skipNulls;");
+        out.line(0, "");
+        out.line(1, "public " + serializerName(model) + "() {");
+        out.line(2, "super(" + type + ".class);");
+        out.line(1, "}");
+        if (mapperDefault) {
+            out.line(0, "");
+            out.line(1, "// The class leaves it to the mapper whether nulls are written. Other inclusions than ALWAYS skip them.");
+            out.line(1, "@Override");
+            out.line(1, "public void resolve(SerializerProvider provider) {");
+            out.line(2, "JsonInclude.Include inclusion = provider.getConfig().getDefaultPropertyInclusion(" + type
+                    + ".class).getValueInclusion();");
+            out.line(2, "skipNulls = inclusion != JsonInclude.Include.ALWAYS && inclusion != JsonInclude.Include.USE_DEFAULTS;");
+            out.line(1, "}");
+        }
+        out.line(0, "");
+        out.line(1, "@Override");
+        out.line(1, "public void serialize(" + type + " value, JsonGenerator generator, SerializerProvider provider) throws IOException {");
+        out.line(2, "String property = null;");
+        out.line(2, "try {");
+        out.line(3, "generator.writeStartObject(value);");
+        for (int i = 0; i < model.written.size(); i++) {
+            BeanModel.Property property = model.written.get(i);
+            TypeMirror valueType = property.getterType;
+            String name = "NAME_" + i;
+            out.line(3, "property = " + literal(property.name) + ";");
+            if (valueType.getKind().isPrimitive()) {
+                out.line(3, "generator.writeFieldName(" + name + ");");
+                out.line(3, write(valueType, "value." + property.getter + "()") + ";");
+                continue;
+            }
+            String variable = "v" + i;
+            out.line(3, typeName(valueType) + " " + variable + " = value." + property.getter + "();");
+            out.line(3, "if (" + variable + " != null) {");
+            out.line(4, "generator.writeFieldName(" + name + ");");
+            out.line(4, write(valueType, variable) + ";");
+            if (model.inclusion != BeanModel.Inclusion.NON_NULL) {
+                out.line(3, mapperDefault ? "} else if (!skipNulls) {" : "} else {");
+                out.line(4, "generator.writeFieldName(" + name + ");");
+                out.line(4, "provider.defaultSerializeNull(generator);");
+            }
+            out.line(3, "}");
+        }
+        out.line(3, "generator.writeEndObject();");
+        out.line(2, "} catch (Exception e) {");
+        out.line(3, "wrapAndThrow(provider, e, value, property);");
+        out.line(2, "}");
+        out.line(1, "}");
+        out.line(0, "}");
+        return out.toString();
+    }
+
+    // Reads the properties Jackson would set, through the same setters. Strings, numbers and booleans are read
+    // directly when the token is one; anything else, nulls included, goes to the deserializer Jackson would use.
+    static String deserializer(BeanModel model) {
+        String type = model.type.getSimpleName().toString();
+        Source out = new Source();
+        out.line(0, "package " + model.packageName() + ";");
+        out.line(0, "");
+        out.line(0, "import com.fasterxml.jackson.core.JsonParser;");
+        out.line(0, "import com.fasterxml.jackson.core.JsonProcessingException;");
+        out.line(0, "import com.fasterxml.jackson.core.JsonToken;");
+        out.line(0, "import com.fasterxml.jackson.core.type.TypeReference;");
+        out.line(0, "import com.fasterxml.jackson.databind.DeserializationContext;");
+        out.line(0, "import com.fasterxml.jackson.databind.JsonDeserializer;");
+        out.line(0, "import com.fasterxml.jackson.databind.JsonMappingException;");
+        out.line(0, "import com.fasterxml.jackson.databind.deser.ResolvableDeserializer;");
+        out.line(0, "import com.fasterxml.jackson.databind.deser.std.StdDeserializer;");
+        out.line(0, "");
+        out.line(0, "import java.io.IOException;");
+        out.line(0, "import java.util.Arrays;");
+        out.line(0, "import java.util.Collection;");
+        out.line(0, "import java.util.Collections;");
+        out.line(0, "");
+        out.line(0, HEADER);
+        out.line(0, "public final class " + deserializerName(model) + " extends StdDeserializer<" + type
+                + "> implements ResolvableDeserializer {");
+        out.line(0, "");
+        String known = model.read.stream().map(p -> literal(p.name)).collect(Collectors.joining(", "));
+        out.line(1, "private static final Collection<Object> KNOWN_PROPERTIES = Collections.unmodifiableList(Arrays.<Object>asList("
+                + known + "));");
+        for (int i = 0; i < model.read.size(); i++) {
+            out.line(1, "private JsonDeserializer<Object> deserializer" + i + ";");
+        }
+        out.line(0, "");
+        out.line(1, "public " + deserializerName(model) + "() {");
+        out.line(2, "super(" + type + ".class);");
+        out.line(1, "}");
+        out.line(0, "");
+        out.line(1, "@Override");
+        out.line(1, "public void resolve(DeserializationContext context) throws JsonMappingException {");
+        for (int i = 0; i < model.read.size(); i++) {
+            out.line(2, "deserializer" + i + " = context.findRootValueDeserializer(" + javaType(model.read.get(i).setterType) + ");");
+        }
+        out.line(1, "}");
+        out.line(0, "");
+        out.line(1, "@Override");
+        out.line(1, "public boolean isCachable() {");
+        out.line(2, "return true;");
+        out.line(1, "}");
+        out.line(0, "");
+        out.line(1, "@Override");
+        out.line(1, "public Collection<Object> getKnownPropertyNames() {");
+        out.line(2, "return KNOWN_PROPERTIES;");
+        out.line(1, "}");
+        out.line(0, "");
+        out.line(1, "@Override");
+        out.line(1, "public " + type + " deserialize(JsonParser parser, DeserializationContext context) throws IOException {");
+        out.line(2, "JsonToken token = parser.currentToken();");
+        out.line(2, "if (token == JsonToken.START_OBJECT) {");
+        out.line(3, "token = parser.nextToken();");
+        out.line(2, "} else if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {");
+        out.line(3, "return (" + type + ") context.handleUnexpectedToken(" + type + ".class, parser);");
+        out.line(2, "}");
+        out.line(2, type + " bean = new " + type + "();");
+        out.line(2, "for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {");
+        out.line(3, "String name = parser.currentName();");
+        out.line(3, "token = parser.nextToken();");
+        out.line(3, "try {");
+        out.line(4, "switch (name) {");
+        Set<String> cases = new LinkedHashSet<>();
+        for (int i = 0; i < model.read.size(); i++) {
+            BeanModel.Property property = model.read.get(i);
+            if (!cases.add(property.name)) continue;
+            out.line(5, "case " + literal(property.name) + ":");
+            out.line(6, "bean." + property.setter + "(" + read(property.setterType, "deserializer" + i) + ");");
+            out.line(6, "continue;");
+        }
+        List<String> ignored = new ArrayList<>();
+        for (String name : model.ignored) {
+            if (cases.add(name)) ignored.add(name);
+        }
+        for (String name : ignored) {
+            out.line(5, "case " + literal(name) + ":");
+        }
+        if (!ignored.isEmpty()) {
+            out.line(6, "parser.skipChildren();");
+            out.line(6, "continue;");
+        }
+        out.line(5, "default:");
+        out.line(6, "break;");
+        out.line(4, "}");
+        out.line(3, "} catch (JsonProcessingException | RuntimeException e) {");
+        out.line(4, "throw JsonMappingException.wrapWithPath(e, bean, name);");
+        out.line(3, "}");
+        out.line(3, "handleUnknownProperty(parser, context, bean, name);");
+        out.line(2, "}");
+        out.line(2, "return bean;");
+        out.line(1, "}");
+        out.line(0, "");
+        out.line(1, "private static Object read(JsonParser parser, DeserializationContext context, JsonDeserializer<Object> deserializer)");
+        out.line(3, "throws IOException {");
+        out.line(2, "return parser.currentToken() == JsonToken.VALUE_NULL");
+        out.line(4, "? deserializer.getNullValue(context) : deserializer.deserialize(parser, context);");
+        out.line(1, "}");
+        out.line(0, "}");
+        return out.toString();
+    }
+
+    // Hands the serializers and deserializers to each mapper that registers the module, new ones per mapper.
+    // Only the classes themselves are matched, not their subclasses.
+    static String module(String packageName, String className, List<BeanModel> models) {
+        Source out = new Source();
+        out.line(0, "package " + packageName + ";");
+        out.line(0, "");
+        out.line(0, "import com.fasterxml.jackson.core.Version;");
+        out.line(0, "import com.fasterxml.jackson.databind.BeanDescription;");
+        out.line(0, "import com.fasterxml.jackson.databind.DeserializationConfig;");
+        out.line(0, "import com.fasterxml.jackson.databind.JavaType;");
+        out.line(0, "import com.fasterxml.jackson.databind.JsonDeserializer;");
+        out.line(0, "import com.fasterxml.jackson.databind.JsonSerializer;");
+        out.line(0, "import com.fasterxml.jackson.databind.Module;");
+        out.line(0, "import com.fasterxml.jackson.databind.SerializationConfig;");
+        out.line(0, "import com.fasterxml.jackson.databind.deser.Deserializers;");
+        out.line(0, "import com.fasterxml.jackson.databind.ser.Serializers;");
+        out.line(0, "");
+        out.line(0, HEADER);
+        out.line(0, "public final class " + className + " extends Module {");
+        out.line(0, "");
+        out.line(1, "@Override");
+        out.line(1, "public String getModuleName() {");
+        out.line(2, "return " + literal(className) + ";");
+        out.line(1, "}");
+        out.line(0, "");
+        out.line(1, "@Override");
+        out.line(1, "public Version version() {");
+        out.line(2, "return Version.unknownVersion();");
+        out.line(1, "}");
+        out.line(0, "");
+        out.line(1, "@Override");
+        out.line(1, "public void setupModule(SetupContext context) {");
+        out.line(2, "context.addSerializers(new Serializers.Base() {");
+        out.line(3, "@Override");
+        out.line(3, "public JsonSerializer<?> findSerializer(SerializationConfig config, JavaType type, BeanDescription beanDesc) {");
+        out.line(4, "Class<?> raw = type.getRawClass();");
+        for (BeanModel model : models) {
+            if (!model.serializer) continue;
+            out.line(4, "if (raw == " + qualified(model.type) + ".class) return new " + model.packageName() + "."
+                    + serializerName(model) + "();");
+        }
+        out.line(4, "return null;");
+        out.line(3, "}");
+        out.line(2, "});");
+        out.line(2, "context.addDeserializers(new Deserializers.Base() {");
+        out.line(3, "@Override");
+        out.line(3, "public JsonDeserializer<?> findBeanDeserializer(JavaType type, DeserializationConfig config,");
+        out.line(7, "BeanDescription beanDesc) {");
+        out.line(4, "Class<?> raw = type.getRawClass();");
+        for (BeanModel model : models) {
+            if (!model.deserializer) continue;
+            out.line(4, "if (raw == " + qualified(model.type) + ".class) return new " + model.packageName() + "."
+                    + deserializerName(model) + "();");
+        }
+        out.line(4, "return null;");
+        out.line(3, "}");
+        out.line(2, "});");
+        out.line(1, "}");
+        out.line(0, "}");
+        return out.toString();
+    }
+
+    private static String write(TypeMirror type, String value) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return "generator.writeBoolean(" + value + ")";
+            case INT:
+            case LONG:
+            case SHORT:
+            case BYTE:
+            case FLOAT:
+            case DOUBLE:
+                return "generator.writeNumber(" + value + ")";
+            default:
+                break;
+        }
+        switch (typeName(type)) {
+            case "java.lang.String":
+                return "generator.writeString(" + value + ")";
+            case "java.lang.Boolean":
+                return "generator.writeBoolean(" + value + ")";
+            case "java.lang.Integer":
+            case "java.lang.Long":
+            case "java.lang.Short":
+            case "java.lang.Double":
+            case "java.lang.Float":
+                return "generator.writeNumber(" + value + ")";
+            default:
+                return "provider.defaultSerializeValue(" + value + ", generator)";
+        }
+    }
+
+    private static String read(TypeMirror type, String deserializer) {
+        String fallback = "(" + boxedName(type) + ") read(parser, context, " + deserializer + ")";
+        boolean primitive = type.getKind().isPrimitive();
+        switch (boxedName(type)) {
+            case "java.lang.String":
+                return "token == JsonToken.VALUE_STRING ? parser.getText() : " + fallback;
+            case "java.lang.Integer":
+                return "token == JsonToken.VALUE_NUMBER_INT ? " + box(primitive, "Integer", "parser.getIntValue()") + " : " + fallback;
+            case "java.lang.Long":
+                return "token == JsonToken.VALUE_NUMBER_INT ? " + box(primitive, "Long", "parser.getLongValue()") + " : " + fallback;
+            case "java.lang.Double":
+                return "token == JsonToken.VALUE_NUMBER_FLOAT ? " + box(primitive, "Double", "parser.getDoubleValue()") + " : " + fallback;
+            case "java.lang.Boolean":
+                return "token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE ? "
+                        + box(primitive, "Boolean", "token == JsonToken.VALUE_TRUE") + " : " + fallback;
+            default:
+                return fallback;
+        }
+    }
+
+    // A boxed value keeps the conditional from unboxing a null read by the fallback
+    private static String box(boolean primitive, String boxed, String value) {
+        return primitive ? value : boxed + ".valueOf(" + value + ")";
+    }
+
+    private static String javaType(TypeMirror type) {
+        if (type.getKind().isPrimitive()) return "context.constructType(" + typeName(type) + ".class)";
+        if (type instanceof DeclaredType && ((DeclaredType) type).getTypeArguments().isEmpty()) {
+            return "context.constructType(" + typeName(type) + ".class)";
+        }
+        return "context.getTypeFactory().constructType(new TypeReference<" + typeName(type) + ">() { })";
+    }
+
+    private static String boxedName(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN: return "java.lang.Boolean";
+            case INT: return "java.lang.Integer";
+            case LONG: return "java.lang.Long";
+            case SHORT: return "java.lang.Short";
+            case BYTE: return "java.lang.Byte";
+            case CHAR: return "java.lang.Character";
+            case FLOAT: return "java.lang.Float";
+            case DOUBLE: return "java.lang.Double";
+            default: return typeName(type);
+        }
+    }
+
+    // The type as source, without the type annotations toString() would include
+    static String typeName(TypeMirror type) {
+        if (type.getKind().isPrimitive()) return type.getKind().name().toLowerCase();
+        if (type.getKind() == TypeKind.ARRAY) return typeName(((ArrayType) type).getComponentType()) + "[]";
+        if (type.getKind() == TypeKind.WILDCARD) {
+            WildcardType wildcard = (WildcardType) type;
+            if (wildcard.getExtendsBound() != null) return "? extends " + typeName(wildcard.getExtendsBound());
+            if (wildcard.getSuperBound() != null) return "? super " + typeName(wildcard.getSuperBound());
+            return "?";
+        }
+        if (type.getKind() == TypeKind.DECLARED) {
+            DeclaredType declared = (DeclaredType) type;
+            String name = ((TypeElement) declared.asElement()).getQualifiedName().toString();
+            if (declared.getTypeArguments().isEmpty()) return name;
+            return name + declared.getTypeArguments().stream()
+                    .map(JsonCodecWriter::typeName).collect(Collectors.joining(", ", "<", ">"));
+        }
+        return type.toString();
+    }
+
+    private static String qualified(TypeElement type) {
+        return type.getQualifiedName().toString();
+    }
+
+    private static String literal(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private static final class Source {
+        private final StringBuilder text = new StringBuilder();
+
+        void line(int indent, String line) {
+            if (!line.isEmpty()) {
+                for (int i = 0; i < indent; i++) text.append("    ");
+            }
+            text.append(line).append('\n');
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+}
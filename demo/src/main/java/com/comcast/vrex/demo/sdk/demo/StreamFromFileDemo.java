@@ -22,8 +22,7 @@ import com.comcast.vrex.demo.sdk.util.DemoAudio;
 import com.comcast.vrex.demo.sdk.util.FileSelector;
 import com.comcast.vrex.demo.sdk.util.InitPayloadDemoFactory;
 import com.comcast.vrex.demo.sdk.util.TriggerSelector;
-import com.comcast.vrex.sdk.audio.AudioOption;
-import com.comcast.vrex.sdk.audio.AudioStreamReader;
+import com.comcast.vrex.sdk.audio.RealTimeAudioSource;
 import com.comcast.vrex.sdk.auth.SpeechAuthenticator;
 import com.comcast.vrex.sdk.config.SpeechApplication;
 import com.comcast.vrex.sdk.config.SpeechConfigurationManager;
@@ -36,18 +35,12 @@ import com.comcast.vrex.sdk.util.SpeechUtils;
 import lombok.SneakyThrows;
 
 import javax.sound.sampled.AudioInputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 public class
 StreamFromFileDemo implements Demo {
 
-    ExecutorService executorService = Executors.newSingleThreadExecutor();
-
     @SneakyThrows
     @Override
     public void run() {
@@ -79,24 +72,8 @@ StreamFromFileDemo implements Demo {
         //Retrieve a unique trx
         String trx = SpeechUtils.generateTrx();
 
-        PipedOutputStream pipedOutputStream = new PipedOutputStream();
-        PipedInputStream pipedInputStream = new PipedInputStream(pipedOutputStream);
-
-        Runnable r = () -> {
-            AudioStreamReader reader = new AudioStreamReader(audioInputStream);
-            try {
-                while (reader.hasMore()) {
-                    byte[] b = reader.read(2048);
-                    System.out.println("Reading Partial audio.");
-                    Thread.sleep(50);
-                    pipedOutputStream.write(b);
-                    pipedOutputStream.flush();
-                }
-                pipedOutputStream.close();
-            } catch (Exception e) {
-                System.out.println(e);
-            }
-        };
+        //Replay the file at the pace it would be captured from a microphone
+        RealTimeAudioSource audioSource = RealTimeAudioSource.from(audioInputStream);
 
         CountDownLatch latch = new CountDownLatch(1);
         SpeechResultObserver observer = new MyResultObserver(latch);
@@ -105,11 +82,11 @@ StreamFromFileDemo implements Demo {
         SpeechSession
                 .newSession(trx, configManager)
                 .withInit(initPayload)
-                .withAudio(AudioOption.from(pipedInputStream, 2048))
+                .withAudio(audioSource.toAudioOption())
                 .withResultObserver(observer)
                 .startSession();
 
-        executorService.execute(r);
+        audioSource.start();
 
         latch.await(10000, TimeUnit.MILLISECONDS);
     }
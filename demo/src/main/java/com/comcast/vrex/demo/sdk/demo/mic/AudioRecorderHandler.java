@@ -49,7 +49,8 @@ public class AudioRecorderHandler implements Runnable {
         this.bytesRead = bytesRead;
     }
 
-    private AudioFormat getAudioFormat() {
+    // The SDK converts other capture formats (e.g. 48 kHz stereo) once the format is declared on the AudioOption
+    public static AudioFormat getAudioFormat() {
         AudioFormat.Encoding encoding = AudioFormat.Encoding.PCM_SIGNED;
         float sampleRate = 16000;
         int sampleSize = 16;
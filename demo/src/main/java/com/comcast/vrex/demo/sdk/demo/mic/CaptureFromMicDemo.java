@@ -105,7 +105,7 @@ public class CaptureFromMicDemo implements Demo {
         SpeechSession
                 .newSession(trx, configManager)
                 .withInit(initPayload)
-                .withAudio(AudioOption.from(pipedInputStream))
+                .withAudio(AudioOption.from(pipedInputStream).withSourceFormat(AudioRecorderHandler.getAudioFormat()))
                 .withResultObserver(observer)
                 .startSession();
 
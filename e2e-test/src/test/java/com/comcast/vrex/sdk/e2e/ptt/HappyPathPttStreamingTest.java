@@ -19,8 +19,7 @@
 package com.comcast.vrex.sdk.e2e.ptt;
 
 import com.comcast.vrex.sdk.audio.AudioConfig;
-import com.comcast.vrex.sdk.audio.AudioOption;
-import com.comcast.vrex.sdk.audio.AudioStreamReader;
+import com.comcast.vrex.sdk.audio.RealTimeAudioSource;
 import com.comcast.vrex.sdk.auth.SpeechAuthenticator;
 import com.comcast.vrex.sdk.config.SpeechApplication;
 import com.comcast.vrex.sdk.config.SpeechConfigurationManager;
@@ -37,18 +36,12 @@ import com.comcast.vrex.sdk.util.SpeechUtils;
 import org.junit.jupiter.api.Test;
 
 import javax.sound.sampled.AudioInputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class HappyPathPttStreamingTest {
 
-    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
-
     @Test
     public void happyPathPttStreamingHBOTest() throws Exception {
         happyPathPttStreamingTest("HBO", "HBO");
@@ -75,24 +68,7 @@ public class HappyPathPttStreamingTest {
 
         AudioInputStream audioInputStream = TestUtils.openFile(file, TriggeredBy.PTT);
 
-        PipedOutputStream pipedOutputStream = new PipedOutputStream();
-        PipedInputStream pipedInputStream = new PipedInputStream(pipedOutputStream);
-
-        Runnable streamRunnable = () -> {
-            AudioStreamReader reader = new AudioStreamReader(audioInputStream);
-            try {
-                while (reader.hasMore()) {
-                    byte[] b = reader.read(2048);
-                    System.out.println("Reading Partial audio.");
-                    Thread.sleep(50);
-                    pipedOutputStream.write(b);
-                    pipedOutputStream.flush();
-                }
-                pipedOutputStream.close();
-            } catch (Exception e) {
-                System.out.println(e);
-            }
-        };
+        RealTimeAudioSource audioSource = RealTimeAudioSource.from(audioInputStream);
 
         ResultObserverLatchSet latchSet = new ResultObserverLatchSet();
         SpeechResultObserver observer = new TestResultObserver(latchSet, transcription);
@@ -101,11 +77,11 @@ public class HappyPathPttStreamingTest {
         SpeechSession
                 .newSession(SpeechUtils.generateTrx(), configManager)
                 .withInit(initPayload)
-                .withAudio(AudioOption.from(pipedInputStream))
+                .withAudio(audioSource.toAudioOption())
                 .withResultObserver(observer)
                 .startSession();
 
-        executorService.execute(streamRunnable);
+        audioSource.start();
 
         boolean listening = latchSet.listeningLatch.await(3000, TimeUnit.MILLISECONDS);
         assertTrue(listening);
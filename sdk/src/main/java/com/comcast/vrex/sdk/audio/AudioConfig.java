@@ -68,6 +68,13 @@ public class AudioConfig {
         return this;
     }
 
+    // Drops hands-free audio captured more than marginMillis ahead of the wake-up word. The offsets in the
+    // outgoing wuw are moved to match the trimmed audio.
+    public AudioConfig withWakeUpWordTrim(int marginMillis) {
+        audio.setWuwTrimMargin(Math.max(0, marginMillis));
+        return this;
+    }
+
     public Audio buildAudio() {
         return audio;
     }
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.comcast.vrex.sdk.audio;
+
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+// Reads audio in whole frames until the stream reports a real end of file (-1).
+// Unlike available(), which is only a hint, a blocking read never mistakes a slow source for the end of the audio.
+public class AudioFrameReader implements Closeable {
+
+    private final InputStream inputStream;
+    private final int frameSize;
+    private byte[] scratch;
+    private long bytesRead;
+    private boolean endOfStream;
+
+    public AudioFrameReader(AudioInputStream inputStream) {
+        this(inputStream, inputStream.getFormat().getFrameSize());
+    }
+
+    public AudioFrameReader(InputStream inputStream, int frameSize) {
+        this.inputStream = inputStream;
+        this.frameSize = frameSize == AudioSystem.NOT_SPECIFIED || frameSize < 1 ? 1 : frameSize;
+    }
+
+    // Returns the number of bytes read, a multiple of the frame size except for a truncated last frame, or -1 at EOF.
+    // Blocks until at least one whole frame is available, but not until the buffer is full. The length must hold
+    // at least one frame, as a shorter read would split a frame between two reads.
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length < frameSize) {
+            throw new IllegalArgumentException("Read of " + length + " bytes is shorter than a frame of " + frameSize);
+        }
+        if (endOfStream) return -1;
+        int wanted = length - length % frameSize;
+        int total = 0;
+        while (total < wanted && (total == 0 || total % frameSize != 0)) {
+            int count = inputStream.read(buffer, offset + total, wanted - total);
+            if (count == -1) {
+                endOfStream = true;
+                break;
+            }
+            total += count;
+        }
+        if (total == 0 && endOfStream) return -1;
+        bytesRead += total;
+        return total;
+    }
+
+    // Fills the buffer from its position; array-backed buffers are read into directly
+    public int read(ByteBuffer buffer) throws IOException {
+        int count;
+        if (buffer.hasArray()) {
+            count = read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            if (count > 0) ((Buffer) buffer).position(buffer.position() + count);
+        } else {
+            if (scratch == null || scratch.length < buffer.remaining()) scratch = new byte[buffer.remaining()];
+            count = read(scratch, 0, buffer.remaining());
+            if (count > 0) buffer.put(scratch, 0, count);
+        }
+        return count;
+    }
+
+    public boolean isEndOfStream() {
+        return endOfStream;
+    }
+
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getFramesRead() {
+        return bytesRead / frameSize;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+}
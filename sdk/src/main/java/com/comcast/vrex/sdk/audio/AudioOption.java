@@ -18,20 +18,31 @@
 
 package com.comcast.vrex.sdk.audio;
 
+import com.comcast.vrex.sdk.audio.processing.AudioProcessor;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
 
+import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
+import java.io.IOException;
 import java.io.PipedInputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
-@AllArgsConstructor
+@RequiredArgsConstructor
 public class AudioOption {
 
     private static final int STANDARD_BUFFER_SIZE = 2048;
 
     @Getter
     private final SelectedOption selectedOption;
+    private AudioFormat sourceFormat;
+    private Integer frameDuration;
+    private final List<AudioProcessor> processors = new ArrayList<>();
 
     public static AudioOption from(@NonNull AudioInputStream audioInputStream) {
         return new AudioOption(new AudioInputStreamOption(audioInputStream, STANDARD_BUFFER_SIZE));
@@ -49,10 +60,74 @@ public class AudioOption {
         return new AudioOption(new PipedInputStreamOption(pipedInputStream, bufferSize));
     }
 
+    public static AudioOption from(@NonNull AudioSink audioSink) {
+        return new AudioOption(new AudioSinkOption(audioSink, STANDARD_BUFFER_SIZE));
+    }
+
+    public static AudioOption from(@NonNull AudioSink audioSink, int bufferSize) {
+        return new AudioOption(new AudioSinkOption(audioSink, bufferSize));
+    }
+
+    public static AudioOption from(@NonNull Path path) throws IOException {
+        return new AudioOption(new WavFileOption(WavFile.open(path), STANDARD_BUFFER_SIZE));
+    }
+
+    public static AudioOption from(@NonNull Path path, int bufferSize) throws IOException {
+        return new AudioOption(new WavFileOption(WavFile.open(path), bufferSize));
+    }
+
+    public static AudioOption from(@NonNull WavFile wavFile) {
+        return new AudioOption(new WavFileOption(wavFile, STANDARD_BUFFER_SIZE));
+    }
+
     public static AudioOption from(@NonNull String text) {
         return new AudioOption(new TextOption(text));
     }
 
+    // Piped streams and sinks carry no format of their own; declaring it lets the session encode the audio
+    // for the codec in the init payload
+    public AudioOption withSourceFormat(@NonNull AudioFormat sourceFormat) {
+        this.sourceFormat = sourceFormat;
+        return this;
+    }
+
+    // Milliseconds of audio per websocket frame, overriding audio.framing.duration. Frames are sized by
+    // duration only when the audio format is known; otherwise each chunk of bufferSize bytes is a frame.
+    public AudioOption withFrameDuration(int frameDuration) {
+        if (frameDuration <= 0) throw new IllegalArgumentException("Frame duration must be positive");
+        this.frameDuration = frameDuration;
+        return this;
+    }
+
+    // Null when the configured duration applies
+    public Integer getFrameDuration() {
+        return frameDuration;
+    }
+
+    // Stages run in the order added, on 16 kHz mono PCM when the source format is known and on the audio as
+    // provided otherwise, ahead of voice activity detection and encoding. Processors keep per-stream state,
+    // so an option with processors serves a single session.
+    public AudioOption withProcessor(@NonNull AudioProcessor processor) {
+        processors.add(processor);
+        return this;
+    }
+
+    public List<AudioProcessor> getProcessors() {
+        return Collections.unmodifiableList(processors);
+    }
+
+    // Null when the format is unknown, in which case the audio is sent as provided
+    public AudioFormat getSourceFormat() {
+        if (sourceFormat != null) return sourceFormat;
+        if (selectedOption instanceof AudioInputStreamOption) {
+            return ((AudioInputStreamOption) selectedOption).getStream().getFormat();
+        }
+        if (selectedOption instanceof WavFileOption) {
+            return ((WavFileOption) selectedOption).getWavFile().getFormat();
+        }
+        return null;
+    }
+
     public interface SelectedOption {
     }
 
@@ -70,6 +145,20 @@ public class AudioOption {
         private int bufferSize;
     }
 
+    @AllArgsConstructor
+    @Getter
+    public static class AudioSinkOption implements SelectedOption {
+        private final AudioSink sink;
+        private int bufferSize;
+    }
+
+    @AllArgsConstructor
+    @Getter
+    public static class WavFileOption implements SelectedOption {
+        private final WavFile wavFile;
+        private int bufferSize;
+    }
+
     @AllArgsConstructor
     @Getter
     public static class TextOption implements SelectedOption {
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.comcast.vrex.sdk.audio;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Single-producer, single-consumer ring that audio is pushed into by the caller's capture thread
+// and drained by the speech session. Writes never block: they return how many bytes fit.
+public class AudioSink {
+
+    private final byte[] ring;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicReference<Runnable> consumer = new AtomicReference<>();
+    private volatile boolean completed;
+
+    public AudioSink(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.ring = new byte[size];
+        this.mask = size - 1;
+    }
+
+    public int write(byte[] src, int offset, int length) {
+        if (completed) throw new IllegalStateException("Audio sink is already completed");
+        long t = tail.get();
+        int count = (int) Math.min(length, ring.length - (t - head.get()));
+        int index = (int) (t & mask);
+        int first = Math.min(count, ring.length - index);
+        System.arraycopy(src, offset, ring, index, first);
+        System.arraycopy(src, offset + first, ring, 0, count - first);
+        tail.lazySet(t + count);
+        if (count > 0) signal();
+        return count;
+    }
+
+    public int write(ByteBuffer src) {
+        if (completed) throw new IllegalStateException("Audio sink is already completed");
+        long t = tail.get();
+        int count = (int) Math.min(src.remaining(), ring.length - (t - head.get()));
+        int index = (int) (t & mask);
+        int first = Math.min(count, ring.length - index);
+        src.get(ring, index, first);
+        src.get(ring, 0, count - first);
+        tail.lazySet(t + count);
+        if (count > 0) signal();
+        return count;
+    }
+
+    // Marks the end of the audio once everything written so far has been sent
+    public void complete() {
+        completed = true;
+        signal();
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public int available() {
+        return (int) (tail.get() - head.get());
+    }
+
+    public int remainingCapacity() {
+        return ring.length - available();
+    }
+
+    // Consumer side: moves up to max bytes into dst (fill mode), returning -1 once completed and drained
+    public int read(ByteBuffer dst, int max) {
+        boolean done = completed;
+        long h = head.get();
+        int count = (int) Math.min(Math.min(max, dst.remaining()), tail.get() - h);
+        if (count == 0) return done ? -1 : 0;
+        int index = (int) (h & mask);
+        int first = Math.min(count, ring.length - index);
+        dst.put(ring, index, first);
+        dst.put(ring, 0, count - first);
+        head.lazySet(h + count);
+        return count;
+    }
+
+    // Consumer side: runs the callback once more audio is written or the sink completes. It runs on the writing
+    // thread, so it should only hand the work off.
+    public void awaitData(Runnable callback) {
+        consumer.set(callback);
+        if (available() > 0 || completed) signal();
+    }
+
+    private void signal() {
+        Runnable callback = consumer.getAndSet(null);
+        if (callback != null) callback.run();
+    }
+}
@@ -21,6 +21,8 @@ package com.comcast.vrex.sdk.audio;
 import javax.sound.sampled.AudioInputStream;
 import java.io.IOException;
 
+// Relies on available(), which may report 0 before the end of the audio. Use AudioFrameReader instead.
+@Deprecated
 public class AudioStreamReader {
 
     private final AudioInputStream inputStream;
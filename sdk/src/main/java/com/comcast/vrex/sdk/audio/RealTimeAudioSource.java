@@ -0,0 +1,256 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.audio;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Replays recorded audio into an AudioSink at the rate it would be captured live. Each tick writes whatever
+// the wall clock says is due since the start, so a late tick catches up rather than the stream drifting.
+// Ticks only copy into the sink, leaving the sending to the session's executor. Ticks of every source share
+// a small timer pool unless a scheduler is given; pass one sized for the load when replaying many sessions at once.
+@Slf4j
+public class RealTimeAudioSource implements AutoCloseable {
+
+    private static final int DEFAULT_FRAME_DURATION = 20;
+    // The sink also holds the audio captured before the server is listening, plus part of a burst
+    private static final int SINK_SECONDS = 2;
+    private static final int MAX_BURST_SECONDS = 8;
+
+    private final AudioFormat format;
+    private final ChunkReader reader;
+    private final int frameSize;
+    private final long bytesPerSecond;
+    private int frameDuration = DEFAULT_FRAME_DURATION;
+    private long burstBytes;
+    private int chunkSize;
+
+    private AudioSink sink;
+    private ScheduledFuture<?> ticks;
+    private ByteBuffer pending;
+    private long written;
+    private volatile long startedAt;
+    private volatile long endOfAudioAt;
+
+    private RealTimeAudioSource(AudioFormat format, ChunkReader reader) {
+        if (format.getFrameSize() <= 0 || format.getFrameRate() <= 0) {
+            throw new IllegalArgumentException("Audio format " + format + " has no frame rate or frame size");
+        }
+        this.format = format;
+        this.reader = reader;
+        this.frameSize = format.getFrameSize();
+        this.bytesPerSecond = Math.round(format.getFrameRate() * frameSize);
+    }
+
+    public static RealTimeAudioSource from(@NonNull AudioInputStream stream) {
+        AudioFrameReader frameReader = new AudioFrameReader(stream);
+        return new RealTimeAudioSource(stream.getFormat(), new ChunkReader() {
+            private byte[] chunk = new byte[0];
+
+            @Override
+            public ByteBuffer read(int max) throws IOException {
+                if (chunk.length < max) chunk = new byte[max];
+                int count = frameReader.read(chunk, 0, max);
+                return count == -1 ? null : ByteBuffer.wrap(chunk, 0, count);
+            }
+
+            @Override
+            public void close() throws IOException {
+                frameReader.close();
+            }
+        });
+    }
+
+    public static RealTimeAudioSource from(@NonNull byte[] audio, @NonNull AudioFormat format) {
+        return from(new AudioInputStream(new ByteArrayInputStream(audio), format, audio.length / Math.max(1, format.getFrameSize())));
+    }
+
+    // The mapped file is written to the sink without an intermediate copy
+    public static RealTimeAudioSource from(@NonNull WavFile wavFile) {
+        return new RealTimeAudioSource(wavFile.getFormat(), new ChunkReader() {
+            private int position;
+
+            @Override
+            public ByteBuffer read(int max) {
+                int length = Math.min(max, wavFile.getDataLength() - position);
+                if (length <= 0) return null;
+                ByteBuffer slice = wavFile.slice(position, length);
+                position += length;
+                return slice;
+            }
+        });
+    }
+
+    public static RealTimeAudioSource from(@NonNull Path path) throws IOException {
+        return from(WavFile.open(path));
+    }
+
+    // Milliseconds of audio written per tick
+    public RealTimeAudioSource withFrameDuration(int frameDuration) {
+        if (frameDuration <= 0) throw new IllegalArgumentException("Frame duration must be positive");
+        this.frameDuration = frameDuration;
+        return this;
+    }
+
+    // Writes the first burstMillis of audio at once, as a device does with what it buffered before the
+    // session started, and paces the rest. A burst longer than the audio replays it as fast as it is taken.
+    public RealTimeAudioSource withBurst(long burstMillis) {
+        if (burstMillis < 0) throw new IllegalArgumentException("Burst must not be negative");
+        long bytes = burstMillis >= Long.MAX_VALUE / bytesPerSecond ? Long.MAX_VALUE : burstMillis * bytesPerSecond / 1000;
+        this.burstBytes = bytes - bytes % frameSize;
+        return this;
+    }
+
+    public AudioFormat getFormat() {
+        return format;
+    }
+
+    public synchronized AudioSink getSink() {
+        if (sink == null) {
+            long burst = Math.min(burstBytes, MAX_BURST_SECONDS * bytesPerSecond);
+            sink = new AudioSink((int) Math.min(Integer.MAX_VALUE / 2, burst + SINK_SECONDS * bytesPerSecond));
+        }
+        return sink;
+    }
+
+    // The sink with its format declared, so the session can convert the audio as needed
+    public AudioOption toAudioOption() {
+        return AudioOption.from(getSink()).withSourceFormat(format);
+    }
+
+    public RealTimeAudioSource start() {
+        return start(SharedTimer.INSTANCE);
+    }
+
+    public synchronized RealTimeAudioSource start(@NonNull ScheduledExecutorService timer) {
+        if (ticks != null) throw new IllegalStateException("Real-time audio source is already started");
+        getSink();
+        long chunk = bytesPerSecond * frameDuration / 1000;
+        chunkSize = (int) Math.max(frameSize, Math.min(Integer.MAX_VALUE / 2, chunk - chunk % frameSize));
+        startedAt = System.nanoTime();
+        ticks = timer.scheduleAtFixedRate(this::tick, 0, frameDuration, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    // System.nanoTime() of the first tick, 0 until started
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    // System.nanoTime() once the last byte was written to the sink, 0 until then. Latency to a result is
+    // measured from here, as this is when a live speaker would have stopped talking.
+    public long getEndOfAudioAt() {
+        return endOfAudioAt;
+    }
+
+    public boolean isDone() {
+        return endOfAudioAt != 0;
+    }
+
+    // Stops pacing and completes the sink with whatever was written so far
+    @Override
+    public synchronized void close() {
+        if (ticks != null) ticks.cancel(false);
+        if (sink != null && !sink.isCompleted()) sink.complete();
+        try {
+            reader.close();
+        } catch (IOException e) {
+            log.warn("Unable to close real-time audio source: " + e.getMessage());
+        }
+    }
+
+    private synchronized void tick() {
+        if (isDone() || sink.isCompleted()) return;
+        try {
+            long due = bytesDue(System.nanoTime());
+            if (pending == null && !readAhead()) return;
+            while (written < due) {
+                int limit = pending.limit();
+                ((Buffer) pending).limit((int) Math.min(limit, pending.position() + (due - written)));
+                int count = sink.write(pending);
+                ((Buffer) pending).limit(limit);
+                // A full sink means the session has fallen behind; the audio waits rather than being dropped
+                if (count == 0) return;
+                written += count;
+                // Reading ahead as soon as a chunk is written finds the end right after the last byte, not a tick later
+                if (!pending.hasRemaining() && !readAhead()) return;
+            }
+        } catch (IOException e) {
+            log.error("Error reading audio for real-time replay: " + e.getMessage());
+            finish();
+        }
+    }
+
+    // The next chunk, or false once the audio has ended and the source is finished
+    private boolean readAhead() throws IOException {
+        do {
+            pending = reader.read(chunkSize);
+        } while (pending != null && !pending.hasRemaining());
+        if (pending != null) return true;
+        finish();
+        return false;
+    }
+
+    private long bytesDue(long now) {
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(now - startedAt);
+        long paced = elapsed * bytesPerSecond / 1000;
+        paced -= paced % frameSize;
+        return burstBytes > Long.MAX_VALUE - paced ? Long.MAX_VALUE : burstBytes + paced;
+    }
+
+    private void finish() {
+        endOfAudioAt = System.nanoTime();
+        close();
+    }
+
+    private interface ChunkReader {
+        // Up to max bytes of whole frames, or null at the end of the audio
+        ByteBuffer read(int max) throws IOException;
+
+        default void close() throws IOException {
+        }
+    }
+
+    private static class SharedTimer {
+        // More than one thread, so a tick held up by its sink's consumer does not delay every other source
+        private static final int THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+        private static final ScheduledExecutorService INSTANCE = newTimer();
+
+        private static ScheduledExecutorService newTimer() {
+            ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(THREADS,
+                    new ThreadFactoryBuilder().setNameFormat("real-time-audio-%d").setDaemon(true).build());
+            timer.setRemoveOnCancelPolicy(true);
+            return timer;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.comcast.vrex.sdk.audio;
+
+import com.comcast.vrex.sdk.audio.processing.AudioContext;
+import com.comcast.vrex.sdk.audio.processing.AudioProcessor;
+import com.comcast.vrex.sdk.messageModel.send.EndOfStream;
+import org.eclipse.jetty.util.BufferUtil;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+// Energy and zero-crossing voice activity detection over 10 ms frames of 16 kHz, 16-bit mono PCM.
+// Leading silence is held back (apart from a short padding ahead of the speech onset) and the end of
+// speech is reported once the trailing silence window has passed. Frames after that are dropped.
+public class VoiceActivityDetector implements AudioProcessor {
+
+    private static final int FRAME_SAMPLES = 160;
+    private static final int FRAME_BYTES = FRAME_SAMPLES * 2;
+    private static final int FRAME_MILLIS = 10;
+    // Consecutive speech frames needed for an onset, so a click does not open the gate
+    private static final int ONSET_FRAMES = 3;
+    // Speech has to stand out this far from the tracked noise floor
+    private static final double NOISE_MARGIN_DB = 12;
+    // Frames this close to the threshold still count as speech while talking when they cross zero often
+    // (unvoiced fricatives such as "s" or "f"), so they do not run down the trailing silence window
+    private static final double FRICATIVE_MARGIN_DB = 10;
+    private static final double FRICATIVE_ZCR = 0.25;
+    private static final double NOISE_FLOOR_RISE_DB = 0.02;
+
+    private final double thresholdDb;
+    private final int trailingSilenceFrames;
+    private final boolean trimLeadingSilence;
+
+    private final byte[] frame = new byte[FRAME_BYTES];
+    private final ByteBuffer frameView = ByteBuffer.wrap(frame);
+    private int frameLength;
+
+    // Ring of the most recent frames before the onset
+    private final byte[] padding;
+    private int paddingStart;
+    private int paddingSize;
+
+    private double noiseFloorDb;
+    private int speechFrames;
+    private int silenceFrames;
+    private boolean speechStarted;
+    private boolean endOfSpeech;
+    private long trimmedBytes;
+
+    public VoiceActivityDetector(double thresholdDb, int trailingSilenceMillis, int leadingPaddingMillis,
+                                 boolean trimLeadingSilence) {
+        this.thresholdDb = thresholdDb;
+        this.trailingSilenceFrames = Math.max(1, trailingSilenceMillis / FRAME_MILLIS);
+        this.trimLeadingSilence = trimLeadingSilence;
+        this.padding = new byte[Math.max(ONSET_FRAMES, leadingPaddingMillis / FRAME_MILLIS + ONSET_FRAMES) * FRAME_BYTES];
+        this.noiseFloorDb = thresholdDb - NOISE_MARGIN_DB;
+    }
+
+    // Upper bound of the output for the given number of input bytes, as the padding is released at the onset
+    public int maxOutputSize(int inputBytes) {
+        return inputBytes + frameLength + padding.length;
+    }
+
+    // Consumes src and appends the audio to keep to dst, which must have maxOutputSize(src.remaining()) bytes left
+    public void process(ByteBuffer src, ByteBuffer dst) {
+        if (frameLength > 0) {
+            int count = Math.min(FRAME_BYTES - frameLength, src.remaining());
+            src.get(frame, frameLength, count);
+            frameLength += count;
+            if (frameLength < FRAME_BYTES) return;
+            frameLength = 0;
+            accept(frameView, 0, dst);
+        }
+        while (src.remaining() >= FRAME_BYTES) {
+            int position = src.position();
+            accept(src, position, dst);
+            ((Buffer) src).position(position + FRAME_BYTES);
+        }
+        frameLength = src.remaining();
+        src.get(frame, 0, frameLength);
+    }
+
+    // Ends the stream as soon as the end of speech is detected
+    @Override
+    public ByteBuffer process(ByteBuffer chunk, AudioContext context) {
+        ByteBuffer kept = context.acquire(maxOutputSize(chunk.remaining()));
+        int position = BufferUtil.flipToFill(kept);
+        process(chunk, kept);
+        BufferUtil.flipToFlush(kept, position);
+        context.release(chunk);
+        if (endOfSpeech) context.endOfStream(EndOfStream.END_OF_SPEECH);
+        return kept;
+    }
+
+    public boolean isSpeechStarted() {
+        return speechStarted;
+    }
+
+    public boolean isEndOfSpeech() {
+        return endOfSpeech;
+    }
+
+    // Leading silence that was not sent
+    public long getTrimmedBytes() {
+        return trimmedBytes + paddingSize;
+    }
+
+    private void accept(ByteBuffer src, int offset, ByteBuffer dst) {
+        if (endOfSpeech) return;
+        boolean speech = classify(src, offset);
+        if (!speechStarted) {
+            speechFrames = speech ? speechFrames + 1 : 0;
+            if (trimLeadingSilence) {
+                hold(src, offset);
+                if (speechFrames < ONSET_FRAMES) return;
+                speechStarted = true;
+                releasePadding(dst);
+                return;
+            }
+            speechStarted = speechFrames >= ONSET_FRAMES;
+        } else {
+            silenceFrames = speech ? 0 : silenceFrames + 1;
+            endOfSpeech = silenceFrames >= trailingSilenceFrames;
+        }
+        copy(src, offset, FRAME_BYTES, dst);
+    }
+
+    private boolean classify(ByteBuffer src, int offset) {
+        long sumOfSquares = 0;
+        int crossings = 0;
+        int previous = 0;
+        for (int i = 0; i < FRAME_BYTES; i += 2) {
+            int sample = (short) ((src.get(offset + i) & 0xFF) | (src.get(offset + i + 1) << 8));
+            sumOfSquares += sample * sample;
+            if ((sample ^ previous) < 0) crossings++;
+            previous = sample;
+        }
+        double energyDb = 10 * Math.log10(sumOfSquares / (double) FRAME_SAMPLES / (32768.0 * 32768.0) + 1e-10);
+        double zcr = crossings / (double) FRAME_SAMPLES;
+        double threshold = Math.max(thresholdDb, noiseFloorDb + NOISE_MARGIN_DB);
+        boolean speech = energyDb > threshold
+                || (speechStarted && energyDb > threshold - FRICATIVE_MARGIN_DB && zcr > FRICATIVE_ZCR);
+        // The floor follows quiet frames down at once and creeps up slowly, so speech barely moves it
+        noiseFloorDb = energyDb < noiseFloorDb ? energyDb : noiseFloorDb + NOISE_FLOOR_RISE_DB;
+        return speech;
+    }
+
+    private void hold(ByteBuffer src, int offset) {
+        if (paddingSize == padding.length) {
+            paddingStart = (paddingStart + FRAME_BYTES) % padding.length;
+            paddingSize -= FRAME_BYTES;
+            trimmedBytes += FRAME_BYTES;
+        }
+        int end = (paddingStart + paddingSize) % padding.length;
+        for (int i = 0; i < FRAME_BYTES; i++) {
+            padding[end + i] = src.get(offset + i);
+        }
+        paddingSize += FRAME_BYTES;
+    }
+
+    private void releasePadding(ByteBuffer dst) {
+        int first = Math.min(paddingSize, padding.length - paddingStart);
+        dst.put(padding, paddingStart, first);
+        dst.put(padding, 0, paddingSize - first);
+        paddingStart = 0;
+        paddingSize = 0;
+    }
+
+    // Bulk copy through src's own position and limit, restored afterwards
+    private static void copy(ByteBuffer src, int offset, int length, ByteBuffer dst) {
+        int position = src.position();
+        int limit = src.limit();
+        ((Buffer) src).limit(offset + length).position(offset);
+        dst.put(src);
+        ((Buffer) src).limit(limit).position(position);
+    }
+}
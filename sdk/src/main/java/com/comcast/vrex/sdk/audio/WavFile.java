@@ -0,0 +1,136 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.comcast.vrex.sdk.audio;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// A WAV (or headerless PCM) file whose audio data is memory-mapped rather than read through javax.sound.
+// The mapping is read-only, so one WavFile can be streamed by any number of sessions.
+@Getter
+public class WavFile {
+
+    private static final int WAVE_FORMAT_PCM = 1;
+    private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+    private static final AudioFormat RAW_PCM_FORMAT = new AudioFormat(16000, 16, 1, true, false);
+
+    private final Path path;
+    private final AudioFormat format;
+    private final long dataOffset;
+    private final int dataLength;
+    @Getter(AccessLevel.NONE)
+    private final MappedByteBuffer data;
+
+    private WavFile(Path path, AudioFormat format, long dataOffset, int dataLength, MappedByteBuffer data) {
+        this.path = path;
+        this.format = format;
+        this.dataOffset = dataOffset;
+        this.dataLength = dataLength;
+        this.data = data;
+    }
+
+    // Files without a RIFF header are taken as raw 16 kHz, 16-bit mono little-endian PCM
+    public static WavFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = read(channel, 0, 12);
+            AudioFormat format = RAW_PCM_FORMAT;
+            long dataOffset = 0;
+            long dataLength = size;
+            if (header.remaining() == 12 && header.getInt(0) == fourCc("RIFF") && header.getInt(8) == fourCc("WAVE")) {
+                format = null;
+                dataLength = -1;
+                long position = 12;
+                while ((format == null || dataLength < 0) && position + 8 <= size) {
+                    ByteBuffer chunk = read(channel, position, 8);
+                    int id = chunk.getInt(0);
+                    long chunkSize = chunk.getInt(4) & 0xFFFFFFFFL;
+                    long body = position + 8;
+                    if (id == fourCc("fmt ")) {
+                        format = parseFormat(read(channel, body, (int) Math.min(chunkSize, 40)), path);
+                    } else if (id == fourCc("data")) {
+                        dataOffset = body;
+                        // Streaming writers leave the size unset, as 0 or 0xFFFFFFFF; the data then runs to the end of the file
+                        if (chunkSize == 0 || chunkSize == 0xFFFFFFFFL) chunkSize = size - body;
+                        dataLength = Math.min(chunkSize, size - body);
+                    }
+                    position = body + chunkSize + (chunkSize & 1);
+                }
+                if (format == null || dataLength < 0) {
+                    throw new IOException("Missing fmt or data chunk in WAV file " + path);
+                }
+            }
+            if (dataLength > Integer.MAX_VALUE) {
+                throw new IOException("Audio data larger than 2 GB is not supported: " + path);
+            }
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset, dataLength);
+            return new WavFile(path, format, dataOffset, (int) dataLength, data);
+        }
+    }
+
+    private static AudioFormat parseFormat(ByteBuffer fmt, Path path) throws IOException {
+        if (fmt.remaining() < 16) throw new IOException("Truncated fmt chunk in WAV file " + path);
+        int formatTag = fmt.getShort(0) & 0xFFFF;
+        int channels = fmt.getShort(2) & 0xFFFF;
+        int sampleRate = fmt.getInt(4);
+        int bitsPerSample = fmt.getShort(14) & 0xFFFF;
+        if (formatTag == WAVE_FORMAT_EXTENSIBLE && fmt.remaining() >= 26) {
+            formatTag = fmt.getShort(24) & 0xFFFF;
+        }
+        if (formatTag != WAVE_FORMAT_PCM) {
+            throw new IOException("Unsupported WAV encoding " + formatTag + " in " + path + ". Only PCM is supported.");
+        }
+        return new AudioFormat(sampleRate, bitsPerSample, channels, bitsPerSample > 8, false);
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) <= 0) break;
+        }
+        ((Buffer) buffer).flip();
+        return buffer;
+    }
+
+    private static int fourCc(String id) {
+        return (id.charAt(0)) | (id.charAt(1) << 8) | (id.charAt(2) << 16) | (id.charAt(3) << 24);
+    }
+
+    public int getFrameSize() {
+        return format.getFrameSize();
+    }
+
+    // A read-only view of part of the audio data; no bytes are copied
+    public ByteBuffer slice(int offset, int length) {
+        ByteBuffer slice = data.asReadOnlyBuffer();
+        ((Buffer) slice).position(offset);
+        ((Buffer) slice).limit(offset + length);
+        return slice.slice();
+    }
+}
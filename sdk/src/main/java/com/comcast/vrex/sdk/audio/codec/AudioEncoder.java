@@ -0,0 +1,68 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.comcast.vrex.sdk.audio.codec;
+
+import com.comcast.vrex.sdk.audio.processing.AudioContext;
+import com.comcast.vrex.sdk.audio.processing.AudioProcessor;
+import com.comcast.vrex.sdk.messageModel.send.Codec;
+
+import javax.sound.sampled.AudioFormat;
+import java.nio.ByteBuffer;
+
+// Streaming encoder for 16 kHz, 16-bit mono little-endian PCM. Encoders keep state between calls,
+// so one instance serves exactly one stream.
+public interface AudioEncoder extends AudioProcessor {
+
+    AudioFormat PCM_16_16K = new AudioFormat(16000, 16, 1, true, false);
+
+    // Encodes the bytes between position and limit in place; on return they hold the encoded audio.
+    // A sample split across two calls is carried over to the next one.
+    void encode(ByteBuffer pcm);
+
+    Codec getCodec();
+
+    @Override
+    default ByteBuffer process(ByteBuffer chunk, AudioContext context) {
+        encode(chunk);
+        return chunk;
+    }
+
+    // Returns null when the codec is sent as provided by the caller
+    static AudioEncoder forCodec(Codec codec) {
+        if (codec == Codec.U_LAW) return new MuLawEncoder();
+        if (codec == Codec.ADPCM) return new ImaAdpcmEncoder();
+        return null;
+    }
+
+    // Bytes per second of audio on the wire, 0 when the codec is unknown
+    static int bytesPerSecond(Codec codec) {
+        if (codec == Codec.PCM_16_16K) return 32000;
+        if (codec == Codec.U_LAW || codec == Codec.ADPCM) return 8000;
+        return 0;
+    }
+
+    static boolean isPcm16k(AudioFormat format) {
+        return format != null
+                && AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding())
+                && format.getSampleSizeInBits() == 16
+                && format.getChannels() == 1
+                && format.getSampleRate() == 16000
+                && !format.isBigEndian();
+    }
+}
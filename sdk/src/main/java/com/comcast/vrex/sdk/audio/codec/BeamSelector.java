@@ -0,0 +1,225 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.comcast.vrex.sdk.audio.codec;
+
+import com.comcast.vrex.sdk.audio.processing.AudioContext;
+import com.comcast.vrex.sdk.audio.processing.AudioProcessor;
+import com.comcast.vrex.sdk.messageModel.send.Beam;
+import com.comcast.vrex.sdk.messageModel.send.Detector;
+
+import javax.sound.sampled.AudioFormat;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+// Reduces interleaved multi-channel PCM to one channel in place, either by taking a single beam or, for
+// 16-bit audio, by a weighted mix of several. The output keeps the source's sample format.
+public class BeamSelector implements AudioProcessor {
+
+    private final AudioFormat outputFormat;
+    private final int channels;
+    private final int sampleBytes;
+    private final int frameSize;
+    private final boolean bigEndian;
+    // Either a single channel is copied or all of them are mixed with Q15 weights
+    private final int channel;
+    private final int[] weights;
+
+    private final byte[] partialFrame;
+    private final ByteBuffer partialView;
+    private int partialLength;
+    private final byte[] sample;
+    private final byte[] pending;
+    private int pendingLength;
+
+    private BeamSelector(AudioFormat format, int channel, int[] weights) {
+        this.channels = format.getChannels();
+        this.sampleBytes = (format.getSampleSizeInBits() + 7) / 8;
+        this.frameSize = sampleBytes * channels;
+        this.bigEndian = format.isBigEndian();
+        this.channel = channel;
+        this.weights = weights;
+        this.partialFrame = new byte[frameSize];
+        this.partialView = ByteBuffer.wrap(partialFrame);
+        this.sample = new byte[sampleBytes];
+        this.pending = new byte[sampleBytes * 2];
+        this.outputFormat = new AudioFormat(format.getEncoding(), format.getSampleRate(), format.getSampleSizeInBits(),
+                1, sampleBytes, format.getSampleRate(), bigEndian);
+    }
+
+    public static BeamSelector select(AudioFormat format, int channel) {
+        if (format.getChannels() < 2 || channel < 0 || channel >= format.getChannels()) {
+            throw new IllegalArgumentException("No channel " + channel + " in " + format);
+        }
+        return new BeamSelector(format, channel, null);
+    }
+
+    // Weights are per channel and are normalized to a sum of one
+    public static BeamSelector mix(AudioFormat format, float... weights) {
+        if (format.getChannels() < 2 || weights.length != format.getChannels()) {
+            throw new IllegalArgumentException("Expected " + format.getChannels() + " weights for " + format);
+        }
+        if (!AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding()) || format.getSampleSizeInBits() != 16) {
+            throw new IllegalArgumentException("Beams can only be mixed in 16-bit PCM: " + format);
+        }
+        float sum = 0;
+        for (float weight : weights) {
+            if (weight < 0) throw new IllegalArgumentException("Negative beam weight");
+            sum += weight;
+        }
+        if (sum == 0) throw new IllegalArgumentException("Beam weights are all zero");
+        int[] q15 = new int[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            q15[i] = Math.round(weights[i] / sum * 32768);
+        }
+        return new BeamSelector(format, -1, q15);
+    }
+
+    // The selected beam when the detector names one, otherwise beams mixed by confidence. Beam i is
+    // taken to be interleaved channel i. Returns null when the detector says nothing usable.
+    public static BeamSelector forDetector(AudioFormat format, Detector detector) {
+        if (detector == null || format == null || format.getChannels() < 2) return null;
+        Integer selected = detector.getSelectedBeam();
+        if (selected != null && selected >= 0 && selected < format.getChannels()) {
+            return select(format, selected);
+        }
+        List<Beam> beams = detector.getBeams();
+        if (beams == null || beams.size() != format.getChannels()
+                || !AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding()) || format.getSampleSizeInBits() != 16) {
+            return null;
+        }
+        float[] weights = new float[beams.size()];
+        float sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            Integer confidence = beams.get(i).getConfidence();
+            weights[i] = confidence == null ? 0 : Math.max(0, confidence);
+            sum += weights[i];
+        }
+        return sum > 0 ? mix(format, weights) : null;
+    }
+
+    public AudioFormat getOutputFormat() {
+        return outputFormat;
+    }
+
+    @Override
+    public ByteBuffer process(ByteBuffer chunk, AudioContext context) {
+        process(chunk);
+        return chunk;
+    }
+
+    // Replaces the frames between position and limit with the mono samples. A frame split across calls
+    // is completed by the next one.
+    public void process(ByteBuffer pcm) {
+        int read = pcm.position();
+        int end = pcm.limit();
+        int write = read;
+        if (partialLength > 0) {
+            int count = Math.min(frameSize - partialLength, end - read);
+            for (int i = 0; i < count; i++) partialFrame[partialLength + i] = pcm.get(read + i);
+            read += count;
+            partialLength += count;
+            if (partialLength == frameSize) {
+                partialLength = 0;
+                reduce(partialView, 0);
+                System.arraycopy(sample, 0, pending, pendingLength, sampleBytes);
+                pendingLength += sampleBytes;
+            }
+            write = flushPending(pcm, write, read);
+        }
+        if (sampleBytes == 2 && pendingLength == 0) {
+            write = process16(pcm, read, end, write);
+            read += (end - read) / frameSize * frameSize;
+        }
+        for (; read + frameSize <= end; read += frameSize) {
+            // Read the whole frame before writing: the output slot can overlap it
+            reduce(pcm, read);
+            if (pendingLength > 0) write = flushPending(pcm, write, read + frameSize);
+            for (int i = 0; i < sampleBytes; i++) pcm.put(write + i, sample[i]);
+            write += sampleBytes;
+        }
+        for (; read < end; read++) {
+            partialFrame[partialLength++] = pcm.get(read);
+        }
+        if (pendingLength > 0) write = flushPending(pcm, write, end);
+        ((Buffer) pcm).limit(write);
+    }
+
+    // Fast path for 16-bit audio, moving whole samples instead of bytes. Returns the new write position.
+    private int process16(ByteBuffer pcm, int read, int end, int write) {
+        boolean swap = (pcm.order() == ByteOrder.BIG_ENDIAN) != bigEndian;
+        if (weights == null) {
+            // A raw copy, so the byte order does not matter
+            for (int from = read + channel * 2; read + frameSize <= end; read += frameSize, from += frameSize) {
+                pcm.putShort(write, pcm.getShort(from));
+                write += 2;
+            }
+            return write;
+        }
+        for (; read + frameSize <= end; read += frameSize) {
+            int acc = 0;
+            for (int c = 0; c < channels; c++) {
+                short sample = pcm.getShort(read + c * 2);
+                acc += (swap ? Short.reverseBytes(sample) : sample) * weights[c];
+            }
+            short value = clamp(acc);
+            pcm.putShort(write, swap ? Short.reverseBytes(value) : value);
+            write += 2;
+        }
+        return write;
+    }
+
+    private void reduce(ByteBuffer src, int offset) {
+        if (weights == null) {
+            int from = offset + channel * sampleBytes;
+            for (int i = 0; i < sampleBytes; i++) sample[i] = src.get(from + i);
+            return;
+        }
+        int value = mixFrame(src, offset);
+        sample[bigEndian ? 0 : 1] = (byte) (value >> 8);
+        sample[bigEndian ? 1 : 0] = (byte) value;
+    }
+
+    // A frame completed by a chunk too short to hold its sample is written once enough input is consumed
+    private int flushPending(ByteBuffer pcm, int write, int consumed) {
+        int count = Math.min(pendingLength, consumed - write);
+        for (int i = 0; i < count; i++) pcm.put(write + i, pending[i]);
+        pendingLength -= count;
+        System.arraycopy(pending, count, pending, 0, pendingLength);
+        return write + count;
+    }
+
+    private int mixFrame(ByteBuffer src, int offset) {
+        int acc = 0;
+        for (int c = 0; c < channels; c++) {
+            int at = offset + c * 2;
+            int sample = bigEndian
+                    ? (short) ((src.get(at) << 8) | (src.get(at + 1) & 0xFF))
+                    : (short) ((src.get(at) & 0xFF) | (src.get(at + 1) << 8));
+            acc += sample * weights[c];
+        }
+        return clamp(acc);
+    }
+
+    private static short clamp(int acc) {
+        acc = (acc + (1 << 14)) >> 15;
+        return (short) (acc > Short.MAX_VALUE ? Short.MAX_VALUE : Math.max(Short.MIN_VALUE, acc));
+    }
+}
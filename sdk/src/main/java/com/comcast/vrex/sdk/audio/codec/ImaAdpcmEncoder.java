@@ -0,0 +1,118 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.comcast.vrex.sdk.audio.codec;
+
+import com.comcast.vrex.sdk.messageModel.send.Codec;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+// IMA ADPCM at 16 kHz: 4 bits per sample, two samples per byte with the first in the low nibble.
+// The predictor carries over between calls, so the output is one continuous stream without block headers.
+public class ImaAdpcmEncoder implements AudioEncoder {
+
+    private static final int[] INDEX_TABLE = {-1, -1, -1, -1, 2, 4, 6, 8};
+
+    private static final int[] STEP_TABLE = {
+            7, 8, 9, 10, 11, 12, 13, 14, 16, 17, 19, 21, 23, 25, 28, 31, 34, 37, 41, 45,
+            50, 55, 60, 66, 73, 80, 88, 97, 107, 118, 130, 143, 157, 173, 190, 209, 230, 253, 279, 307,
+            337, 371, 408, 449, 494, 544, 598, 658, 724, 796, 876, 963, 1060, 1166, 1282, 1411, 1552, 1707, 1878, 2066,
+            2272, 2499, 2749, 3024, 3327, 3660, 4026, 4428, 4871, 5358, 5894, 6484, 7132, 7845, 8630, 9493, 10442, 11487, 12635, 13899,
+            15289, 16818, 18500, 20350, 22385, 24623, 27086, 29794, 32767
+    };
+
+    private int predictor;
+    private int stepIndex;
+    private int lowByte = -1;
+    private int lowNibble = -1;
+
+    @Override
+    public void encode(ByteBuffer pcm) {
+        int read = pcm.position();
+        int end = pcm.limit();
+        int write = read;
+        while (read < end && (lowByte >= 0 || lowNibble >= 0)) {
+            write = acceptByte(pcm, write, pcm.get(read++));
+        }
+        for (; read + 4 <= end; read += 4) {
+            int first = encodeSample((short) ((pcm.get(read) & 0xFF) | (pcm.get(read + 1) << 8)));
+            int second = encodeSample((short) ((pcm.get(read + 2) & 0xFF) | (pcm.get(read + 3) << 8)));
+            pcm.put(write++, (byte) (first | (second << 4)));
+        }
+        while (read < end) {
+            write = acceptByte(pcm, write, pcm.get(read++));
+        }
+        ((Buffer) pcm).limit(write);
+    }
+
+    private int acceptByte(ByteBuffer out, int write, byte b) {
+        if (lowByte < 0) {
+            lowByte = b & 0xFF;
+            return write;
+        }
+        int nibble = encodeSample((short) (lowByte | (b << 8)));
+        lowByte = -1;
+        if (lowNibble < 0) {
+            lowNibble = nibble;
+            return write;
+        }
+        out.put(write, (byte) (lowNibble | (nibble << 4)));
+        lowNibble = -1;
+        return write + 1;
+    }
+
+    private int encodeSample(int sample) {
+        int step = STEP_TABLE[stepIndex];
+        int diff = sample - predictor;
+        int nibble = 0;
+        if (diff < 0) {
+            nibble = 8;
+            diff = -diff;
+        }
+        int delta = step >> 3;
+        if (diff >= step) {
+            nibble |= 4;
+            diff -= step;
+            delta += step;
+        }
+        step >>= 1;
+        if (diff >= step) {
+            nibble |= 2;
+            diff -= step;
+            delta += step;
+        }
+        step >>= 1;
+        if (diff >= step) {
+            nibble |= 1;
+            delta += step;
+        }
+        predictor += (nibble & 8) != 0 ? -delta : delta;
+        if (predictor > Short.MAX_VALUE) predictor = Short.MAX_VALUE;
+        else if (predictor < Short.MIN_VALUE) predictor = Short.MIN_VALUE;
+        stepIndex += INDEX_TABLE[nibble & 7];
+        if (stepIndex < 0) stepIndex = 0;
+        else if (stepIndex > 88) stepIndex = 88;
+        return nibble;
+    }
+
+    @Override
+    public Codec getCodec() {
+        return Codec.ADPCM;
+    }
+}
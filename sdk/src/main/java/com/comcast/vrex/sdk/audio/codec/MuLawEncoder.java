@@ -0,0 +1,104 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.comcast.vrex.sdk.audio.codec;
+
+import com.comcast.vrex.sdk.messageModel.send.Codec;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+// G.711 µ-law at 8 kHz: every pair of 16 kHz samples is low-pass filtered ([1 2 1] / 4) and
+// decimated to one 8-bit sample, so four input bytes become one output byte.
+public class MuLawEncoder implements AudioEncoder {
+
+    private static final int BIAS = 0x84;
+    private static final int CLIP = 32635;
+    private static final byte[] EXPONENTS = new byte[256];
+
+    static {
+        for (int i = 1; i < 256; i++) {
+            EXPONENTS[i] = (byte) (31 - Integer.numberOfLeadingZeros(i));
+        }
+    }
+
+    private int lowByte = -1;
+    private boolean haveEven;
+    private int even;
+    private int previous;
+
+    @Override
+    public void encode(ByteBuffer pcm) {
+        int read = pcm.position();
+        int end = pcm.limit();
+        int write = read;
+        // Finish a pair started by the previous call one byte at a time
+        while (read < end && (lowByte >= 0 || haveEven)) {
+            int sample = nextSample(pcm.get(read++));
+            if (sample != Integer.MIN_VALUE) write = accept(pcm, write, sample);
+        }
+        for (; read + 4 <= end; read += 4) {
+            int first = (short) ((pcm.get(read) & 0xFF) | (pcm.get(read + 1) << 8));
+            int second = (short) ((pcm.get(read + 2) & 0xFF) | (pcm.get(read + 3) << 8));
+            pcm.put(write++, encodeSample((previous + 2 * first + second) >> 2));
+            previous = second;
+        }
+        while (read < end) {
+            int sample = nextSample(pcm.get(read++));
+            if (sample != Integer.MIN_VALUE) write = accept(pcm, write, sample);
+        }
+        ((Buffer) pcm).limit(write);
+    }
+
+    private int nextSample(byte b) {
+        if (lowByte < 0) {
+            lowByte = b & 0xFF;
+            return Integer.MIN_VALUE;
+        }
+        int sample = (short) (lowByte | (b << 8));
+        lowByte = -1;
+        return sample;
+    }
+
+    private int accept(ByteBuffer out, int write, int sample) {
+        if (!haveEven) {
+            even = sample;
+            haveEven = true;
+            return write;
+        }
+        haveEven = false;
+        out.put(write, encodeSample((previous + 2 * even + sample) >> 2));
+        previous = sample;
+        return write + 1;
+    }
+
+    static byte encodeSample(int sample) {
+        int sign = (sample >> 8) & 0x80;
+        if (sign != 0) sample = -sample;
+        if (sample > CLIP) sample = CLIP;
+        sample += BIAS;
+        int exponent = EXPONENTS[(sample >> 7) & 0xFF];
+        int mantissa = (sample >> (exponent + 3)) & 0x0F;
+        return (byte) ~(sign | (exponent << 4) | mantissa);
+    }
+
+    @Override
+    public Codec getCodec() {
+        return Codec.U_LAW;
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.comcast.vrex.sdk.audio.codec;
+
+import com.comcast.vrex.sdk.audio.processing.AudioContext;
+import com.comcast.vrex.sdk.audio.processing.AudioProcessor;
+import org.eclipse.jetty.util.BufferUtil;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+// Streaming conversion of PCM audio to 16 kHz, 16-bit mono little-endian: samples are decoded to float,
+// channels are averaged and the rate is changed by a polyphase windowed-sinc filter. All state lives in
+// buffers allocated up front, and partial frames are carried over between calls.
+public class PcmConverter implements AudioProcessor {
+
+    private static final int TARGET_RATE = 16000;
+    private static final int TAPS_PER_RATIO = 16;
+
+    private final AudioFormat sourceFormat;
+    private final SampleDecoder decoder;
+    private final int channels;
+    private final int sampleBytes;
+    private final int frameSize;
+
+    // Resampling by up / down, with `taps` coefficients per phase; null when the rate is already 16 kHz
+    private final int up;
+    private final int down;
+    private final int taps;
+    private final float[] coefficients;
+    private final float[] history;
+    private int historyPosition;
+    private int phase;
+
+    private final byte[] partialFrame;
+    private final ByteBuffer partialView;
+    private int partialLength;
+
+    public PcmConverter(AudioFormat sourceFormat) {
+        this.sourceFormat = sourceFormat;
+        this.channels = sourceFormat.getChannels();
+        this.sampleBytes = (sourceFormat.getSampleSizeInBits() + 7) / 8;
+        this.frameSize = sampleBytes * channels;
+        this.decoder = decoderFor(sourceFormat);
+        int declaredFrameSize = sourceFormat.getFrameSize();
+        if (channels < 1 || (declaredFrameSize != AudioSystem.NOT_SPECIFIED && declaredFrameSize != frameSize)) {
+            throw new IllegalArgumentException("Unsupported audio format: " + sourceFormat);
+        }
+        int rate = Math.round(sourceFormat.getSampleRate());
+        if (rate <= 0) {
+            throw new IllegalArgumentException("Unsupported sample rate: " + sourceFormat);
+        }
+        int gcd = gcd(rate, TARGET_RATE);
+        this.up = TARGET_RATE / gcd;
+        this.down = rate / gcd;
+        this.partialFrame = new byte[frameSize];
+        this.partialView = ByteBuffer.wrap(partialFrame);
+        if (up == 1 && down == 1) {
+            this.taps = 0;
+            this.coefficients = null;
+            this.history = null;
+        } else {
+            this.taps = TAPS_PER_RATIO * ((down + up - 1) / up);
+            this.coefficients = designFilter(up, down, taps);
+            this.history = new float[taps * 2];
+        }
+    }
+
+    public AudioFormat getSourceFormat() {
+        return sourceFormat;
+    }
+
+    // Upper bound of the output produced for the given number of input bytes
+    public int maxOutputSize(int inputBytes) {
+        long frames = (inputBytes + partialLength) / frameSize;
+        return (int) ((frames * up + down - 1) / down + 1) * 2;
+    }
+
+    // The converted audio may be larger than the source, so it goes into a buffer of its own
+    @Override
+    public ByteBuffer process(ByteBuffer chunk, AudioContext context) {
+        ByteBuffer converted = context.acquire(maxOutputSize(chunk.remaining()));
+        int position = BufferUtil.flipToFill(converted);
+        convert(chunk, converted);
+        BufferUtil.flipToFlush(converted, position);
+        context.release(chunk);
+        return converted;
+    }
+
+    // Consumes everything between src's position and limit and appends the converted audio to dst, which
+    // must have maxOutputSize(src.remaining()) bytes left. Returns the number of bytes written.
+    public int convert(ByteBuffer src, ByteBuffer dst) {
+        int start = dst.position();
+        if (partialLength > 0) {
+            int count = Math.min(frameSize - partialLength, src.remaining());
+            src.get(partialFrame, partialLength, count);
+            partialLength += count;
+            if (partialLength < frameSize) return 0;
+            push(downmix(partialView, 0), dst);
+            partialLength = 0;
+        }
+        int position = src.position();
+        int end = position + src.remaining() / frameSize * frameSize;
+        for (; position < end; position += frameSize) {
+            push(downmix(src, position), dst);
+        }
+        ((Buffer) src).position(end);
+        partialLength = src.remaining();
+        src.get(partialFrame, 0, partialLength);
+        return dst.position() - start;
+    }
+
+    private float downmix(ByteBuffer src, int offset) {
+        float sum = decoder.decode(src, offset);
+        for (int channel = 1; channel < channels; channel++) {
+            sum += decoder.decode(src, offset + channel * sampleBytes);
+        }
+        return channels == 1 ? sum : sum / channels;
+    }
+
+    private void push(float sample, ByteBuffer dst) {
+        if (coefficients == null) {
+            write(sample, dst);
+            return;
+        }
+        history[historyPosition] = sample;
+        history[historyPosition + taps] = sample;
+        // Newest sample first: history[historyPosition + taps - k] holds x[n - k]
+        int newest = historyPosition + taps;
+        for (; phase < up; phase += down) {
+            // Four partial sums break the dependency between additions; taps is a multiple of 16
+            float acc0 = 0, acc1 = 0, acc2 = 0, acc3 = 0;
+            int base = phase * taps;
+            for (int k = 0; k < taps; k += 4) {
+                acc0 += coefficients[base + k] * history[newest - k];
+                acc1 += coefficients[base + k + 1] * history[newest - k - 1];
+                acc2 += coefficients[base + k + 2] * history[newest - k - 2];
+                acc3 += coefficients[base + k + 3] * history[newest - k - 3];
+            }
+            write((acc0 + acc1) + (acc2 + acc3), dst);
+        }
+        phase -= up;
+        if (++historyPosition == taps) historyPosition = 0;
+    }
+
+    private static void write(float sample, ByteBuffer dst) {
+        int value = Math.round(sample);
+        if (value > Short.MAX_VALUE) value = Short.MAX_VALUE;
+        else if (value < Short.MIN_VALUE) value = Short.MIN_VALUE;
+        dst.put((byte) value);
+        dst.put((byte) (value >> 8));
+    }
+
+    // Blackman-windowed sinc low-pass at the lower of the two Nyquist rates, laid out phase by phase.
+    // Coefficients are scaled by `up` to make up for the zeros that upsampling inserts.
+    private static float[] designFilter(int up, int down, int taps) {
+        int length = up * taps;
+        double cutoff = 0.5 / Math.max(up, down) * 0.9;
+        double center = (length - 1) / 2.0;
+        double[] prototype = new double[length];
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            double x = i - center;
+            double sinc = x == 0 ? 2 * cutoff : Math.sin(2 * Math.PI * cutoff * x) / (Math.PI * x);
+            double window = 0.42 - 0.5 * Math.cos(2 * Math.PI * i / (length - 1))
+                    + 0.08 * Math.cos(4 * Math.PI * i / (length - 1));
+            prototype[i] = sinc * window;
+            sum += prototype[i];
+        }
+        float[] coefficients = new float[length];
+        for (int p = 0; p < up; p++) {
+            for (int k = 0; k < taps; k++) {
+                coefficients[p * taps + k] = (float) (prototype[p + k * up] * up / sum);
+            }
+        }
+        return coefficients;
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    // Decodes one sample to the 16-bit range
+    private interface SampleDecoder {
+        float decode(ByteBuffer src, int offset);
+    }
+
+    private static SampleDecoder decoderFor(AudioFormat format) {
+        AudioFormat.Encoding encoding = format.getEncoding();
+        int bits = format.getSampleSizeInBits();
+        boolean bigEndian = format.isBigEndian();
+        if (AudioFormat.Encoding.PCM_FLOAT.equals(encoding) && bits == 32) {
+            return bigEndian
+                    ? (src, offset) -> Float.intBitsToFloat(int32(src, offset, true)) * 32768f
+                    : (src, offset) -> Float.intBitsToFloat(int32(src, offset, false)) * 32768f;
+        }
+        if (AudioFormat.Encoding.PCM_UNSIGNED.equals(encoding) && bits == 8) {
+            return (src, offset) -> ((src.get(offset) & 0xFF) - 128) << 8;
+        }
+        if (AudioFormat.Encoding.PCM_SIGNED.equals(encoding)) {
+            switch (bits) {
+                case 8:
+                    return (src, offset) -> src.get(offset) << 8;
+                case 16:
+                    return bigEndian
+                            ? (src, offset) -> (short) ((src.get(offset) << 8) | (src.get(offset + 1) & 0xFF))
+                            : (src, offset) -> (short) ((src.get(offset) & 0xFF) | (src.get(offset + 1) << 8));
+                case 24:
+                    return bigEndian
+                            ? (src, offset) -> ((src.get(offset) << 16) | ((src.get(offset + 1) & 0xFF) << 8)
+                            | (src.get(offset + 2) & 0xFF)) / 256f
+                            : (src, offset) -> ((src.get(offset + 2) << 16) | ((src.get(offset + 1) & 0xFF) << 8)
+                            | (src.get(offset) & 0xFF)) / 256f;
+                case 32:
+                    return bigEndian
+                            ? (src, offset) -> int32(src, offset, true) / 65536f
+                            : (src, offset) -> int32(src, offset, false) / 65536f;
+                default:
+                    break;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported audio format: " + format);
+    }
+
+    private static int int32(ByteBuffer src, int offset, boolean bigEndian) {
+        int b0 = src.get(offset) & 0xFF;
+        int b1 = src.get(offset + 1) & 0xFF;
+        int b2 = src.get(offset + 2) & 0xFF;
+        int b3 = src.get(offset + 3) & 0xFF;
+        return bigEndian
+                ? (b0 << 24) | (b1 << 16) | (b2 << 8) | b3
+                : (b3 << 24) | (b2 << 16) | (b1 << 8) | b0;
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.audio.processing;
+
+import java.nio.ByteBuffer;
+
+// What a session offers to the stages of its audio pipeline
+public interface AudioContext {
+
+    String getTrx();
+
+    // Direct buffer from the pool shared with the websocket client, empty and in flush mode
+    ByteBuffer acquire(int size);
+
+    void release(ByteBuffer buffer);
+
+    // Sends endOfStream with the given EndOfStream reason once the current chunk is out,
+    // without waiting for the source to run dry
+    void endOfStream(int reason);
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.audio.processing;
+
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Runs each chunk through the stages in order, handing the pooled buffer from one to the next,
+// and keeps per-stage counters of the time spent and the bytes in and out
+@Slf4j
+public class AudioPipeline {
+
+    private final AudioProcessor[] processors;
+    private final StageMetrics[] stages;
+    private final AudioContext context;
+
+    public AudioPipeline(List<AudioProcessor> processors, AudioContext context) {
+        this.processors = processors.toArray(new AudioProcessor[0]);
+        this.stages = new StageMetrics[this.processors.length];
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new StageMetrics(this.processors[i].getName());
+        }
+        this.context = context;
+    }
+
+    // Returns the audio left to send, or null once a stage has consumed all of it
+    public ByteBuffer process(ByteBuffer chunk) {
+        for (int i = 0; i < processors.length && chunk != null; i++) {
+            if (!chunk.hasRemaining()) break;
+            int bytesIn = chunk.remaining();
+            long start = System.nanoTime();
+            chunk = processors[i].process(chunk, context);
+            stages[i].record(bytesIn, chunk != null ? chunk.remaining() : 0, System.nanoTime() - start);
+        }
+        if (chunk != null && !chunk.hasRemaining()) {
+            context.release(chunk);
+            return null;
+        }
+        return chunk;
+    }
+
+    public List<StageMetrics> getStageMetrics() {
+        List<StageMetrics> metrics = new ArrayList<>(stages.length);
+        Collections.addAll(metrics, stages);
+        return Collections.unmodifiableList(metrics);
+    }
+
+    public void close() {
+        for (AudioProcessor processor : processors) {
+            try {
+                processor.close();
+            } catch (RuntimeException e) {
+                log.warn(processor.getName() + " failed to close: " + e.getMessage());
+            }
+        }
+    }
+
+    // Written from the session's executor only, and read from anywhere
+    @Getter
+    @ToString
+    public static class StageMetrics {
+        private final String name;
+        private volatile long chunks;
+        private volatile long nanos;
+        private volatile long bytesIn;
+        private volatile long bytesOut;
+
+        StageMetrics(String name) {
+            this.name = name;
+        }
+
+        private void record(int in, int out, long elapsed) {
+            chunks++;
+            nanos += elapsed;
+            bytesIn += in;
+            bytesOut += out;
+        }
+
+        public long getMicros() {
+            return TimeUnit.NANOSECONDS.toMicros(nanos);
+        }
+    }
+}
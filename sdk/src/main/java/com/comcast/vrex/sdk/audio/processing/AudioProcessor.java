@@ -0,0 +1,41 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.audio.processing;
+
+import java.nio.ByteBuffer;
+
+// One stage of the audio send path. Stages run one chunk at a time on the session's executor and may keep
+// state between calls, so one instance serves exactly one stream.
+public interface AudioProcessor {
+
+    // Takes ownership of a pooled buffer holding the bytes between position and limit, and returns the buffer
+    // for the next stage: the same one when the audio is processed in place, or one acquired from the context,
+    // in which case the input has to be released. Null means the stage kept or released the chunk itself.
+    ByteBuffer process(ByteBuffer chunk, AudioContext context);
+
+    // Identifies the stage in the session metrics
+    default String getName() {
+        return getClass().getSimpleName();
+    }
+
+    // Called once the session is closed
+    default void close() {
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.audio.processing;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+// Drops a fixed number of bytes from the start of the stream, e.g. the audio ahead of the wake-up word
+public class AudioTrimmer implements AudioProcessor {
+
+    private long remaining;
+    private long trimmedBytes;
+
+    public AudioTrimmer(long bytes) {
+        this.remaining = bytes;
+    }
+
+    @Override
+    public ByteBuffer process(ByteBuffer chunk, AudioContext context) {
+        if (remaining > 0) {
+            int skip = (int) Math.min(remaining, chunk.remaining());
+            ((Buffer) chunk).position(chunk.position() + skip);
+            remaining -= skip;
+            trimmedBytes += skip;
+        }
+        return chunk;
+    }
+
+    public long getTrimmedBytes() {
+        return trimmedBytes;
+    }
+}
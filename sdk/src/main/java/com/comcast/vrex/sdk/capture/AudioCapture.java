@@ -0,0 +1,190 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.capture;
+
+import com.comcast.vrex.sdk.config.SpeechConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.util.BufferUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Keeps the exact frames sent for a sample of sessions, so a trx can be replayed when its results are questioned.
+// Sessions copy each frame into a pooled buffer and queue it; a background thread appends the queued frames to a
+// CaptureLog in capture.directory. Frames are skipped rather than queued while capture.queueCapacity bytes are
+// already waiting, so a slow disk never holds up the send path.
+@Slf4j
+public class AudioCapture implements AutoCloseable {
+
+    private static final long CLOSE_TIMEOUT = 5000; //in milliseconds
+
+    private final SpeechConfiguration.Capture config;
+    private final Path directory;
+    private final ByteBufferPool bufferPool;
+    private final CaptureLog captureLog;
+    private final Queue<Entry> entries = new ConcurrentLinkedQueue<>();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final AtomicLong capturedBytes = new AtomicLong();
+    private final AtomicLong skippedFrames = new AtomicLong();
+    private final Thread writer;
+    // Set while the writer is parked or about to park, so offer() only wakes it when there is a need
+    private volatile boolean writerIdle;
+    private volatile boolean closed;
+
+    private AudioCapture(SpeechConfiguration.Capture config, ByteBufferPool bufferPool) throws IOException {
+        this.config = config;
+        this.directory = Paths.get(config.getDirectory());
+        this.bufferPool = bufferPool;
+        this.captureLog = new CaptureLog(directory, config.getSegmentSize(), config.getMaxDiskUsage());
+        this.writer = new Thread(this::writeLoop, "speech-capture");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Capturing sent frames in " + directory.toAbsolutePath());
+    }
+
+    public static AudioCapture open(SpeechConfiguration.Capture config, ByteBufferPool bufferPool) throws IOException {
+        return new AudioCapture(config, bufferPool);
+    }
+
+    // Null when the session is not sampled. The same trx is always sampled the same way.
+    public CaptureTap tap(String trx) {
+        if (closed || !isSampled(trx)) return null;
+        return new CaptureTap(this, trx);
+    }
+
+    boolean isSampled(String trx) {
+        double rate = config.getSampleRate();
+        if (rate >= 1) return true;
+        if (rate <= 0) return false;
+        return (trx.hashCode() & Integer.MAX_VALUE) % 10000 < rate * 10000;
+    }
+
+    // Copies the frame, leaving it as it is
+    void offer(CaptureTap tap, CaptureRecord.Kind kind, ByteBuffer frame) {
+        int length = frame.remaining();
+        if (closed || queuedBytes.addAndGet(length) > config.getQueueCapacity()) {
+            queuedBytes.addAndGet(-length);
+            skippedFrames.incrementAndGet();
+            return;
+        }
+        ByteBuffer payload = bufferPool.acquire(length, frame.isDirect());
+        BufferUtil.clear(payload);
+        BufferUtil.append(payload, frame.duplicate());
+        entries.offer(new Entry(tap, kind, System.currentTimeMillis(), payload));
+        if (writerIdle) LockSupport.unpark(writer);
+        // Closed after the check above, and the writer may already have made its last poll
+        if (closed && !writer.isAlive()) releaseQueued();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getCapturedBytes() {
+        return capturedBytes.get();
+    }
+
+    // Frames not captured because the queue was full, the capture was closed or a write failed
+    public long getSkippedFrames() {
+        return skippedFrames.get();
+    }
+
+    // Writes out what is already queued before returning
+    @Override
+    public void close() throws InterruptedException {
+        if (closed) return;
+        closed = true;
+        LockSupport.unpark(writer);
+        writer.join(CLOSE_TIMEOUT);
+        releaseQueued();
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                Entry entry = entries.poll();
+                if (entry != null) {
+                    write(entry);
+                } else if (closed) {
+                    break;
+                } else {
+                    // Checked again after announcing the park, as an offer in between may have missed the flag
+                    writerIdle = true;
+                    if (entries.isEmpty() && !closed) LockSupport.park(this);
+                    writerIdle = false;
+                }
+            }
+        } finally {
+            try {
+                captureLog.close();
+            } catch (IOException e) {
+                log.error("Unable to close the capture log: " + e.getMessage());
+            }
+        }
+    }
+
+    private void write(Entry entry) {
+        int length = entry.payload.remaining();
+        try {
+            if (captureLog.append(entry.tap.getTrx(), entry.tap.getTrxBytes(), entry.kind, entry.capturedAt, entry.payload)) {
+                capturedBytes.addAndGet(length);
+            } else {
+                skippedFrames.incrementAndGet();
+            }
+        } catch (IOException | RuntimeException e) {
+            skippedFrames.incrementAndGet();
+            log.error("Unable to capture a frame of " + entry.tap.getTrx() + ": " + e.getMessage());
+        } finally {
+            queuedBytes.addAndGet(-length);
+            bufferPool.release(entry.payload);
+        }
+    }
+
+    // Frames the writer will not get to, once it has stopped
+    private void releaseQueued() {
+        Entry entry;
+        while ((entry = entries.poll()) != null) {
+            skippedFrames.incrementAndGet();
+            queuedBytes.addAndGet(-entry.payload.remaining());
+            bufferPool.release(entry.payload);
+        }
+    }
+
+    private static class Entry {
+        private final CaptureTap tap;
+        private final CaptureRecord.Kind kind;
+        private final long capturedAt;
+        private final ByteBuffer payload;
+
+        private Entry(CaptureTap tap, CaptureRecord.Kind kind, long capturedAt, ByteBuffer payload) {
+            this.tap = tap;
+            this.kind = kind;
+            this.capturedAt = capturedAt;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.capture;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Append-only log of captured frames, split into memory-mapped segments of a fixed size. Each segment file holds
+// records of
+//   int length | long capturedAt | byte kind | short trx length | trx | payload
+// where length counts the whole record, and ends at the first record of length 0. The index file next to it lists,
+// for every trx found in the segment, the offset of its first record. Once the files use more than maxDiskUsage,
+// the oldest segments are deleted. Only the capture writer thread uses it.
+@Slf4j
+class CaptureLog implements AutoCloseable {
+
+    static final String SEGMENT_SUFFIX = ".seg";
+    static final String INDEX_SUFFIX = ".idx";
+    static final int HEADER_BYTES = 4 + 8 + 1 + 2;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long maxDiskUsage;
+    // Sequence numbers of the segments on disk, oldest first
+    private final Deque<Long> segments = new ArrayDeque<>();
+    private final Set<String> indexed = new HashSet<>();
+    private long diskUsage;
+
+    private long sequence;
+    private FileChannel segmentChannel;
+    private MappedByteBuffer segment;
+    private FileChannel indexChannel;
+
+    CaptureLog(Path directory, int segmentSize, long maxDiskUsage) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxDiskUsage = maxDiskUsage;
+        Files.createDirectories(directory);
+        for (long existing : listSegments(directory)) {
+            segments.add(existing);
+            diskUsage += sizeOf(existing);
+            sequence = existing + 1;
+        }
+        open();
+    }
+
+    // False when the record can never fit in a segment
+    boolean append(String trx, byte[] trxBytes, CaptureRecord.Kind kind, long capturedAt, ByteBuffer payload) throws IOException {
+        int length = HEADER_BYTES + trxBytes.length + payload.remaining();
+        if (length > segmentSize) return false;
+        if (segment.remaining() < length) roll();
+        int offset = segment.position();
+        segment.putInt(length)
+                .putLong(capturedAt)
+                .put((byte) kind.ordinal())
+                .putShort((short) trxBytes.length)
+                .put(trxBytes)
+                .put(payload);
+        if (indexed.add(trx)) {
+            byte[] line = (trx + '\t' + offset + '\t' + capturedAt + '\n').getBytes(StandardCharsets.UTF_8);
+            indexChannel.write(ByteBuffer.wrap(line));
+            diskUsage += line.length;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        segment.force();
+        segmentChannel.close();
+        indexChannel.close();
+    }
+
+    private void roll() throws IOException {
+        close();
+        sequence++;
+        open();
+    }
+
+    private void open() throws IOException {
+        segmentChannel = FileChannel.open(segmentPath(directory, sequence),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        indexChannel = FileChannel.open(indexPath(directory, sequence),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        indexed.clear();
+        segments.add(sequence);
+        diskUsage += segmentSize;
+        trim();
+    }
+
+    private void trim() {
+        while (diskUsage > maxDiskUsage && segments.size() > 1) {
+            long oldest = segments.poll();
+            try {
+                diskUsage -= sizeOf(oldest);
+                Files.deleteIfExists(segmentPath(directory, oldest));
+                Files.deleteIfExists(indexPath(directory, oldest));
+            } catch (IOException e) {
+                log.error("Unable to delete capture segment " + oldest + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private long sizeOf(long sequence) throws IOException {
+        Path index = indexPath(directory, sequence);
+        return Files.size(segmentPath(directory, sequence)) + (Files.exists(index) ? Files.size(index) : 0);
+    }
+
+    static List<Long> listSegments(Path directory) throws IOException {
+        List<Long> sequences = new ArrayList<>();
+        if (!Files.isDirectory(directory)) return sequences;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    sequences.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        Collections.sort(sequences);
+        return sequences;
+    }
+
+    static Path segmentPath(Path directory, long sequence) {
+        return directory.resolve(String.format("%012d", sequence) + SEGMENT_SUFFIX);
+    }
+
+    static Path indexPath(Path directory, long sequence) {
+        return directory.resolve(String.format("%012d", sequence) + INDEX_SUFFIX);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.capture;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Reads back what a capture directory holds for a trx, in the order it was sent. Segments still being written can be
+// read as well.
+public final class CaptureReader {
+
+    private CaptureReader() {
+    }
+
+    public static List<CaptureRecord> read(Path directory, String trx) throws IOException {
+        List<CaptureRecord> records = new ArrayList<>();
+        for (long sequence : CaptureLog.listSegments(directory)) {
+            int offset = findOffset(CaptureLog.indexPath(directory, sequence), trx);
+            if (offset >= 0) readSegment(CaptureLog.segmentPath(directory, sequence), offset, trx, records);
+        }
+        return records;
+    }
+
+    // The audio bytes sent for a trx, as one stream
+    public static byte[] readAudio(Path directory, String trx) throws IOException {
+        ByteArrayOutputStream audio = new ByteArrayOutputStream();
+        for (CaptureRecord record : read(directory, trx)) {
+            if (record.getKind() == CaptureRecord.Kind.AUDIO) audio.write(record.getPayload());
+        }
+        return audio.toByteArray();
+    }
+
+    private static int findOffset(Path index, String trx) throws IOException {
+        if (!Files.exists(index)) return -1;
+        for (String line : Files.readAllLines(index, StandardCharsets.UTF_8)) {
+            String[] fields = line.split("\t");
+            if (fields.length >= 2 && fields[0].equals(trx)) return Integer.parseInt(fields[1]);
+        }
+        return -1;
+    }
+
+    private static void readSegment(Path path, int offset, String trx, List<CaptureRecord> records) throws IOException {
+        MappedByteBuffer segment;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        byte[] wanted = trx.getBytes(StandardCharsets.UTF_8);
+        segment.position(offset);
+        while (segment.remaining() >= CaptureLog.HEADER_BYTES) {
+            int start = segment.position();
+            int length = segment.getInt();
+            if (length < CaptureLog.HEADER_BYTES || length > segment.remaining() + 4) break;
+            long capturedAt = segment.getLong();
+            CaptureRecord.Kind kind = CaptureRecord.Kind.values()[segment.get()];
+            byte[] trxBytes = new byte[segment.getShort() & 0xffff];
+            segment.get(trxBytes);
+            if (Arrays.equals(trxBytes, wanted)) {
+                byte[] payload = new byte[length - CaptureLog.HEADER_BYTES - trxBytes.length];
+                segment.get(payload);
+                records.add(new CaptureRecord(trx, kind, capturedAt, payload));
+            }
+            segment.position(start + length);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.capture;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.nio.charset.StandardCharsets;
+
+// A frame sent for a captured session, as read back by CaptureReader
+@AllArgsConstructor
+@Getter
+@ToString(exclude = "payload")
+public class CaptureRecord {
+
+    public enum Kind {
+        TEXT,
+        AUDIO
+    }
+
+    private final String trx;
+    private final Kind kind;
+    // Epoch milliseconds at which the frame was handed to the connection
+    private final long capturedAt;
+    private final byte[] payload;
+
+    public String getText() {
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+}
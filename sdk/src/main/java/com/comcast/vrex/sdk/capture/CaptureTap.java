@@ -0,0 +1,55 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.capture;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Copies the frames of one session into the capture queue. It runs on the send path, so it only copies and never blocks.
+public class CaptureTap {
+
+    private final AudioCapture capture;
+    private final String trx;
+    private final byte[] trxBytes;
+
+    CaptureTap(AudioCapture capture, String trx) {
+        this.capture = capture;
+        this.trx = trx;
+        this.trxBytes = trx.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public String getTrx() {
+        return trx;
+    }
+
+    byte[] getTrxBytes() {
+        return trxBytes;
+    }
+
+    // The frame is left as it is
+    public void audio(ByteBuffer frame) {
+        capture.offer(this, CaptureRecord.Kind.AUDIO, frame);
+    }
+
+    // The frame holds the UTF-8 text and is left as it is
+    public void text(ByteBuffer utf8) {
+        capture.offer(this, CaptureRecord.Kind.TEXT, utf8);
+    }
+}
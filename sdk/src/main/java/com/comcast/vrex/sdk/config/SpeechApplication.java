@@ -19,6 +19,7 @@
 package com.comcast.vrex.sdk.config;
 
 import com.comcast.vrex.sdk.auth.SpeechAuthenticator;
+import com.comcast.vrex.sdk.session.SpeechClient;
 import lombok.NonNull;
 
 public class SpeechApplication {
@@ -42,6 +43,10 @@ public class SpeechApplication {
         return configManager;
     }
 
+    public SpeechClient initClient() throws Exception {
+        return SpeechClient.newClient(init());
+    }
+
     public SpeechApplication withSecretsFile(@NonNull String secretsFile) {
         this.secretsFile = secretsFile;
         return this;
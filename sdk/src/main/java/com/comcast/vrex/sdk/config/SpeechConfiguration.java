@@ -18,10 +18,14 @@
 
 package com.comcast.vrex.sdk.config;
 
+import com.comcast.vrex.sdk.messageModel.send.Codec;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @Getter
 @Setter
 @ToString
@@ -30,6 +34,10 @@ public class SpeechConfiguration {
     private Connection connection;
     private Logging logging;
     private Auth auth;
+    private Audio audio = new Audio();
+    private Capture capture = new Capture();
+    // Init payloads by profile name, in the JSON shape of an init payload
+    private Map<String, Map<String, Object>> initTemplates = new LinkedHashMap<>();
 
     private String appId;
     private String deviceId;
@@ -41,6 +49,8 @@ public class SpeechConfiguration {
     @ToString
     public static class Connection {
         private Websocket websocket;
+        private Client client = new Client();
+        private Pool pool = new Pool();
     }
 
     @Getter
@@ -49,6 +59,84 @@ public class SpeechConfiguration {
     public static class Websocket {
         private String url;
         private int version = 1;
+        private long connectTimeout = 3000; //in milliseconds
+        private long listeningTimeout = 3000; //in milliseconds
+    }
+
+    @Getter
+    @Setter
+    @ToString
+    public static class Client {
+        private long drainTimeout = 5000; //in milliseconds
+        private int schedulerThreads = Runtime.getRuntime().availableProcessors();
+        private int writeWindow = 8; //outbound frames in flight per session
+    }
+
+    @Getter
+    @Setter
+    @ToString
+    public static class Pool {
+        private int size = 0; //pre-warmed connections, 0 disables the pool
+        private long idleTimeout = 30000; //in milliseconds
+        private int refillRate = 2; //connections opened per second
+    }
+
+    @Getter
+    @Setter
+    @ToString
+    public static class Audio {
+        private int preRollCapacity = 64 * 1024; //in bytes
+        private int sinkCapacity = 128 * 1024; //in bytes
+        private boolean streamBeforeListening = false;
+        private Vad vad = new Vad();
+        private Framing framing = new Framing();
+        private Degradation degradation = new Degradation();
+    }
+
+    @Getter
+    @Setter
+    @ToString
+    public static class Vad {
+        private boolean enabled = false;
+        private double threshold = -45; //in dBFS
+        private int trailingSilence = 800; //in milliseconds
+        private int leadingPadding = 300; //in milliseconds, kept ahead of the detected speech
+        private boolean trimLeadingSilence = true;
+    }
+
+    @Getter
+    @Setter
+    @ToString
+    public static class Framing {
+        private int duration = 64; //in milliseconds of audio per frame
+        private int maxHold = 100; //in milliseconds a partial frame is held before it is sent
+        private boolean adaptive = false; //resizes frames to the outbound queue depth and write latency
+        private int minDuration = 20; //in milliseconds
+        private int maxDuration = 200; //in milliseconds
+    }
+
+    @Getter
+    @Setter
+    @ToString
+    public static class Degradation {
+        private boolean enabled = false;
+        private int maxQueueDepth = 4; //outbound frames queued or in flight before the uplink counts as congested
+        private long maxWriteLatency = 500; //in milliseconds
+        private Codec codec = Codec.ADPCM; //sent instead of PCM_16_16K when the uplink is congested at session start
+        private double silenceThreshold = -50; //in dBFS, quieter audio may be dropped while congested
+        private long maxDroppedSilence = 2000; //in milliseconds per session
+    }
+
+    @Getter
+    @Setter
+    @ToString
+    public static class Capture {
+        private boolean enabled = false;
+        private String directory = "speech-capture";
+        private double sampleRate = 1.0; //fraction of sessions captured, picked by trx
+        private int queueCapacity = 1024 * 1024; //in bytes waiting for the writer, frames beyond it are not captured
+        private int segmentSize = 16 * 1024 * 1024; //in bytes
+        private long maxDiskUsage = 256L * 1024 * 1024; //in bytes, the oldest segments are deleted first
     }
 
     @Getter
@@ -20,7 +20,9 @@ package com.comcast.vrex.sdk.message;
 
 import com.comcast.vrex.sdk.audio.AudioConfig;
 import com.comcast.vrex.sdk.messageModel.common.LanguageType;
+import com.comcast.vrex.sdk.messageModel.send.ImmutableInitPayload;
 import com.comcast.vrex.sdk.messageModel.send.InitPayload;
+import com.comcast.vrex.sdk.messageModel.send.InternedSet;
 import com.comcast.vrex.sdk.messageModel.send.Roles;
 import com.comcast.vrex.sdk.messageModel.send.Values;
 import com.comcast.vrex.sdk.messageModel.send.VrexMode;
@@ -33,7 +35,7 @@ import lombok.NonNull;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Set;
+import java.util.List;
 
 public class InitPayloadBuilder {
 
@@ -51,12 +53,7 @@ public class InitPayloadBuilder {
     }
 
     private InitPayloadBuilder(InitPayload initPayload, boolean shouldCopy) {
-        if (shouldCopy) {
-            JsonNode jsonNode = objectMapper.valueToTree(initPayload);
-            this.initPayload = objectMapper.convertValue(jsonNode, InitPayload.class);
-        } else {
-            this.initPayload = initPayload;
-        }
+        this.initPayload = shouldCopy ? initPayload.copy() : initPayload;
     }
 
     public static InitPayloadBuilder copyFromExistingPayload(InitPayload initPayload) {
@@ -71,6 +68,11 @@ public class InitPayloadBuilder {
         return new InitPayloadBuilder(initPayload, false);
     }
 
+    // The shared payload stays as it is; the builder works on a copy of it
+    public static InitPayloadBuilder customizeExistingPayload(ImmutableInitPayload initPayload) {
+        return new InitPayloadBuilder(initPayload.toInitPayload(), false);
+    }
+
     public static InitPayloadBuilder fromInitJson(JsonNode jsonNode) {
         return new InitPayloadBuilder(jsonNode);
     }
@@ -81,7 +83,7 @@ public class InitPayloadBuilder {
     }
 
     public InitPayloadBuilder withAddedRole(Roles roles) {
-        initPayload.getRoles().add(roles);
+        initPayload.setRoles(initPayload.getRoles().with(roles));
         return this;
     }
 
@@ -91,17 +93,17 @@ public class InitPayloadBuilder {
     }
 
     public InitPayloadBuilder withAddedCapability(String capability) {
-        initPayload.getCapabilities().add(capability);
+        initPayload.setCapabilities(initPayload.getCapabilities().with(capability));
         return this;
     }
 
     public InitPayloadBuilder withRemovedCapability(String capability) {
-        initPayload.getCapabilities().remove(capability);
+        initPayload.setCapabilities(initPayload.getCapabilities().without(capability));
         return this;
     }
 
     public InitPayloadBuilder withContextCapability() {
-        initPayload.getCapabilities().add("CONTEXT");
+        initPayload.setCapabilities(initPayload.getCapabilities().with("CONTEXT"));
         return this;
     }
 
@@ -141,17 +143,13 @@ public class InitPayloadBuilder {
     }
 
     public InitPayloadBuilder withVrexModes(VrexMode... vrexModes) {
-        Arrays.stream(vrexModes).forEach(vrexMode -> initPayload.getVrexModes().add(vrexMode.name()));
+        Arrays.stream(vrexModes).forEach(vrexMode -> initPayload.setVrexModes(initPayload.getVrexModes().with(vrexMode.name())));
         return this;
     }
 
     public InitPayloadBuilder withExecuteResponse(boolean enabled) {
-        Set<String> vrexFields = initPayload.getVrexFields();
-        if (enabled) {
-            vrexFields.add(EXECUTE_RESPONSE);
-        } else {
-            vrexFields.remove(EXECUTE_RESPONSE);
-        }
+        InternedSet<String> vrexFields = initPayload.getVrexFields();
+        initPayload.setVrexFields(enabled ? vrexFields.with(EXECUTE_RESPONSE) : vrexFields.without(EXECUTE_RESPONSE));
         return this;
     }
 
@@ -160,17 +158,19 @@ public class InitPayloadBuilder {
         return this;
     }
 
-    private void updateId(String key, String val) {
+    private void updateId(List<Values> values, String key, String val) {
         if (val != null) {
-            initPayload.getId().getValues().add(new Values(key, val));
+            values.add(new Values(key, val));
         }
     }
 
+    // Replaces the id rather than its values, as copies of a payload may share it
     public void refreshIds() {
-        initPayload.getId().setValues(new ArrayList<>());
-        updateId("deviceId", initPayload.getDeviceId());
-        updateId("accountId", initPayload.getAccountId());
-        updateId("customerId", initPayload.getCustomerId());
+        List<Values> values = new ArrayList<>();
+        updateId(values, "deviceId", initPayload.getDeviceId());
+        updateId(values, "accountId", initPayload.getAccountId());
+        updateId(values, "customerId", initPayload.getCustomerId());
+        initPayload.setId(initPayload.getId().withValues(values));
     }
 
     public InitPayload buildMessage() {
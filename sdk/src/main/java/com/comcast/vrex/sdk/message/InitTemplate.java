@@ -0,0 +1,237 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.message;
+
+import com.comcast.vrex.sdk.messageModel.common.EventMessage;
+import com.comcast.vrex.sdk.messageModel.common.MessageType;
+import com.comcast.vrex.sdk.messageModel.send.InitMessage;
+import com.comcast.vrex.sdk.messageModel.send.InitPayload;
+import com.comcast.vrex.sdk.messageModel.send.Values;
+import com.comcast.vrex.sdk.util.ObjectMappers;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.util.BufferUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+// An init message for a device profile, serialized once. The fields that change between sessions are slots in the
+// serialized bytes: the trx, the two created timestamps, the id values and the capabilities, which depend on whether
+// the session sends a context message. A session's init frame is the template's bytes with those slots filled in.
+// The payload is copied when the template is made; getPayload() is shared by every session and must not be changed.
+public class InitTemplate {
+
+    private static final ObjectMapper objectMapper = ObjectMappers.defaultMapper();
+    private static final String CONTEXT = "CONTEXT";
+    // Stand-ins for the slots while the template is serialized. Each has to appear exactly once.
+    private static final String TRX_MARKER = "@@init-template-trx@@";
+    private static final String ID_MARKER = "@@init-template-id@@";
+    private static final String CAPABILITY_MARKER = "@@init-template-capability@@";
+    private static final long CREATED_MARKER = Long.MIN_VALUE + 1;
+    private static final long AUDIO_CREATED_MARKER = Long.MIN_VALUE + 2;
+
+    private enum Slot {
+        TRX,
+        CREATED,
+        AUDIO_CREATED,
+        IDS,
+        CAPABILITIES
+    }
+
+    @Getter
+    private final String name;
+    @Getter
+    private final InitPayload payload;
+    private final String deviceId;
+    private final String accountId;
+    private final String customerId;
+    // Serialized bytes between the slots, one more than there are slots
+    private final byte[][] chunks;
+    private final Slot[] slots;
+    private final byte[] capabilities;
+    private final byte[] capabilitiesWithContext;
+    private volatile Ids lastIds;
+
+    private InitTemplate(String name, InitPayload initPayload) {
+        this.name = name;
+        this.payload = InitPayloadBuilder.copyFromExistingPayload(initPayload).buildMessage();
+        this.deviceId = payload.getDeviceId();
+        this.accountId = payload.getAccountId();
+        this.customerId = payload.getCustomerId();
+
+        // In the order a session's own payload would have them
+        this.capabilities = toJson(payload.getCapabilities().without(CONTEXT));
+        this.capabilitiesWithContext = toJson(payload.getCapabilities().with(CONTEXT));
+
+        InitPayload marked = InitPayloadBuilder.copyFromExistingPayload(payload).buildMessage();
+        marked.setCapabilities(Collections.singleton(CAPABILITY_MARKER));
+        marked.setId(marked.getId().withValues(Collections.singletonList(new Values(ID_MARKER, ID_MARKER))));
+        if (marked.getAudio() != null) marked.getAudio().setCreated(AUDIO_CREATED_MARKER);
+        EventMessage message = EventMessage.typed(TRX_MARKER, MessageType.INIT, new InitMessage(marked));
+        message.setCreated(CREATED_MARKER);
+        byte[] serialized = toJson(message);
+
+        List<int[]> found = new ArrayList<>();
+        find(serialized, toJson(TRX_MARKER), Slot.TRX, found);
+        find(serialized, Long.toString(CREATED_MARKER).getBytes(StandardCharsets.US_ASCII), Slot.CREATED, found);
+        if (marked.getAudio() != null) {
+            find(serialized, Long.toString(AUDIO_CREATED_MARKER).getBytes(StandardCharsets.US_ASCII), Slot.AUDIO_CREATED, found);
+        }
+        find(serialized, toJson(marked.getId().getValues()), Slot.IDS, found);
+        find(serialized, toJson(marked.getCapabilities()), Slot.CAPABILITIES, found);
+        found.sort((a, b) -> Integer.compare(a[0], b[0]));
+
+        chunks = new byte[found.size() + 1][];
+        slots = new Slot[found.size()];
+        int position = 0;
+        for (int i = 0; i < found.size(); i++) {
+            int[] slot = found.get(i);
+            chunks[i] = Arrays.copyOfRange(serialized, position, slot[0]);
+            slots[i] = Slot.values()[slot[2]];
+            position = slot[1];
+        }
+        chunks[found.size()] = Arrays.copyOfRange(serialized, position, serialized.length);
+    }
+
+    public static InitTemplate of(String name, InitPayload initPayload) {
+        return new InitTemplate(name, initPayload);
+    }
+
+    public static InitTemplate of(String name, InitPayloadBuilder builder) {
+        return new InitTemplate(name, builder.buildMessage());
+    }
+
+    // Ids of the template win over those passed in, as with a payload that already has them
+    public String resolveDeviceId(String fallback) {
+        return deviceId != null ? deviceId : fallback;
+    }
+
+    public String resolveAccountId(String fallback) {
+        return accountId != null ? accountId : fallback;
+    }
+
+    public String resolveCustomerId(String fallback) {
+        return customerId != null ? customerId : fallback;
+    }
+
+    // The init frame of a session, in a pooled buffer the caller releases
+    public ByteBuffer render(ByteBufferPool bufferPool, String trx, boolean contextCapability,
+                             String deviceId, String accountId, String customerId) {
+        long now = System.currentTimeMillis();
+        byte[] created = Long.toString(now).getBytes(StandardCharsets.US_ASCII);
+        byte[][] values = new byte[Slot.values().length][];
+        values[Slot.TRX.ordinal()] = quote(trx);
+        values[Slot.CREATED.ordinal()] = created;
+        values[Slot.AUDIO_CREATED.ordinal()] = created;
+        values[Slot.IDS.ordinal()] = ids(deviceId, accountId, customerId);
+        values[Slot.CAPABILITIES.ordinal()] = contextCapability ? capabilitiesWithContext : capabilities;
+
+        int length = chunks[slots.length].length;
+        for (int i = 0; i < slots.length; i++) {
+            length += chunks[i].length + values[slots[i].ordinal()].length;
+        }
+        ByteBuffer frame = bufferPool.acquire(length, true);
+        BufferUtil.clearToFill(frame);
+        for (int i = 0; i < slots.length; i++) {
+            frame.put(chunks[i]).put(values[slots[i].ordinal()]);
+        }
+        frame.put(chunks[slots.length]);
+        BufferUtil.flipToFlush(frame, 0);
+        return frame;
+    }
+
+    // Sessions of a device almost always pass the same ids, so the last ones are kept serialized
+    private byte[] ids(String deviceId, String accountId, String customerId) {
+        Ids ids = lastIds;
+        if (ids == null || !ids.matches(deviceId, accountId, customerId)) {
+            List<Values> values = new ArrayList<>();
+            if (deviceId != null) values.add(new Values("deviceId", deviceId));
+            if (accountId != null) values.add(new Values("accountId", accountId));
+            if (customerId != null) values.add(new Values("customerId", customerId));
+            ids = new Ids(deviceId, accountId, customerId, toJson(values));
+            lastIds = ids;
+        }
+        return ids.json;
+    }
+
+    private void find(byte[] serialized, byte[] marker, Slot slot, List<int[]> found) {
+        int at = indexOf(serialized, marker, 0);
+        if (at < 0 || indexOf(serialized, marker, at + 1) >= 0) {
+            throw new IllegalArgumentException("Init template " + name + " cannot be made: its " + slot
+                    + " slot was not found exactly once");
+        }
+        found.add(new int[]{at, at + marker.length, slot.ordinal()});
+    }
+
+    private static int indexOf(byte[] bytes, byte[] marker, int from) {
+        outer:
+        for (int i = from; i <= bytes.length - marker.length; i++) {
+            for (int j = 0; j < marker.length; j++) {
+                if (bytes[i + j] != marker[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static byte[] quote(String value) {
+        byte[] escaped = JsonStringEncoder.getInstance().quoteAsUTF8(value);
+        byte[] quoted = new byte[escaped.length + 2];
+        quoted[0] = '"';
+        System.arraycopy(escaped, 0, quoted, 1, escaped.length);
+        quoted[quoted.length - 1] = '"';
+        return quoted;
+    }
+
+    private static byte[] toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unable to serialize init template", e);
+        }
+    }
+
+    private static class Ids {
+        private final String deviceId;
+        private final String accountId;
+        private final String customerId;
+        private final byte[] json;
+
+        private Ids(String deviceId, String accountId, String customerId, byte[] json) {
+            this.deviceId = deviceId;
+            this.accountId = accountId;
+            this.customerId = customerId;
+            this.json = json;
+        }
+
+        private boolean matches(String deviceId, String accountId, String customerId) {
+            return Objects.equals(this.deviceId, deviceId) && Objects.equals(this.accountId, accountId)
+                    && Objects.equals(this.customerId, customerId);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.message;
+
+import com.comcast.vrex.sdk.config.SpeechConfiguration;
+import com.comcast.vrex.sdk.exception.SpeechConfigException;
+import com.comcast.vrex.sdk.util.ObjectMappers;
+import lombok.NonNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Init templates of a client by name. Those under initTemplates in speech-config.yml are made when the client starts.
+public class InitTemplates {
+
+    private final Map<String, InitTemplate> templates = new ConcurrentHashMap<>();
+
+    public static InitTemplates fromConfiguration(SpeechConfiguration configuration) {
+        InitTemplates initTemplates = new InitTemplates();
+        if (configuration.getInitTemplates() == null) return initTemplates;
+        for (Map.Entry<String, Map<String, Object>> entry : configuration.getInitTemplates().entrySet()) {
+            try {
+                initTemplates.register(entry.getKey(), InitPayloadBuilder.fromInitJson(
+                        ObjectMappers.defaultMapper().valueToTree(entry.getValue())));
+            } catch (IllegalArgumentException e) {
+                throw new SpeechConfigException("Invalid init template " + entry.getKey() + ": " + e.getMessage());
+            }
+        }
+        return initTemplates;
+    }
+
+    public InitTemplate register(@NonNull String name, @NonNull InitPayloadBuilder builder) {
+        InitTemplate template = InitTemplate.of(name, builder);
+        templates.put(name, template);
+        return template;
+    }
+
+    // Null when there is no template of that name
+    public InitTemplate get(String name) {
+        return templates.get(name);
+    }
+}
@@ -19,22 +19,25 @@
 package com.comcast.vrex.sdk.messageModel.common;
 
 
+import com.comcast.vrex.codegen.GenerateJsonCodec;
 import com.comcast.vrex.sdk.util.ObjectMappers;
-import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
 
-@JsonInclude(JsonInclude.Include.NON_NULL)
-@JsonPropertyOrder({
-        "msgType",
-        "trx",
-        "created",
-        "msgPayload"
-})
+import java.io.IOException;
+
+// Written by its own serializer, which takes a typed payload too
+@GenerateJsonCodec(serializer = false)
+@JsonSerialize(using = EventMessage.Serializer.class)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -43,8 +46,13 @@ public class EventMessage {
     private String msgType;
     private String trx;
     private Long created;
+    @Getter(AccessLevel.NONE)
     private JsonNode msgPayload;
-    
+    // Written as msgPayload in place of the tree, without building one
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    private Object payload;
+
     private EventMessage(String trx) {
         this.created = System.currentTimeMillis();
         this.trx = trx;
@@ -77,4 +85,41 @@ public class EventMessage {
         this.msgPayload = ObjectMappers.defaultMapper().convertValue(vrexResponse, JsonNode.class);
     }
 
-}
\ No newline at end of file
+    // The payload is serialized along with the message, in one pass
+    public static EventMessage typed(String trx, MessageType messageType, Object payload) {
+        EventMessage message = new EventMessage(trx, messageType);
+        message.payload = payload;
+        return message;
+    }
+
+    // A typed payload is converted to a tree when it is asked for
+    public JsonNode getMsgPayload() {
+        if (msgPayload == null && payload != null) msgPayload = ObjectMappers.defaultMapper().valueToTree(payload);
+        return msgPayload;
+    }
+
+    // Replaces a typed payload as well
+    public void setMsgPayload(JsonNode msgPayload) {
+        this.msgPayload = msgPayload;
+        this.payload = null;
+    }
+
+    // Writes msgType, trx, created and msgPayload in that order and leaves out nulls
+    public static class Serializer extends StdSerializer<EventMessage> {
+
+        public Serializer() {
+            super(EventMessage.class);
+        }
+
+        @Override
+        public void serialize(EventMessage message, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject();
+            if (message.msgType != null) generator.writeStringField("msgType", message.msgType);
+            if (message.trx != null) generator.writeStringField("trx", message.trx);
+            if (message.created != null) generator.writeNumberField("created", message.created);
+            Object payload = message.payload != null ? message.payload : message.msgPayload;
+            if (payload != null) provider.defaultSerializeField("msgPayload", payload, generator);
+            generator.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.messageModel.common;
+
+import com.comcast.vrex.sdk.util.ObjectMappers;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+// A JSON value kept as its UTF-8 bytes while it is read, and only turned into a tree when it is asked for
+public class RawJson {
+
+    private final byte[] bytes;
+    private volatile JsonNode tree;
+
+    private RawJson(byte[] bytes, JsonNode tree) {
+        this.bytes = bytes;
+        this.tree = tree;
+    }
+
+    public static RawJson of(JsonNode tree) {
+        return tree == null ? null : new RawJson(null, tree);
+    }
+
+    public JsonNode toTree() {
+        JsonNode parsed = tree;
+        if (parsed == null) {
+            try {
+                parsed = ObjectMappers.defaultMapper().readTree(bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to parse raw JSON", e);
+            }
+            tree = parsed;
+        }
+        return parsed;
+    }
+
+    @Override
+    public String toString() {
+        return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : tree.toString();
+    }
+
+    // Copies the value's tokens back out as text, without building nodes
+    public static class Deserializer extends StdDeserializer<RawJson> {
+
+        public Deserializer() {
+            super(RawJson.class);
+        }
+
+        @Override
+        public RawJson deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            ByteArrayBuilder bytes = new ByteArrayBuilder();
+            try (JsonGenerator generator = ObjectMappers.defaultMapper().getFactory().createGenerator(bytes)) {
+                generator.copyCurrentStructure(parser);
+            }
+            return new RawJson(bytes.toByteArray(), null);
+        }
+    }
+}
@@ -18,7 +18,12 @@
 
 package com.comcast.vrex.sdk.messageModel.receive;
 
+import com.comcast.vrex.sdk.messageModel.common.RawJson;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -31,8 +36,22 @@ import java.util.List;
 public class ExecResponse {
 
     private String executeAgent;
-    private JsonNode jsonResponse;
+    // Usually the largest part of a response, so it is only parsed when it is asked for
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @JsonProperty("jsonResponse")
+    @JsonDeserialize(using = RawJson.Deserializer.class)
+    private RawJson jsonResponse;
     private Long responseTime;
     private String errorMessage;
     private List<AgentDispatcherError> errors;
+
+    public JsonNode getJsonResponse() {
+        return jsonResponse == null ? null : jsonResponse.toTree();
+    }
+
+    @JsonIgnore
+    public void setJsonResponse(JsonNode jsonResponse) {
+        this.jsonResponse = RawJson.of(jsonResponse);
+    }
 }
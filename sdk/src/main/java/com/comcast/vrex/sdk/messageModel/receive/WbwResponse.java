@@ -18,11 +18,13 @@
 
 package com.comcast.vrex.sdk.messageModel.receive;
 
+import com.comcast.vrex.codegen.GenerateJsonCodec;
 import com.comcast.vrex.sdk.messageModel.common.MessagePayload;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
 
+@GenerateJsonCodec
 @Getter
 @Setter
 @ToString
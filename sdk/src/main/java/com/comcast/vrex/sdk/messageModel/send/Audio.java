@@ -18,6 +18,8 @@
 
 package com.comcast.vrex.sdk.messageModel.send;
 
+import com.comcast.vrex.codegen.GenerateJsonCodec;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
@@ -27,10 +29,11 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+@GenerateJsonCodec
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @Setter
 @Getter
-@Builder
+@Builder(toBuilder = true)
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
 @NoArgsConstructor
 @EqualsAndHashCode
@@ -43,6 +46,9 @@ public class Audio {
     private Long created = System.currentTimeMillis();
     private AudioModel audioModel;
     private WakeUpWord wuw;
+    // Audio earlier than this many ms ahead of the wake-up word is not sent; null sends everything
+    @JsonIgnore
+    private Integer wuwTrimMargin;
 
     public static Audio emptyInstance() {
         return EMPTY_INSTANCE;
@@ -18,6 +18,7 @@
 
 package com.comcast.vrex.sdk.messageModel.send;
 
+import com.comcast.vrex.codegen.GenerateJsonCodec;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
@@ -29,6 +30,7 @@ import lombok.Setter;
 
 import java.util.List;
 
+@GenerateJsonCodec
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @Setter
 @Getter
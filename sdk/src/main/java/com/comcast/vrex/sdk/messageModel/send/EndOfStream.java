@@ -27,5 +27,10 @@ import lombok.Setter;
 @Setter
 @AllArgsConstructor
 public class EndOfStream implements MessagePayload {
+    // The audio source ran dry or the caller completed it
+    public static final int END_OF_AUDIO = 0;
+    // Client-side voice activity detection heard the trailing silence after the utterance
+    public static final int END_OF_SPEECH = 1;
+
     private int reason;
 }
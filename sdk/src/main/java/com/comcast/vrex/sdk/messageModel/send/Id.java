@@ -20,6 +20,7 @@ package com.comcast.vrex.sdk.messageModel.send;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import java.util.ArrayList;
@@ -27,10 +28,29 @@ import java.util.List;
 
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @Getter
+@NoArgsConstructor
 public class Id {
     private String type = "stb";
     private String subType = "PX013AN";
     private String partner = "comcast";
     @Setter
     private List<Values> values = new ArrayList<>();
+
+    private Id(Id source, List<Values> values) {
+        this.type = source.type;
+        this.subType = source.subType;
+        this.partner = source.partner;
+        this.values = values;
+    }
+
+    // The same id with other values, leaving this one as it is
+    public Id withValues(List<Values> values) {
+        return new Id(this, values);
+    }
+
+    Id copy() {
+        List<Values> copied = new ArrayList<>();
+        if (values != null) values.forEach(v -> copied.add(new Values(v.getType(), v.getValue())));
+        return new Id(this, copied);
+    }
 }
\ No newline at end of file
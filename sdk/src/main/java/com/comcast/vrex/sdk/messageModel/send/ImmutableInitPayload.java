@@ -0,0 +1,165 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.messageModel.send;
+
+import com.comcast.vrex.sdk.messageModel.common.LanguageType;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+// An init payload that never changes, for payloads cached per device and shared between sessions and threads.
+// A derived payload only replaces the fields it changes: roles, capabilities and the other sets are interned,
+// and strings, audio settings and ids are shared with the payload it was derived from.
+public final class ImmutableInitPayload {
+
+    // Never changed in place and never handed out
+    private final InitPayload payload;
+
+    private ImmutableInitPayload(InitPayload payload) {
+        this.payload = payload;
+    }
+
+    public static ImmutableInitPayload copyOf(@NonNull InitPayload initPayload) {
+        return new ImmutableInitPayload(initPayload.copy());
+    }
+
+    // A payload of its own for one session, which copies the audio settings and ids and shares everything else
+    public InitPayload toInitPayload() {
+        return payload.copy();
+    }
+
+    public InternedSet<Roles> getRoles() {
+        return payload.getRoles();
+    }
+
+    public InternedSet<String> getCapabilities() {
+        return payload.getCapabilities();
+    }
+
+    public InternedSet<String> getVrexFields() {
+        return payload.getVrexFields();
+    }
+
+    public InternedSet<String> getVrexModes() {
+        return payload.getVrexModes();
+    }
+
+    public String getLanguage() {
+        return payload.getLanguage();
+    }
+
+    public String getText() {
+        return payload.getText();
+    }
+
+    public boolean isDictationMode() {
+        return payload.isDictationMode();
+    }
+
+    public String getDeviceId() {
+        return payload.getDeviceId();
+    }
+
+    public String getAccountId() {
+        return payload.getAccountId();
+    }
+
+    public String getCustomerId() {
+        return payload.getCustomerId();
+    }
+
+    public ImmutableInitPayload withRoles(Roles... roles) {
+        return derive(p -> p.setRoles(InternedSet.of(InitPayload.ROLES, Arrays.asList(roles))));
+    }
+
+    public ImmutableInitPayload withAddedRole(Roles role) {
+        return derive(p -> p.setRoles(p.getRoles().with(role)));
+    }
+
+    public ImmutableInitPayload withCapabilities(String... capabilities) {
+        return derive(p -> p.setCapabilities(InternedSet.of(InitPayload.CAPABILITIES, Arrays.asList(capabilities))));
+    }
+
+    public ImmutableInitPayload withAddedCapability(String capability) {
+        InternedSet<String> capabilities = payload.getCapabilities().with(capability);
+        return capabilities == payload.getCapabilities() ? this : derive(p -> p.setCapabilities(capabilities));
+    }
+
+    public ImmutableInitPayload withRemovedCapability(String capability) {
+        InternedSet<String> capabilities = payload.getCapabilities().without(capability);
+        return capabilities == payload.getCapabilities() ? this : derive(p -> p.setCapabilities(capabilities));
+    }
+
+    public ImmutableInitPayload withVrexModes(VrexMode... vrexModes) {
+        return derive(p -> Arrays.stream(vrexModes).forEach(mode -> p.setVrexModes(p.getVrexModes().with(mode.name()))));
+    }
+
+    public ImmutableInitPayload withExecuteResponse(boolean enabled) {
+        InternedSet<String> vrexFields = enabled
+                ? payload.getVrexFields().with(InitPayload.EXECUTE_RESPONSE)
+                : payload.getVrexFields().without(InitPayload.EXECUTE_RESPONSE);
+        return vrexFields == payload.getVrexFields() ? this : derive(p -> p.setVrexFields(vrexFields));
+    }
+
+    public ImmutableInitPayload withLanguage(LanguageType language) {
+        return derive(p -> p.setLanguage(language.getLanguageCode()));
+    }
+
+    public ImmutableInitPayload withTimeZone(String timeZone) {
+        return derive(p -> p.setTimeZone(timeZone));
+    }
+
+    public ImmutableInitPayload withDictationModeEnabled(boolean dictationModeEnabled) {
+        return derive(p -> p.setDictationMode(dictationModeEnabled));
+    }
+
+    public ImmutableInitPayload withText(@NonNull String text) {
+        return derive(p -> p.setText(text));
+    }
+
+    // The audio settings are copied, so later changes to audio do not reach this payload
+    public ImmutableInitPayload withAudio(Audio audio) {
+        Audio copied = audio == null ? null : audio.toBuilder().build();
+        return derive(p -> p.setAudio(copied));
+    }
+
+    // Sets the ids and the id values sent for them, as InitPayloadBuilder.refreshIds() does
+    public ImmutableInitPayload withIds(String deviceId, String accountId, String customerId) {
+        return derive(p -> {
+            p.setDeviceId(deviceId);
+            p.setAccountId(accountId);
+            p.setCustomerId(customerId);
+            List<Values> values = new ArrayList<>(3);
+            if (deviceId != null) values.add(new Values("deviceId", deviceId));
+            if (accountId != null) values.add(new Values("accountId", accountId));
+            if (customerId != null) values.add(new Values("customerId", customerId));
+            p.setId((p.getId() == null ? new Id() : p.getId()).withValues(values));
+        });
+    }
+
+    private ImmutableInitPayload derive(Consumer<InitPayload> change) {
+        InitPayload derived = payload.share();
+        change.accept(derived);
+        return new ImmutableInitPayload(derived);
+    }
+}
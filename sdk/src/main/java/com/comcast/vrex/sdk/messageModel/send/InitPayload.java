@@ -18,53 +18,64 @@
 
 package com.comcast.vrex.sdk.messageModel.send;
 
+import com.comcast.vrex.codegen.GenerateJsonCodec;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
-import com.google.common.collect.ImmutableSet;
 import jakarta.validation.constraints.NotEmpty;
 import lombok.AccessLevel;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.Set;
 
+// Roles, capabilities, vrexFields and vrexModes are interned sets, shared by every payload that has the same ones.
+// They are replaced rather than changed.
+@GenerateJsonCodec
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @Getter
 @Setter()
+@NoArgsConstructor
 public class InitPayload {
     @JsonIgnore
     private static String THIS_WEB_SOCKET = "thisWebSocket";
 
+    static final String EXECUTE_RESPONSE = "executeResponse";
+    static final InternedSet.Vocabulary<Roles> ROLES = InternedSet.Vocabulary.of(Roles.values());
+    static final InternedSet.Vocabulary<String> CAPABILITIES = InternedSet.Vocabulary.of("CONTEXT");
+    static final InternedSet.Vocabulary<String> VREX_FIELDS = InternedSet.Vocabulary.of(EXECUTE_RESPONSE);
+    static final InternedSet.Vocabulary<String> VREX_MODES = InternedSet.Vocabulary.of(
+            Arrays.stream(VrexMode.values()).map(VrexMode::name).toArray(String[]::new));
+
     private String aspectRatio;
     private Audio audio;
     private String bouquet;
-    private Set<String> capabilities = Collections.emptySet();
+    private InternedSet<String> capabilities = CAPABILITIES.empty();
     private String clientProfile;
     private String deviceSwVersion;
     private boolean dictationMode;
-    @Setter(AccessLevel.NONE)
+    @Setter(AccessLevel.PACKAGE)
     private String downstreamProtocol = THIS_WEB_SOCKET;
-    @Setter(AccessLevel.NONE)
+    @Setter(AccessLevel.PACKAGE)
     private String experience = "X1";
     private Id id = new Id();
     private String language;
     private String mac;
     private String name;
     @NotEmpty
-    private Set<Roles> roles = ImmutableSet.of();
+    private InternedSet<Roles> roles = ROLES.empty();
     private String stbStatus;
     private String stbSwVersion;
     private String subBouquet;
     private String text;
     private boolean suppressCallRecording;
     private String timeZone;
-    @Setter(AccessLevel.NONE)
+    @Setter(AccessLevel.PACKAGE)
     private String transmissionProtocol = THIS_WEB_SOCKET;
     private String tvStatus;
-    private Set<String> vrexFields = new HashSet<>();
-    private Set<String> vrexModes = new HashSet<>();
+    private InternedSet<String> vrexFields = VREX_FIELDS.empty();
+    private InternedSet<String> vrexModes = VREX_MODES.empty();
 
     @Getter @Setter @JsonIgnore
     private String deviceId;
@@ -73,4 +84,59 @@ public class InitPayload {
     @Getter @Setter @JsonIgnore
     private String customerId;
 
+    // Shares the interned sets and strings. The audio settings and ids are copied, so the copy can be changed freely.
+    private InitPayload(InitPayload source, boolean copyNested) {
+        aspectRatio = source.aspectRatio;
+        audio = copyNested && source.audio != null ? source.audio.toBuilder().build() : source.audio;
+        bouquet = source.bouquet;
+        capabilities = source.capabilities;
+        clientProfile = source.clientProfile;
+        deviceSwVersion = source.deviceSwVersion;
+        dictationMode = source.dictationMode;
+        downstreamProtocol = source.downstreamProtocol;
+        experience = source.experience;
+        id = copyNested && source.id != null ? source.id.copy() : source.id;
+        language = source.language;
+        mac = source.mac;
+        name = source.name;
+        roles = source.roles;
+        stbStatus = source.stbStatus;
+        stbSwVersion = source.stbSwVersion;
+        subBouquet = source.subBouquet;
+        text = source.text;
+        suppressCallRecording = source.suppressCallRecording;
+        timeZone = source.timeZone;
+        transmissionProtocol = source.transmissionProtocol;
+        tvStatus = source.tvStatus;
+        vrexFields = source.vrexFields;
+        vrexModes = source.vrexModes;
+        deviceId = source.deviceId;
+        accountId = source.accountId;
+        customerId = source.customerId;
+    }
+
+    public InitPayload copy() {
+        return new InitPayload(this, true);
+    }
+
+    // Also shares the audio settings and ids, for a payload that is never changed in place
+    InitPayload share() {
+        return new InitPayload(this, false);
+    }
+
+    public void setRoles(Set<Roles> roles) {
+        this.roles = InternedSet.of(ROLES, roles);
+    }
+
+    public void setCapabilities(Set<String> capabilities) {
+        this.capabilities = InternedSet.of(CAPABILITIES, capabilities);
+    }
+
+    public void setVrexFields(Set<String> vrexFields) {
+        this.vrexFields = InternedSet.of(VREX_FIELDS, vrexFields);
+    }
+
+    public void setVrexModes(Set<String> vrexModes) {
+        this.vrexModes = InternedSet.of(VREX_MODES, vrexModes);
+    }
 }
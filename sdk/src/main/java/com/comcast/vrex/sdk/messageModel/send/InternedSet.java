@@ -0,0 +1,217 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.messageModel.send;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// An immutable set over a small vocabulary, such as roles or capabilities, kept as a bitset of the vocabulary's
+// indexes. Each distinct set exists once per vocabulary, so payloads with the same roles or capabilities share one
+// instance. Changes return the interned set that has them.
+public final class InternedSet<E> extends AbstractSet<E> {
+
+    private final Vocabulary<E> vocabulary;
+    private final long[] bits;
+    private final int size;
+    private final int hash;
+
+    private InternedSet(Vocabulary<E> vocabulary, long[] bits) {
+        this.vocabulary = vocabulary;
+        this.bits = bits;
+        int count = 0;
+        int elementHash = 0;
+        for (int i = nextIndex(0); i >= 0; i = nextIndex(i + 1)) {
+            count++;
+            elementHash += vocabulary.get(i).hashCode();
+        }
+        this.size = count;
+        this.hash = elementHash;
+    }
+
+    // Null elements are left out, as is an unknown role read from json
+    public static <E> InternedSet<E> of(Vocabulary<E> vocabulary, Collection<? extends E> elements) {
+        if (elements instanceof InternedSet && ((InternedSet<?>) elements).vocabulary == vocabulary) {
+            @SuppressWarnings("unchecked")
+            InternedSet<E> interned = (InternedSet<E>) elements;
+            return interned;
+        }
+        if (elements == null || elements.isEmpty()) return vocabulary.empty;
+        long[] bits = new long[0];
+        for (E element : elements) {
+            if (element != null) bits = set(bits, vocabulary.register(element));
+        }
+        return vocabulary.intern(bits);
+    }
+
+    public InternedSet<E> with(E element) {
+        if (element == null || contains(element)) return this;
+        return vocabulary.intern(set(bits.clone(), vocabulary.register(element)));
+    }
+
+    public InternedSet<E> without(Object element) {
+        if (!contains(element)) return this;
+        int index = vocabulary.indexOf(element);
+        long[] cleared = bits.clone();
+        cleared[index >>> 6] &= ~(1L << index);
+        return vocabulary.intern(cleared);
+    }
+
+    @Override
+    public boolean contains(Object element) {
+        int index = vocabulary.indexOf(element);
+        return index >= 0 && index >>> 6 < bits.length && (bits[index >>> 6] & 1L << index) != 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // In the order the vocabulary first saw the elements
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private int next = nextIndex(0);
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public E next() {
+                if (next < 0) throw new NoSuchElementException();
+                E element = vocabulary.get(next);
+                next = nextIndex(next + 1);
+                return element;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        // Another set of the same vocabulary is another interned instance, so it holds other elements
+        if (o instanceof InternedSet && ((InternedSet<?>) o).vocabulary == vocabulary) return false;
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    private int nextIndex(int from) {
+        int word = from >>> 6;
+        if (word >= bits.length) return -1;
+        long remaining = bits[word] & -1L << from;
+        while (remaining == 0) {
+            if (++word == bits.length) return -1;
+            remaining = bits[word];
+        }
+        return word * 64 + Long.numberOfTrailingZeros(remaining);
+    }
+
+    private static long[] set(long[] bits, int index) {
+        long[] target = index >>> 6 < bits.length ? bits : Arrays.copyOf(bits, (index >>> 6) + 1);
+        target[index >>> 6] |= 1L << index;
+        return target;
+    }
+
+    // Gives each element an index the first time it is seen and keeps one set per distinct bitset. Nothing is ever
+    // forgotten, which suits enum-like values and not free text.
+    public static final class Vocabulary<E> {
+
+        private final ConcurrentMap<Object, Integer> indexes = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Bits, InternedSet<E>> sets = new ConcurrentHashMap<>();
+        private final InternedSet<E> empty = new InternedSet<>(this, new long[0]);
+        private volatile Object[] elements = new Object[0];
+
+        @SafeVarargs
+        public static <E> Vocabulary<E> of(E... known) {
+            Vocabulary<E> vocabulary = new Vocabulary<>();
+            for (E element : known) {
+                vocabulary.register(element);
+            }
+            return vocabulary;
+        }
+
+        public InternedSet<E> empty() {
+            return empty;
+        }
+
+        private int indexOf(Object element) {
+            Integer index = element == null ? null : indexes.get(element);
+            return index == null ? -1 : index;
+        }
+
+        private int register(E element) {
+            Integer index = indexes.get(element);
+            if (index != null) return index;
+            synchronized (this) {
+                index = indexes.get(element);
+                if (index != null) return index;
+                Object[] grown = Arrays.copyOf(elements, elements.length + 1);
+                grown[elements.length] = element;
+                elements = grown;
+                indexes.put(element, elements.length - 1);
+                return elements.length - 1;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private E get(int index) {
+            return (E) elements[index];
+        }
+
+        private InternedSet<E> intern(long[] bits) {
+            int length = bits.length;
+            while (length > 0 && bits[length - 1] == 0) length--;
+            if (length == 0) return empty;
+            long[] trimmed = length == bits.length ? bits : Arrays.copyOf(bits, length);
+            return sets.computeIfAbsent(new Bits(trimmed), key -> new InternedSet<>(this, key.words));
+        }
+    }
+
+    private static final class Bits {
+        private final long[] words;
+        private final int hash;
+
+        private Bits(long[] words) {
+            this.words = words;
+            this.hash = Arrays.hashCode(words);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Bits && Arrays.equals(words, ((Bits) o).words);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -18,6 +18,7 @@
 
 package com.comcast.vrex.sdk.messageModel.send;
 
+import com.comcast.vrex.codegen.GenerateJsonCodec;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AccessLevel;
@@ -28,6 +29,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+@GenerateJsonCodec
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @Getter
 @Setter
@@ -45,22 +47,58 @@ public class WakeUpWord {
 //    private long startTs;
 //    private long endTs;
 
+    private static final float DEFAULT_SAMPLE_RATE = 16000;
+
     public int getSowuwByMs() {
+        return getSowuwByMs(DEFAULT_SAMPLE_RATE);
+    }
+
+    public int getEowuwByMs() {
+        return getEowuwByMs(DEFAULT_SAMPLE_RATE);
+    }
+
+    public int getSowuwByMs(float sampleRate) {
         if (null == unit || Unit.SAMPLE == unit) {
-            return getTimeByMs(startOfWakeUpWord);
+            return getTimeByMs(startOfWakeUpWord, sampleRate);
         }
         return startOfWakeUpWord;
     }
 
-    public int getEowuwByMs() {
+    public int getEowuwByMs(float sampleRate) {
         if (null == unit || Unit.SAMPLE == unit) {
-            return getTimeByMs(endOfWakeUpWord);
+            return getTimeByMs(endOfWakeUpWord, sampleRate);
         }
         return endOfWakeUpWord;
     }
 
-    private int getTimeByMs(int sampleTime) {
-        // Our audio rate is 16K.
-        return sampleTime >>> 4;
+    // Sample offsets counted at one rate, restated at another. Offsets in ms are returned as they are.
+    public WakeUpWord resample(float fromRate, float toRate) {
+        if ((null != unit && Unit.SAMPLE != unit) || fromRate == toRate) return this;
+        return toBuilder()
+                .withStartOfWakeUpWord(resample(startOfWakeUpWord, fromRate, toRate))
+                .withEndOfWakeUpWord(resample(endOfWakeUpWord, fromRate, toRate))
+                .build();
+    }
+
+    // Offsets for audio that starts trimmedMillis later than the audio they were taken from
+    public WakeUpWord rebase(int trimmedMillis, float sampleRate) {
+        if (trimmedMillis == 0) return this;
+        int delta = (null == unit || Unit.SAMPLE == unit) ? (int) (trimmedMillis * (double) sampleRate / 1000) : trimmedMillis;
+        return toBuilder()
+                .withStartOfWakeUpWord(rebase(startOfWakeUpWord, delta))
+                .withEndOfWakeUpWord(rebase(endOfWakeUpWord, delta))
+                .build();
+    }
+
+    private static Integer rebase(Integer offset, int delta) {
+        return offset == null ? null : Math.max(0, offset - delta);
+    }
+
+    private static Integer resample(Integer sampleTime, float fromRate, float toRate) {
+        return sampleTime == null ? null : (int) (sampleTime * (double) toRate / fromRate);
+    }
+
+    private int getTimeByMs(int sampleTime, float sampleRate) {
+        return (int) (sampleTime * 1000L / sampleRate);
     }
 }
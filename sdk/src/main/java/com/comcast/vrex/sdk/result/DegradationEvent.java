@@ -0,0 +1,50 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.result;
+
+import com.comcast.vrex.sdk.messageModel.send.Codec;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+// Something the session gave up to keep real-time audio flowing over a congested uplink
+@AllArgsConstructor
+@Getter
+@ToString
+public class DegradationEvent {
+
+    public enum Type {
+        // The session sends a cheaper codec than the init payload asked for
+        CODEC_SWITCHED,
+        // Silence was dropped while the uplink was congested
+        SILENCE_DROPPED,
+        // The session may not drop any more silence
+        DROP_LIMIT_REACHED
+    }
+
+    private final Type type;
+    private final String trx;
+    private final int queueDepth;
+    private final long writeLatencyMillis;
+    // Codec on the wire once this event has happened
+    private final Codec codec;
+    // Silence dropped by this event, in milliseconds
+    private final long droppedMillis;
+}
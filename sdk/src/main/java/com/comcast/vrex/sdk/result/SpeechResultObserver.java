@@ -39,4 +39,8 @@ public interface SpeechResultObserver {
     void onFinalResponseFailure(VrexResponse response);
 
     void onError(Throwable t);
+
+    // Reported when audio.degradation is enabled and the session trades audio quality for keeping up
+    default void onDegradation(DegradationEvent event) {
+    }
 }
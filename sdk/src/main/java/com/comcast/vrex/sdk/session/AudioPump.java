@@ -0,0 +1,548 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.comcast.vrex.sdk.session;
+
+import com.comcast.vrex.sdk.audio.AudioFrameReader;
+import com.comcast.vrex.sdk.audio.AudioOption;
+import com.comcast.vrex.sdk.audio.AudioSink;
+import com.comcast.vrex.sdk.audio.VoiceActivityDetector;
+import com.comcast.vrex.sdk.audio.WavFile;
+import com.comcast.vrex.sdk.audio.codec.AudioEncoder;
+import com.comcast.vrex.sdk.audio.codec.BeamSelector;
+import com.comcast.vrex.sdk.audio.codec.PcmConverter;
+import com.comcast.vrex.sdk.audio.processing.AudioContext;
+import com.comcast.vrex.sdk.audio.processing.AudioPipeline;
+import com.comcast.vrex.sdk.audio.processing.AudioProcessor;
+import com.comcast.vrex.sdk.audio.processing.AudioTrimmer;
+import com.comcast.vrex.sdk.config.SpeechConfiguration;
+import com.comcast.vrex.sdk.messageModel.send.Audio;
+import com.comcast.vrex.sdk.messageModel.send.Codec;
+import com.comcast.vrex.sdk.messageModel.send.Detector;
+import com.comcast.vrex.sdk.messageModel.send.EndOfStream;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.util.BufferUtil;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.comcast.vrex.sdk.util.SpeechUtils.LogTemplates.LOG_TEMPLATE;
+
+// Pulls audio from the session's source. Until the session goes live, chunks are parked in the pre-roll buffer.
+// An AudioSink already buffers what the caller pushes, so it is drained straight into pooled buffers instead.
+// Every chunk then goes through the audio pipeline on its way to the sender.
+@Slf4j
+class AudioPump implements AudioContext {
+
+    private static final int BYTES_PER_MILLI = 32;
+
+    private final String trx;
+    private final int chunkSize;
+    private byte[] scratch;
+    private final ByteBufferPool bufferPool;
+    private final ScheduledExecutorService scheduler;
+    private final Executor readers;
+    private final SerialExecutor executor;
+    private final WebSocketSender sender;
+    private final SessionMetrics metrics;
+    private final PreRollBuffer preRoll;
+
+    // Built once, as every chunk schedules some of them
+    private final Runnable stepTask;
+    private final Runnable stepLater;
+    private final Runnable readTask;
+    private final Runnable chunkTask;
+    private final Runnable flushLater;
+    // Arguments of the one read outstanding, handed between the session executor and the reader thread
+    private int readMax;
+    private int readCount;
+
+    // Exactly one of these is set
+    private ChunkSource source;
+    private AudioSink sink;
+    private WavFile wavFile;
+
+    // Set when the source is not 16 kHz 16-bit mono PCM
+    private BeamSelector beamSelector;
+    private PcmConverter converter;
+    // Set when voice activity detection is enabled for 16 kHz PCM
+    private VoiceActivityDetector vad;
+    // Set when the audio has to be encoded for the codec declared in the init payload
+    private AudioEncoder encoder;
+
+    // Set when audio ahead of the wake-up word is dropped
+    private AudioTrimmer trimmer;
+    private AudioPipeline pipeline;
+
+    // Declared in the init payload, unless the degradation policy switched it
+    private Codec codec;
+    private DegradationPolicy policy;
+
+    // Set when the byte rates before and after the pipeline are known, so audio is framed by duration
+    private FrameSizer frameSizer;
+    private FrameCoalescer coalescer;
+    private int sourceFrameSize;
+    private int sourceBytesPerSecond;
+    private int wireBytesPerSecond;
+    private ScheduledFuture<?> holdTimer;
+
+    private int filePosition;
+    // Stream sources are read in whole frames of this size, so a read never asks for less
+    private int readFrameSize = 1;
+    // Audio is known to be 16 kHz PCM once converted
+    private boolean pcm;
+    private int wakeUpWordTrimMillis;
+
+    private boolean live;
+    private boolean capturing;
+    private boolean endOfAudio;
+    // Set when a stage ends the stream ahead of the source
+    private boolean ended;
+    private int endReason;
+
+    // The reader thread blocked on the source, interrupted when the session closes
+    private volatile Thread reader;
+    private volatile boolean closed;
+
+    private AudioPump(String trx, int chunkSize, int preRollCapacity, SpeechClient client,
+                      SerialExecutor executor, WebSocketSender sender, SessionMetrics metrics) {
+        this.trx = trx;
+        this.chunkSize = chunkSize;
+        this.scratch = new byte[chunkSize];
+        this.bufferPool = client.getBufferPool();
+        this.scheduler = client.getScheduler();
+        this.readers = client.getAudioReaders();
+        this.executor = executor;
+        this.sender = sender;
+        this.metrics = metrics;
+        this.preRoll = new PreRollBuffer(preRollCapacity);
+        this.stepTask = this::step;
+        // Hops back to the session executor from a capture thread, a timer or a write completion
+        this.stepLater = () -> executor.execute(stepTask);
+        this.readTask = this::readChunk;
+        this.chunkTask = this::onChunk;
+        Runnable flushTask = this::flushHeld;
+        this.flushLater = () -> executor.execute(flushTask);
+    }
+
+    static AudioPump forOption(String trx, AudioOption audioOption, Audio audio, SpeechConfiguration.Audio config,
+                               boolean vadEnabled, DegradationPolicy policy, SpeechClient client, SerialExecutor executor,
+                               WebSocketSender sender, SessionMetrics metrics) {
+        AudioOption.SelectedOption option = audioOption.getSelectedOption();
+        int preRollCapacity = config.getPreRollCapacity();
+        AudioPump pump;
+        if (option instanceof AudioOption.AudioInputStreamOption) {
+            AudioOption.AudioInputStreamOption streamOption = (AudioOption.AudioInputStreamOption) option;
+            AudioFrameReader reader = new AudioFrameReader(streamOption.getStream());
+            pump = new AudioPump(trx, streamOption.getBufferSize(), preRollCapacity, client, executor, sender, metrics);
+            pump.source = (buffer, max) -> reader.read(buffer, 0, max);
+            pump.readFrameSize = reader.getFrameSize();
+        } else if (option instanceof AudioOption.PipedInputStreamOption) {
+            AudioOption.PipedInputStreamOption streamOption = (AudioOption.PipedInputStreamOption) option;
+            AudioFrameReader reader = new AudioFrameReader(streamOption.getStream(), 1);
+            pump = new AudioPump(trx, streamOption.getBufferSize(), preRollCapacity, client, executor, sender, metrics);
+            pump.source = (buffer, max) -> reader.read(buffer, 0, max);
+        } else if (option instanceof AudioOption.AudioSinkOption) {
+            AudioOption.AudioSinkOption sinkOption = (AudioOption.AudioSinkOption) option;
+            pump = new AudioPump(trx, sinkOption.getBufferSize(), 0, client, executor, sender, metrics);
+            pump.sink = sinkOption.getSink();
+        } else if (option instanceof AudioOption.WavFileOption) {
+            // The file is already on disk, so there is nothing to capture ahead of time
+            AudioOption.WavFileOption fileOption = (AudioOption.WavFileOption) option;
+            int frameSize = fileOption.getWavFile().getFrameSize();
+            int chunkSize = Math.max(frameSize, fileOption.getBufferSize() - fileOption.getBufferSize() % frameSize);
+            pump = new AudioPump(trx, chunkSize, 0, client, executor, sender, metrics);
+            pump.wavFile = fileOption.getWavFile();
+        } else if (option instanceof AudioOption.TextOption) {
+            return null;
+        } else {
+            log.error(LOG_TEMPLATE, trx, "Internal error. Could not resolve audio.");
+            return null;
+        }
+        Codec codec = audio != null ? audio.getEnvoyCodec() : null;
+        Detector detector = audio != null && audio.getWuw() != null ? audio.getWuw().getDetector() : null;
+        pump.resolveFormat(codec, audioOption.getSourceFormat(), detector, vadEnabled ? config.getVad() : null);
+        pump.codec = codec;
+        if (policy != null) pump.applyPolicy(policy, audioOption.getSourceFormat(), client.getUplinkHealth());
+        pump.trimToWakeUpWord(audio);
+        pump.buildPipeline(audioOption.getProcessors());
+        pump.resolveFraming(pump.codec, audioOption.getSourceFormat(), audioOption.getFrameDuration(), config.getFraming());
+        return pump;
+    }
+
+    // Audio of an unknown format is passed through untouched, as callers may already provide encoded audio.
+    // It is taken as 16 kHz PCM only when that is also the declared codec.
+    private void resolveFormat(Codec codec, AudioFormat sourceFormat, Detector detector,
+                               SpeechConfiguration.Vad vadConfig) {
+        if (sourceFormat == null) {
+            if (codec != null && codec != Codec.PCM_16_16K) {
+                if (vadConfig != null) log.warn(LOG_TEMPLATE, trx, "Audio format is unknown. Voice activity detection is disabled.");
+                return;
+            }
+        } else if (!AudioEncoder.isPcm16k(sourceFormat)) {
+            try {
+                AudioFormat format = sourceFormat;
+                // Only the detector's beam goes up the wire, rather than an average of all channels
+                beamSelector = BeamSelector.forDetector(sourceFormat, detector);
+                if (beamSelector != null) format = beamSelector.getOutputFormat();
+                if (!AudioEncoder.isPcm16k(format)) {
+                    converter = new PcmConverter(format);
+                    log.debug(LOG_TEMPLATE, trx, "Converting audio from " + format + " to " + AudioEncoder.PCM_16_16K);
+                }
+            } catch (IllegalArgumentException e) {
+                log.warn(LOG_TEMPLATE, trx, e.getMessage() + ". Sending audio as provided.");
+                return;
+            }
+        }
+        pcm = true;
+        if (vadConfig != null) {
+            vad = new VoiceActivityDetector(vadConfig.getThreshold(), vadConfig.getTrailingSilence(),
+                    vadConfig.getLeadingPadding(), vadConfig.isTrimLeadingSilence());
+        }
+        if (sourceFormat != null) encoder = AudioEncoder.forCodec(codec);
+    }
+
+    // Audio the session converts to 16 kHz PCM itself can be encoded with a cheaper codec, and its silence dropped
+    private void applyPolicy(DegradationPolicy policy, AudioFormat sourceFormat, UplinkHealth uplink) {
+        if (!pcm) return;
+        this.policy = policy;
+        if (sourceFormat == null) return;
+        Codec chosen = policy.chooseCodec(codec, uplink.getWriteLatencyNanos());
+        if (chosen == codec) return;
+        codec = chosen;
+        encoder = AudioEncoder.forCodec(chosen);
+    }
+
+    Codec getCodec() {
+        return codec;
+    }
+
+    // Works on the timeline of the caller's audio, so offsets in samples are read at the source rate
+    private void trimToWakeUpWord(Audio audio) {
+        if (audio == null || audio.getWuwTrimMargin() == null || audio.getWuw() == null
+                || audio.getWuw().getStartOfWakeUpWord() == null) return;
+        if (!pcm) {
+            log.warn(LOG_TEMPLATE, trx, "Audio format is unknown. Audio ahead of the wake-up word is not trimmed.");
+            return;
+        }
+        int startMillis = audio.getWuw().getSowuwByMs(getSourceRate());
+        wakeUpWordTrimMillis = Math.max(0, startMillis - audio.getWuwTrimMargin());
+        if (wakeUpWordTrimMillis > 0) trimmer = new AudioTrimmer((long) wakeUpWordTrimMillis * BYTES_PER_MILLI);
+    }
+
+    // The caller's stages see the audio after conversion and trimming, but before it is cut down to speech
+    private void buildPipeline(List<AudioProcessor> processors) {
+        List<AudioProcessor> stages = new ArrayList<>();
+        if (beamSelector != null) stages.add(beamSelector);
+        if (converter != null) stages.add(converter);
+        if (trimmer != null) stages.add(trimmer);
+        stages.addAll(processors);
+        if (vad != null) stages.add(vad);
+        if (policy != null) stages.add(new SilenceDropper(policy));
+        if (encoder != null) stages.add(encoder);
+        pipeline = new AudioPipeline(stages, this);
+        metrics.setAudioStages(pipeline.getStageMetrics());
+    }
+
+    // Works out the byte rates before and after the pipeline. Audio of an unknown rate is read in chunks of
+    // the option's buffer size and each one is sent as a frame of its own.
+    private void resolveFraming(Codec codec, AudioFormat sourceFormat, Integer frameDuration,
+                                SpeechConfiguration.Framing framing) {
+        if (sourceFormat != null) {
+            sourceFrameSize = sourceFormat.getFrameSize();
+            sourceBytesPerSecond = Math.round(sourceFormat.getFrameRate() * sourceFrameSize);
+        } else {
+            Codec declared = codec != null ? codec : Codec.PCM_16_16K;
+            sourceFrameSize = declared == Codec.PCM_16_16K ? 2 : 1;
+            sourceBytesPerSecond = AudioEncoder.bytesPerSecond(declared);
+        }
+        wireBytesPerSecond = !pcm ? sourceBytesPerSecond
+                : AudioEncoder.bytesPerSecond(encoder != null ? encoder.getCodec() : Codec.PCM_16_16K);
+        if (sourceFrameSize <= 0 || sourceBytesPerSecond <= 0 || wireBytesPerSecond <= 0) return;
+        frameSizer = new FrameSizer(frameDuration != null ? frameDuration : framing.getDuration(), framing);
+        coalescer = new FrameCoalescer(this, this::sendFrame, framing.getMaxHold());
+        metrics.setFrameMillis(frameSizer.getFrameMillis());
+    }
+
+    int getWakeUpWordTrimMillis() {
+        return wakeUpWordTrimMillis;
+    }
+
+    // Rate of the audio handed to the pump; what goes on the wire is always 16 kHz
+    float getSourceRate() {
+        return converter != null ? converter.getSourceFormat().getSampleRate() : AudioEncoder.PCM_16_16K.getSampleRate();
+    }
+
+    // Starts capturing into the pre-roll buffer as soon as the session starts
+    void start() {
+        capturing = preRoll.remaining() >= readFrameSize;
+        if (capturing) executor.execute(stepTask);
+    }
+
+    // Bursts whatever has been captured so far, then keeps streaming straight from the source
+    void goLive() {
+        executor.runOrExecute(() -> {
+            if (live) return;
+            live = true;
+            metrics.setPreRollBytes(preRoll.size() + (sink != null ? sink.available() : 0));
+            log.info(LOG_TEMPLATE, trx, "Streaming audio...");
+            while (!preRoll.isEmpty() && !ended) {
+                int size = readSize();
+                ByteBuffer buffer = acquire(size);
+                int position = BufferUtil.flipToFill(buffer);
+                preRoll.read(buffer, size);
+                BufferUtil.flipToFlush(buffer, position);
+                send(buffer);
+            }
+            if (endOfAudio) {
+                finish();
+            } else if (!capturing) {
+                next();
+            }
+        });
+    }
+
+    // Each chunk is handled in its own task so sessions sharing the scheduler take turns. Only a stream source
+    // blocks, and its reads are handed to the client's reader threads.
+    private void step() {
+        if (ended) return;
+        if (sink != null) {
+            drainSink();
+            return;
+        }
+        if (wavFile != null) {
+            sendFileChunk();
+            return;
+        }
+        int size = readSize();
+        size = Math.max(readFrameSize, size - size % readFrameSize);
+        if (scratch.length < size) scratch = new byte[size];
+        int room = preRoll.remaining() - preRoll.remaining() % readFrameSize;
+        readMax = live ? size : Math.min(size, room);
+        readers.execute(readTask);
+    }
+
+    // Runs on a reader thread, as stream reads block until audio comes in. One read is outstanding at a time,
+    // so the scratch array is not touched by the session executor meanwhile.
+    private void readChunk() {
+        // Published before closed is checked, so close() either sees this thread or the read never starts
+        reader = Thread.currentThread();
+        try {
+            if (closed) return;
+            readCount = source.read(scratch, readMax);
+            executor.execute(chunkTask);
+        } catch (InterruptedIOException e) {
+            if (!closed) log.error(LOG_TEMPLATE, trx, "Sending Audio was interrupted due to unsuccessful message from server.");
+        } catch (IOException e) {
+            log.error(LOG_TEMPLATE, trx, "Error reading audio: " + e.getMessage());
+        } finally {
+            reader = null;
+            Thread.interrupted();
+        }
+    }
+
+    private void onChunk() {
+        int count = readCount;
+        if (ended) return;
+        if (count == -1) {
+            endOfAudio = true;
+            capturing = false;
+            if (live) finish();
+            return;
+        }
+        if (count == 0) {
+            executor.execute(stepTask);
+            return;
+        }
+        if (live) {
+            ByteBuffer buffer = acquire(count);
+            BufferUtil.append(buffer, scratch, 0, count);
+            if (send(buffer)) next();
+            return;
+        }
+        preRoll.write(scratch, 0, count);
+        // Less than a frame of room is as good as full, as the next read could not fit a frame
+        if (preRoll.remaining() < readFrameSize) {
+            capturing = false;
+            log.debug(LOG_TEMPLATE, trx, "Pre-roll buffer is full. Waiting for the server to start listening.");
+            return;
+        }
+        executor.execute(stepTask);
+    }
+
+    private void drainSink() {
+        boolean completed = sink.isCompleted();
+        if (sink.available() == 0) {
+            if (completed) {
+                endOfAudio = true;
+                finish();
+            } else {
+                // Signalled on the caller's capture thread, which must not end up encoding and sending
+                sink.awaitData(stepLater);
+            }
+            return;
+        }
+        int size = readSize();
+        ByteBuffer buffer = acquire(size);
+        int position = BufferUtil.flipToFill(buffer);
+        sink.read(buffer, size);
+        BufferUtil.flipToFlush(buffer, position);
+        if (send(buffer)) next();
+    }
+
+    // The websocket client masks payloads in place, so mapped data is copied off-heap into a pooled buffer
+    private void sendFileChunk() {
+        int length = Math.min(readSize(), wavFile.getDataLength() - filePosition);
+        if (length <= 0) {
+            endOfAudio = true;
+            finish();
+            return;
+        }
+        ByteBuffer buffer = acquire(length);
+        int position = BufferUtil.flipToFill(buffer);
+        buffer.put(wavFile.slice(filePosition, length));
+        BufferUtil.flipToFlush(buffer, position);
+        filePosition += length;
+        if (send(buffer)) next();
+    }
+
+    private boolean send(ByteBuffer buffer) {
+        if (policy != null) policy.update(sender.getQueueDepth(), sender.getWriteLatencyNanos());
+        ByteBuffer processed = pipeline.process(buffer);
+        if (policy != null) metrics.setDroppedSilenceBytes(policy.getDroppedBytes());
+        if (trimmer != null || vad != null) {
+            metrics.setTrimmedBytes((trimmer != null ? trimmer.getTrimmedBytes() : 0)
+                    + (vad != null ? vad.getTrimmedBytes() : 0));
+        }
+        if (ended) return endStream(processed);
+        // Null when only part of a sample has come in so far; it is carried over to the next chunk
+        return processed == null || offer(processed);
+    }
+
+    private boolean offer(ByteBuffer buffer) {
+        if (coalescer == null) return sender.sendAudio(buffer);
+        boolean sending = coalescer.offer(buffer, (int) ((long) wireBytesPerSecond * frameSizer.getFrameMillis() / 1000));
+        scheduleHoldFlush();
+        return sending;
+    }
+
+    // Frame sizes follow the outbound queue as it stands before each frame is added
+    private boolean sendFrame(ByteBuffer frame) {
+        frameSizer.update(sender.getQueueDepth(), sender.getWriteLatencyNanos());
+        metrics.setFrameMillis(frameSizer.getFrameMillis());
+        return sender.sendAudio(frame);
+    }
+
+    // A partial frame goes out after maxHold even when the source has nothing more for now
+    private void scheduleHoldFlush() {
+        if (holdTimer != null || !coalescer.isHolding()) return;
+        holdTimer = scheduler.schedule(flushLater, coalescer.getHoldRemainingNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private void flushHeld() {
+        holdTimer = null;
+        if (endOfAudio || !coalescer.isHolding()) return;
+        if (coalescer.getHoldRemainingNanos() > 0) {
+            scheduleHoldFlush();
+        } else {
+            coalescer.flush();
+        }
+    }
+
+    // Source bytes per step: a frame's worth when framing by duration, the option's buffer size otherwise
+    private int readSize() {
+        if (frameSizer == null) return chunkSize;
+        int bytes = (int) ((long) sourceBytesPerSecond * frameSizer.getFrameMillis() / 1000);
+        return Math.max(sourceFrameSize, bytes - bytes % sourceFrameSize);
+    }
+
+    private void finish() {
+        if (policy != null) policy.finish();
+        if (coalescer != null) coalescer.flush();
+        sender.sendEndOfAudio();
+    }
+
+    // Sends what is left of the audio and ends the stream without waiting for the source to run dry
+    private boolean endStream(ByteBuffer buffer) {
+        endOfAudio = true;
+        capturing = false;
+        if (endReason == EndOfStream.END_OF_SPEECH) log.info(LOG_TEMPLATE, trx, "End of speech detected.");
+        if (policy != null) policy.finish();
+        if (buffer != null && !offer(buffer)) return false;
+        if (coalescer != null && !coalescer.flush()) return false;
+        sender.sendEndOfAudio(endReason);
+        return false;
+    }
+
+    // Waits for the outbound pipeline to make room rather than queueing audio without bound
+    private void next() {
+        if (sender.isWritable()) {
+            executor.execute(stepTask);
+        } else {
+            sender.whenWritable(stepLater);
+        }
+    }
+
+    void close() {
+        closed = true;
+        Thread blocked = reader;
+        if (blocked != null) blocked.interrupt();
+        if (holdTimer != null) holdTimer.cancel(false);
+        if (coalescer != null) coalescer.close();
+        pipeline.close();
+    }
+
+    @Override
+    public String getTrx() {
+        return trx;
+    }
+
+    // Direct buffers from the pool shared with the websocket client, released once the frame is written
+    @Override
+    public ByteBuffer acquire(int size) {
+        ByteBuffer buffer = bufferPool.acquire(size, true);
+        BufferUtil.clear(buffer);
+        return buffer;
+    }
+
+    @Override
+    public void release(ByteBuffer buffer) {
+        bufferPool.release(buffer);
+    }
+
+    @Override
+    public void endOfStream(int reason) {
+        if (ended) return;
+        ended = true;
+        endReason = reason;
+    }
+
+    // Reads up to max bytes into the buffer, returning -1 at the end of the audio
+    private interface ChunkSource {
+        int read(byte[] buffer, int max) throws IOException;
+    }
+}
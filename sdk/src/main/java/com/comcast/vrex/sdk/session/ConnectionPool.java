@@ -0,0 +1,208 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.comcast.vrex.sdk.session;
+
+import com.comcast.vrex.sdk.config.SpeechConfiguration;
+import com.comcast.vrex.sdk.config.SpeechConfigurationManager;
+import com.comcast.vrex.sdk.util.SpeechUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.websocket.api.Session;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+public class ConnectionPool {
+
+    private final SpeechClient speechClient;
+    private final SpeechConfigurationManager configManager;
+    private final SpeechConfiguration.Pool config;
+    private final Connector connector;
+
+    private final Deque<WarmConnection> idle = new ConcurrentLinkedDeque<>();
+    private final Map<WebSocketListener, PendingConnection> connecting = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private ScheduledFuture<?> refillTask;
+    private volatile boolean closed;
+
+    ConnectionPool(SpeechClient speechClient) {
+        this(speechClient, speechClient::connectWarm);
+    }
+
+    ConnectionPool(SpeechClient speechClient, Connector connector) {
+        this.speechClient = speechClient;
+        this.configManager = speechClient.getConfigManager();
+        this.config = configManager.getConfiguration().getConnection().getPool();
+        this.connector = connector;
+    }
+
+    void start() {
+        if (!isEnabled()) return;
+        long period = TimeUnit.SECONDS.toMillis(1) / Math.max(1, config.getRefillRate());
+        refillTask = speechClient.getScheduler().scheduleAtFixedRate(this::refill, 0, Math.max(1, period), TimeUnit.MILLISECONDS);
+        log.info("Pre-warming up to " + config.getSize() + " Speech server connection(s).");
+    }
+
+    public boolean isEnabled() {
+        return config.getSize() > 0;
+    }
+
+    // Returns an open, not yet initialized connection, or null when none is ready
+    WebSocketListener take() {
+        if (!isEnabled()) return null;
+        String token = currentToken();
+        WarmConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            if (isUsable(connection, token)) {
+                hits.incrementAndGet();
+                return connection.listener;
+            }
+            connection.listener.closeWarm("Stale pre-warmed connection");
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    void onOpen(WebSocketListener listener) {
+        // Evicted while connecting, and already replaced; keeping it would grow the pool past its size
+        if (connecting.remove(listener) == null || closed) {
+            listener.closeWarm(closed ? "Speech client is closed" : "Pre-warmed connection opened too late");
+            return;
+        }
+        WarmConnection connection = new WarmConnection(listener, System.nanoTime());
+        idle.offerLast(connection);
+        // close() may have drained the idle connections in between
+        if (closed && idle.remove(connection)) listener.closeWarm("Speech client is closed");
+    }
+
+    void onClose(WebSocketListener listener) {
+        connecting.remove(listener);
+        idle.removeIf(connection -> connection.listener == listener);
+    }
+
+    void refill() {
+        if (closed) return;
+        WebSocketListener listener = null;
+        try {
+            evictStale();
+            if (idle.size() + connecting.size() >= config.getSize()) return;
+            listener = new WebSocketListener(SpeechUtils.generateTrx(), configManager);
+            PendingConnection pending = new PendingConnection(System.nanoTime());
+            connecting.put(listener, pending);
+            pending.future = listener.connectWarm(speechClient, this, connector);
+        } catch (Exception e) {
+            if (listener != null) connecting.remove(listener);
+            log.warn("Unable to pre-warm a Speech server connection: " + e.getMessage());
+        }
+    }
+
+    // Connections opened with a rotated SAT token, idle too long or stuck connecting are replaced
+    private void evictStale() {
+        String token = currentToken();
+        for (Iterator<WarmConnection> it = idle.iterator(); it.hasNext(); ) {
+            WarmConnection connection = it.next();
+            if (!isUsable(connection, token) && idle.remove(connection)) {
+                connection.listener.closeWarm("Stale pre-warmed connection");
+            }
+        }
+        long connectTimeout = TimeUnit.MILLISECONDS.toNanos(
+                configManager.getConfiguration().getConnection().getWebsocket().getConnectTimeout());
+        connecting.entrySet().removeIf(entry -> {
+            if (System.nanoTime() - entry.getValue().startedAt <= connectTimeout) return false;
+            entry.getValue().cancel();
+            return true;
+        });
+    }
+
+    private boolean isUsable(WarmConnection connection, String token) {
+        return connection.listener.isOpen()
+                && Objects.equals(connection.listener.getAuthToken(), token)
+                && System.nanoTime() - connection.openedAt < TimeUnit.MILLISECONDS.toNanos(config.getIdleTimeout());
+    }
+
+    private String currentToken() {
+        if (!configManager.authIsEnabled()) return null;
+        return configManager.getSpeechAuthenticator().getAuthResponse().getToken();
+    }
+
+    void close() {
+        closed = true;
+        if (refillTask != null) refillTask.cancel(false);
+        WarmConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            connection.listener.closeWarm("Speech client is closed");
+        }
+        connecting.values().forEach(PendingConnection::cancel);
+        connecting.clear();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    // Opens a pre-warmed connection, normally through the client's WebSocket client
+    @FunctionalInterface
+    interface Connector {
+        Future<Session> connect(WebSocketListener listener, URI uri) throws IOException;
+    }
+
+    private static class PendingConnection {
+        private final long startedAt;
+        private volatile Future<Session> future;
+
+        private PendingConnection(long startedAt) {
+            this.startedAt = startedAt;
+        }
+
+        // A connection that still opens is closed by onOpen, as it is no longer tracked
+        private void cancel() {
+            Future<Session> connect = future;
+            if (connect != null) connect.cancel(true);
+        }
+    }
+
+    private static class WarmConnection {
+        private final WebSocketListener listener;
+        private final long openedAt;
+
+        private WarmConnection(WebSocketListener listener, long openedAt) {
+            this.listener = listener;
+            this.openedAt = openedAt;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.session;
+
+import com.comcast.vrex.sdk.audio.codec.AudioEncoder;
+import com.comcast.vrex.sdk.config.SpeechConfiguration;
+import com.comcast.vrex.sdk.messageModel.send.Codec;
+import com.comcast.vrex.sdk.result.DegradationEvent;
+import com.comcast.vrex.sdk.result.SpeechResultObserver;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.comcast.vrex.sdk.util.SpeechUtils.LogTemplates.LOG_TEMPLATE;
+
+// Keeps real-time audio flowing over a congested uplink. Before the session starts it picks a cheaper codec
+// if the client's uplink has been slow. While streaming it lets silence be dropped, up to a limit per session,
+// for as long as frames queue up or take too long to write. Every degradation is reported to the observer.
+@Slf4j
+class DegradationPolicy {
+
+    private static final int BYTES_PER_MILLI = 32;
+
+    private final String trx;
+    private final SpeechConfiguration.Degradation config;
+    private final SpeechResultObserver observer;
+    private final long maxWriteLatencyNanos;
+    private final long dropLimitBytes;
+
+    private Codec codec;
+    private boolean congested;
+    private int queueDepth;
+    private long writeLatencyNanos;
+    private long droppedBytes;
+    private long unreportedBytes;
+
+    DegradationPolicy(String trx, SpeechConfiguration.Degradation config, SpeechResultObserver observer) {
+        this.trx = trx;
+        this.config = config;
+        this.observer = observer;
+        this.maxWriteLatencyNanos = TimeUnit.MILLISECONDS.toNanos(config.getMaxWriteLatency());
+        this.dropLimitBytes = Math.max(0, config.getMaxDroppedSilence()) * BYTES_PER_MILLI;
+    }
+
+    // Only 16 kHz PCM that the session encodes itself can be switched
+    Codec chooseCodec(Codec declared, long uplinkLatencyNanos) {
+        codec = declared;
+        if (declared != Codec.PCM_16_16K || AudioEncoder.forCodec(config.getCodec()) == null
+                || uplinkLatencyNanos < maxWriteLatencyNanos) {
+            return declared;
+        }
+        codec = config.getCodec();
+        writeLatencyNanos = uplinkLatencyNanos;
+        report(DegradationEvent.Type.CODEC_SWITCHED, 0);
+        return codec;
+    }
+
+    // Called ahead of each chunk with the frames still queued or in flight and the average write latency.
+    // Congestion clears once both are down to half their limit.
+    void update(int queueDepth, long writeLatencyNanos) {
+        this.queueDepth = queueDepth;
+        this.writeLatencyNanos = writeLatencyNanos;
+        if (!congested) {
+            congested = queueDepth >= config.getMaxQueueDepth() || writeLatencyNanos >= maxWriteLatencyNanos;
+            if (congested) log.debug(LOG_TEMPLATE, trx, "Uplink is congested. Silence may be dropped.");
+        } else if (queueDepth <= config.getMaxQueueDepth() / 2 && writeLatencyNanos < maxWriteLatencyNanos / 2) {
+            congested = false;
+            reportDropped();
+        }
+    }
+
+    // Bytes of 16 kHz PCM that may be dropped right now
+    long getDroppableBytes() {
+        return congested ? dropLimitBytes - droppedBytes : 0;
+    }
+
+    void dropped(int bytes) {
+        droppedBytes += bytes;
+        unreportedBytes += bytes;
+        if (droppedBytes >= dropLimitBytes) {
+            reportDropped();
+            report(DegradationEvent.Type.DROP_LIMIT_REACHED, droppedBytes / BYTES_PER_MILLI);
+        }
+    }
+
+    long getDroppedBytes() {
+        return droppedBytes;
+    }
+
+    double getSilenceThreshold() {
+        return config.getSilenceThreshold();
+    }
+
+    // Reports silence dropped while the uplink is still congested at the end of the audio
+    void finish() {
+        reportDropped();
+    }
+
+    private void reportDropped() {
+        if (unreportedBytes == 0) return;
+        long millis = unreportedBytes / BYTES_PER_MILLI;
+        unreportedBytes = 0;
+        report(DegradationEvent.Type.SILENCE_DROPPED, millis);
+    }
+
+    private void report(DegradationEvent.Type type, long droppedMillis) {
+        DegradationEvent event = new DegradationEvent(type, trx, queueDepth,
+                TimeUnit.NANOSECONDS.toMillis(writeLatencyNanos), codec, droppedMillis);
+        log.warn(LOG_TEMPLATE, trx, "Audio degraded: " + event);
+        if (observer == null) return;
+        try {
+            observer.onDegradation(event);
+        } catch (RuntimeException e) {
+            log.error(LOG_TEMPLATE, trx, "Result observer failed on a degradation event: " + e.getMessage());
+        }
+    }
+}
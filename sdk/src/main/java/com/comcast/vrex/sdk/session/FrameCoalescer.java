@@ -0,0 +1,92 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.session;
+
+import com.comcast.vrex.sdk.audio.processing.AudioContext;
+import org.eclipse.jetty.util.BufferUtil;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+// Gathers the audio leaving the pipeline into frames of about the target size. A chunk that already makes
+// a frame is passed on untouched. Smaller ones are copied into a pooled frame, which goes out once it is
+// full or has been held for maxHold.
+class FrameCoalescer {
+
+    // A frame this close to the target is full, as resampled chunks do not always land on it exactly
+    private static final int TOLERANCE_DIVISOR = 8;
+
+    private final AudioContext context;
+    private final FrameSink sink;
+    private final long maxHoldNanos;
+    private ByteBuffer held;
+    private long heldSince;
+
+    FrameCoalescer(AudioContext context, FrameSink sink, int maxHoldMillis) {
+        this.context = context;
+        this.sink = sink;
+        this.maxHoldNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxHoldMillis));
+    }
+
+    // Takes ownership of the pooled chunk. Returns false once the sink stops taking frames.
+    boolean offer(ByteBuffer chunk, int frameBytes) {
+        int full = frameBytes - frameBytes / TOLERANCE_DIVISOR;
+        if (held == null) {
+            if (chunk.remaining() >= full || maxHoldNanos == 0) return sink.send(chunk);
+            held = context.acquire(frameBytes);
+            heldSince = System.nanoTime();
+        } else if (BufferUtil.space(held) < chunk.remaining()) {
+            if (!flush()) {
+                context.release(chunk);
+                return false;
+            }
+            return offer(chunk, frameBytes);
+        }
+        BufferUtil.append(held, chunk);
+        context.release(chunk);
+        if (held.remaining() >= full || getHoldRemainingNanos() <= 0) return flush();
+        return true;
+    }
+
+    boolean flush() {
+        if (held == null) return true;
+        ByteBuffer frame = held;
+        held = null;
+        return sink.send(frame);
+    }
+
+    boolean isHolding() {
+        return held != null;
+    }
+
+    long getHoldRemainingNanos() {
+        return heldSince + maxHoldNanos - System.nanoTime();
+    }
+
+    void close() {
+        if (held == null) return;
+        context.release(held);
+        held = null;
+    }
+
+    interface FrameSink {
+        boolean send(ByteBuffer frame);
+    }
+}
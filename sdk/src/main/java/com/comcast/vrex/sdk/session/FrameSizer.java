@@ -0,0 +1,64 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.session;
+
+import com.comcast.vrex.sdk.config.SpeechConfiguration;
+
+import java.util.concurrent.TimeUnit;
+
+// Picks the duration of outgoing audio frames. With adaptive framing, frames grow while earlier ones are
+// still queued or take longer to write than they last, as fewer and larger frames cost less per byte.
+// They shrink again while the connection keeps up, as smaller frames reach the server sooner.
+class FrameSizer {
+
+    private static final int GROW_PERCENT = 50;
+    private static final int SHRINK_PERCENT = 10;
+
+    private final boolean adaptive;
+    private final int minMillis;
+    private final int maxMillis;
+    private int frameMillis;
+
+    FrameSizer(int frameMillis, SpeechConfiguration.Framing framing) {
+        this.adaptive = framing.isAdaptive();
+        this.minMillis = Math.max(1, framing.getMinDuration());
+        this.maxMillis = Math.max(minMillis, framing.getMaxDuration());
+        this.frameMillis = adaptive ? Math.min(maxMillis, Math.max(minMillis, frameMillis)) : Math.max(1, frameMillis);
+    }
+
+    int getFrameMillis() {
+        return frameMillis;
+    }
+
+    int getMaxFrameMillis() {
+        return adaptive ? maxMillis : frameMillis;
+    }
+
+    // Called ahead of each frame with the frames still queued or in flight and the average write latency
+    void update(int queueDepth, long writeLatencyNanos) {
+        if (!adaptive) return;
+        long latencyMillis = TimeUnit.NANOSECONDS.toMillis(writeLatencyNanos);
+        if (queueDepth > 1 || latencyMillis > frameMillis) {
+            frameMillis = Math.min(maxMillis, frameMillis + Math.max(1, frameMillis * GROW_PERCENT / 100));
+        } else if (queueDepth == 0 && latencyMillis * 4 < frameMillis) {
+            frameMillis = Math.max(minMillis, frameMillis - Math.max(1, frameMillis * SHRINK_PERCENT / 100));
+        }
+    }
+}
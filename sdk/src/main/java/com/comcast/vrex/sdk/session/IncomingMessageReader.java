@@ -0,0 +1,124 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.session;
+
+import com.comcast.vrex.sdk.message.IncomingMessageType;
+import com.comcast.vrex.sdk.messageModel.receive.VrexResponse;
+import com.comcast.vrex.sdk.messageModel.receive.WbwResponse;
+import com.comcast.vrex.sdk.messageModel.receive.WuwVerificationMessage;
+import com.comcast.vrex.sdk.util.ObjectMappers;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+// Reads server messages with a streaming parser. The server sends msgType first, so msgPayload is bound straight to
+// the type msgType calls for instead of going through a tree of the whole message. A payload found ahead of msgType
+// is held as tokens until the type is known.
+class IncomingMessageReader {
+
+    private static final ObjectMapper objectMapper = ObjectMappers.noFailOnUnknownPropsMapper();
+    private static final Map<IncomingMessageType, ObjectReader> payloadReaders = new EnumMap<>(IncomingMessageType.class);
+
+    static {
+        payloadReaders.put(IncomingMessageType.TRANSCRIPTION, objectMapper.readerFor(WbwResponse.class));
+        payloadReaders.put(IncomingMessageType.VREX_RESPONSE, objectMapper.readerFor(VrexResponse.class));
+        payloadReaders.put(IncomingMessageType.WUW_VERIFICATION, objectMapper.readerFor(WuwVerificationMessage.class));
+        payloadReaders.put(IncomingMessageType.CLOSE_CONNECTION, objectMapper.readerFor(VrexResponse.class));
+    }
+
+    private IncomingMessageReader() {
+    }
+
+    static IncomingMessage read(String text) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(text)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a JSON object");
+            }
+            String msgType = null;
+            IncomingMessageType type = null;
+            Object payload = null;
+            TokenBuffer heldPayload = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("msgType".equals(field)) {
+                    msgType = parser.getValueAsString();
+                    type = IncomingMessageType.reverseLookup(msgType);
+                } else if ("msgPayload".equals(field) && msgType != null) {
+                    payload = readPayload(type, parser);
+                } else if ("msgPayload".equals(field)) {
+                    heldPayload = new TokenBuffer(parser);
+                    heldPayload.copyCurrentStructure(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (heldPayload != null) {
+                try (JsonParser held = heldPayload.asParser(objectMapper)) {
+                    held.nextToken();
+                    payload = readPayload(type, held);
+                }
+            }
+            return new IncomingMessage(msgType, type, payload);
+        }
+    }
+
+    private static Object readPayload(IncomingMessageType type, JsonParser parser) throws IOException {
+        ObjectReader reader = type == null ? null : payloadReaders.get(type);
+        if (reader == null || parser.currentToken() == JsonToken.VALUE_NULL) {
+            parser.skipChildren();
+            return null;
+        }
+        return reader.readValue(parser);
+    }
+
+    static class IncomingMessage {
+        private final String msgType;
+        private final IncomingMessageType type;
+        private final Object payload;
+
+        private IncomingMessage(String msgType, IncomingMessageType type, Object payload) {
+            this.msgType = msgType;
+            this.type = type;
+            this.payload = payload;
+        }
+
+        String getMsgType() {
+            return msgType;
+        }
+
+        // Null for a type this SDK does not handle
+        IncomingMessageType getType() {
+            return type;
+        }
+
+        // Bound to the class the type calls for; null when the message has none
+        <T> T getPayload(Class<T> payloadClass) {
+            return payloadClass.isInstance(payload) ? payloadClass.cast(payload) : null;
+        }
+    }
+}
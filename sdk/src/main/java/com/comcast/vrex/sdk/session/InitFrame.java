@@ -0,0 +1,47 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.session;
+
+import com.comcast.vrex.sdk.message.InitTemplate;
+import org.eclipse.jetty.io.ByteBufferPool;
+
+import java.nio.ByteBuffer;
+
+// What a session fills into the slots of its init template
+class InitFrame {
+
+    private final InitTemplate template;
+    private final boolean contextCapability;
+    private final String deviceId;
+    private final String accountId;
+    private final String customerId;
+
+    InitFrame(InitTemplate template, boolean contextCapability, String deviceId, String accountId, String customerId) {
+        this.template = template;
+        this.contextCapability = contextCapability;
+        this.deviceId = deviceId;
+        this.accountId = accountId;
+        this.customerId = customerId;
+    }
+
+    ByteBuffer render(ByteBufferPool bufferPool, String trx) {
+        return template.render(bufferPool, trx, contextCapability, deviceId, accountId, customerId);
+    }
+}
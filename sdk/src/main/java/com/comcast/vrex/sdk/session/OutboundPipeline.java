@@ -0,0 +1,222 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.comcast.vrex.sdk.session;
+
+import com.comcast.vrex.sdk.capture.CaptureTap;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.common.WebSocketRemoteEndpoint;
+import org.eclipse.jetty.websocket.common.frames.TextFrame;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.comcast.vrex.sdk.util.SpeechUtils.LogTemplates.LOG_TEMPLATE;
+
+// Outbound frames of one session, written in enqueue order by whichever thread wins the drain loop.
+// At most `window` frames are handed to Jetty at a time; producers check isWritable() instead of blocking.
+// Text frames are UTF-8 and, like audio, in buffers from the client's pool that go back to it once written, failed or dropped.
+@Slf4j
+class OutboundPipeline {
+
+    private final String trx;
+    private final int window;
+    private final ByteBufferPool bufferPool;
+    private final SessionMetrics metrics;
+    private final UplinkHealth uplink;
+    private final CaptureTap captureTap;
+    private final Queue<Frame> frames = new ConcurrentLinkedQueue<>();
+    private final Queue<Runnable> writableListeners = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger wip = new AtomicInteger();
+
+    // Moving average of the time audio frames take from being enqueued until Jetty has written them
+    private volatile long writeLatencyNanos;
+
+    private volatile RemoteEndpoint remoteEndpoint;
+    private volatile boolean sealed;
+    private volatile boolean closed;
+
+    OutboundPipeline(String trx, int window, ByteBufferPool bufferPool, SessionMetrics metrics, UplinkHealth uplink,
+                     CaptureTap captureTap) {
+        this.trx = trx;
+        this.window = Math.max(1, window);
+        this.bufferPool = bufferPool;
+        this.metrics = metrics;
+        this.uplink = uplink;
+        this.captureTap = captureTap;
+    }
+
+    void setRemote(RemoteEndpoint remoteEndpoint) {
+        this.remoteEndpoint = remoteEndpoint;
+        drain();
+    }
+
+    // Takes ownership of a pooled buffer holding the UTF-8 text
+    boolean offerText(ByteBuffer pooledUtf8, Runnable onSent) {
+        return offer(new Frame(true, pooledUtf8, onSent), false);
+    }
+
+    // Takes ownership of a buffer acquired from the client's pool
+    boolean offerAudio(ByteBuffer pooledBuffer) {
+        return offer(new Frame(false, pooledBuffer, null), false);
+    }
+
+    // Nothing can be enqueued after the last frame
+    boolean offerLast(ByteBuffer pooledUtf8, Runnable onSent) {
+        return offer(new Frame(true, pooledUtf8, onSent), true);
+    }
+
+    private synchronized boolean offer(Frame frame, boolean last) {
+        if (closed || sealed) {
+            log.debug(LOG_TEMPLATE, trx, "Dropping outbound frame enqueued after the session stopped sending.");
+            frame.release();
+            return false;
+        }
+        sealed = last;
+        if (captureTap != null) frame.capture(captureTap);
+        pending.incrementAndGet();
+        frames.offer(frame);
+        drain();
+        return true;
+    }
+
+    boolean isWritable() {
+        return !closed && pending.get() < window;
+    }
+
+    // Frames enqueued or in flight
+    int getQueueDepth() {
+        return pending.get();
+    }
+
+    long getWriteLatencyNanos() {
+        return writeLatencyNanos;
+    }
+
+    // Runs the callback once the pipeline has room again; right away if it already has
+    void whenWritable(Runnable callback) {
+        writableListeners.offer(callback);
+        if (isWritable()) notifyWritable();
+    }
+
+    // Holds the lock offer() takes, so a racing offer either lands before the drain below or sees closed
+    synchronized void close() {
+        closed = true;
+        writableListeners.clear();
+        Frame frame;
+        while ((frame = frames.poll()) != null) {
+            frame.release();
+        }
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) return;
+        int missed = 1;
+        do {
+            RemoteEndpoint remote = remoteEndpoint;
+            Frame frame;
+            while (remote != null && !closed && inFlight.get() < window && (frame = frames.poll()) != null) {
+                inFlight.incrementAndGet();
+                write(remote, frame);
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void write(RemoteEndpoint remote, Frame frame) {
+        if (!frame.text) {
+            remote.sendBytes(frame.buffer, frame);
+        } else if (remote instanceof WebSocketRemoteEndpoint) {
+            // Jetty's own endpoint takes the encoded text as it is, saving a String
+            ((WebSocketRemoteEndpoint) remote).uncheckedSendFrame(new TextFrame().setPayload(frame.buffer), frame);
+        } else {
+            remote.sendString(BufferUtil.toUTF8String(frame.buffer), frame);
+        }
+    }
+
+    private void completed() {
+        inFlight.decrementAndGet();
+        if (pending.decrementAndGet() < window) notifyWritable();
+        drain();
+    }
+
+    private void notifyWritable() {
+        Runnable callback;
+        while (isWritable() && (callback = writableListeners.poll()) != null) {
+            callback.run();
+        }
+    }
+
+    private class Frame implements WriteCallback {
+        private final boolean text;
+        private final ByteBuffer buffer;
+        private final int length;
+        private final Runnable onSent;
+        private final long enqueuedAt = System.nanoTime();
+
+        private Frame(boolean text, ByteBuffer buffer, Runnable onSent) {
+            this.text = text;
+            this.buffer = buffer;
+            this.length = buffer.remaining();
+            this.onSent = onSent;
+        }
+
+        @Override
+        public void writeSuccess() {
+            if (!text) {
+                metrics.markAudioSent(length);
+                long latency = System.nanoTime() - enqueuedAt;
+                long average = writeLatencyNanos;
+                writeLatencyNanos = average == 0 ? latency : average + (latency - average) / 8;
+                uplink.record(latency);
+            }
+            if (onSent != null) onSent.run();
+            release();
+            completed();
+        }
+
+        @Override
+        public void writeFailed(Throwable t) {
+            log.error(LOG_TEMPLATE, trx, "Error sending outbound frame: " + t.getMessage());
+            release();
+            close();
+            completed();
+        }
+
+        // Copies the frame before it is written, while its buffer still belongs to the pipeline
+        private void capture(CaptureTap tap) {
+            if (text) {
+                tap.text(buffer);
+            } else {
+                tap.audio(buffer);
+            }
+        }
+
+        private void release() {
+            bufferPool.release(buffer);
+        }
+    }
+}
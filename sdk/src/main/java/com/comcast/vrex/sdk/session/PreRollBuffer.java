@@ -0,0 +1,67 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.comcast.vrex.sdk.session;
+
+import java.nio.ByteBuffer;
+
+// Single-consumer ring of audio captured before the server is ready for it. Only touched from the session executor.
+class PreRollBuffer {
+
+    private final byte[] ring;
+    private int head;
+    private int size;
+
+    PreRollBuffer(int capacity) {
+        this.ring = new byte[Math.max(0, capacity)];
+    }
+
+    int remaining() {
+        return ring.length - size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int write(byte[] src, int offset, int length) {
+        int count = Math.min(length, remaining());
+        int tail = (head + size) % Math.max(1, ring.length);
+        int first = Math.min(count, ring.length - tail);
+        System.arraycopy(src, offset, ring, tail, first);
+        System.arraycopy(src, offset + first, ring, 0, count - first);
+        size += count;
+        return count;
+    }
+
+    // Moves up to length bytes into a buffer in fill mode
+    int read(ByteBuffer dst, int length) {
+        int count = Math.min(Math.min(length, dst.remaining()), size);
+        if (count == 0) return 0;
+        int first = Math.min(count, ring.length - head);
+        dst.put(ring, head, first);
+        dst.put(ring, 0, count - first);
+        head = (head + count) % ring.length;
+        size -= count;
+        return count;
+    }
+}
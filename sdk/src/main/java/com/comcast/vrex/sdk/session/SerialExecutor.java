@@ -0,0 +1,124 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.comcast.vrex.sdk.session;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Slf4j
+public class SerialExecutor implements Executor {
+
+    // Tasks run per turn on a worker, so a busy session yields to others sharing the pool
+    static final int MAX_TASKS_PER_TURN = 16;
+
+    private final Executor delegate;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile boolean shutdown;
+    private Thread runner;
+
+    public SerialExecutor(Executor delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (shutdown) return;
+        tasks.offer(task);
+        schedule();
+    }
+
+    // Runs the task on the calling thread when nothing is queued, saving a hand-off to the shared pool
+    public void runOrExecute(Runnable task) {
+        if (shutdown) return;
+        if (tasks.isEmpty() && scheduled.compareAndSet(false, true)) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.error("Unhandled error in session task", e);
+            } finally {
+                scheduled.set(false);
+                schedule();
+            }
+        } else {
+            execute(task);
+        }
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        tasks.clear();
+    }
+
+    // Also interrupts the task being run, but only while it is one of this executor's tasks
+    public void shutdownNow() {
+        shutdown();
+        synchronized (this) {
+            if (runner != null) runner.interrupt();
+        }
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    private void schedule() {
+        if (!tasks.isEmpty() && scheduled.compareAndSet(false, true)) {
+            try {
+                delegate.execute(this::runTasks);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+                shutdown();
+                log.error("Session executor rejected by the shared scheduler: " + e.getMessage());
+            }
+        }
+    }
+
+    private void runTasks() {
+        synchronized (this) {
+            runner = Thread.currentThread();
+        }
+        try {
+            Runnable task;
+            for (int i = 0; i < MAX_TASKS_PER_TURN && !shutdown && (task = tasks.poll()) != null; i++) {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    log.error("Unhandled error in session task", e);
+                }
+            }
+        } finally {
+            synchronized (this) {
+                runner = null;
+                Thread.interrupted();
+            }
+            scheduled.set(false);
+            if (shutdown) {
+                tasks.clear();
+            } else {
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.comcast.vrex.sdk.session;
+
+import com.comcast.vrex.sdk.audio.processing.AudioPipeline;
+import lombok.ToString;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@ToString
+public class SessionMetrics {
+
+    private volatile long startedAt;
+    private volatile long openedAt;
+    private volatile long initSentAt;
+    private volatile long listeningAt;
+    private volatile long firstAudioAt;
+    private volatile long endOfStreamAt;
+    private volatile long closedAt;
+    private volatile int preRollBytes;
+    private volatile int endOfStreamReason = -1;
+    private volatile long trimmedBytes;
+    private volatile int frameMillis;
+    private volatile long droppedSilenceBytes;
+    private volatile List<AudioPipeline.StageMetrics> audioStages = Collections.emptyList();
+    private final AtomicLong audioBytesSent = new AtomicLong();
+
+    void markStarted() {
+        startedAt = System.nanoTime();
+    }
+
+    void markOpened() {
+        openedAt = System.nanoTime();
+    }
+
+    void markInitSent() {
+        initSentAt = System.nanoTime();
+    }
+
+    void markListening() {
+        listeningAt = System.nanoTime();
+    }
+
+    void markAudioSent(int bytes) {
+        if (audioBytesSent.getAndAdd(bytes) == 0) firstAudioAt = System.nanoTime();
+    }
+
+    void markEndOfStream(int reason) {
+        endOfStreamAt = System.nanoTime();
+        endOfStreamReason = reason;
+    }
+
+    void markClosed() {
+        closedAt = System.nanoTime();
+    }
+
+    void setPreRollBytes(int preRollBytes) {
+        this.preRollBytes = preRollBytes;
+    }
+
+    void setTrimmedBytes(long trimmedBytes) {
+        this.trimmedBytes = trimmedBytes;
+    }
+
+    void setFrameMillis(int frameMillis) {
+        this.frameMillis = frameMillis;
+    }
+
+    void setDroppedSilenceBytes(long droppedSilenceBytes) {
+        this.droppedSilenceBytes = droppedSilenceBytes;
+    }
+
+    void setAudioStages(List<AudioPipeline.StageMetrics> audioStages) {
+        this.audioStages = audioStages;
+    }
+
+    public long getConnectMillis() {
+        return elapsedMillis(startedAt, openedAt);
+    }
+
+    public long getInitSentMillis() {
+        return elapsedMillis(startedAt, initSentAt);
+    }
+
+    public long getListeningMillis() {
+        return elapsedMillis(startedAt, listeningAt);
+    }
+
+    public long getFirstAudioMillis() {
+        return elapsedMillis(startedAt, firstAudioAt);
+    }
+
+    public long getEndOfStreamMillis() {
+        return elapsedMillis(startedAt, endOfStreamAt);
+    }
+
+    public long getSessionMillis() {
+        return elapsedMillis(startedAt, closedAt);
+    }
+
+    public int getPreRollBytes() {
+        return preRollBytes;
+    }
+
+    public long getAudioBytesSent() {
+        return audioBytesSent.get();
+    }
+
+    // One of the EndOfStream reasons, -1 until endOfStream is sent
+    public int getEndOfStreamReason() {
+        return endOfStreamReason;
+    }
+
+    // Leading silence dropped by voice activity detection, in bytes of 16 kHz PCM
+    public long getTrimmedBytes() {
+        return trimmedBytes;
+    }
+
+    // Duration of the audio frames being sent, 0 when the audio is not framed by duration
+    public int getFrameMillis() {
+        return frameMillis;
+    }
+
+    // Silence dropped over a congested uplink, in bytes of 16 kHz PCM
+    public long getDroppedSilenceBytes() {
+        return droppedSilenceBytes;
+    }
+
+    // Time spent and bytes in and out of each stage of the audio pipeline, in the order they run
+    public List<AudioPipeline.StageMetrics> getAudioStages() {
+        return audioStages;
+    }
+
+    // -1 until both events have happened
+    private static long elapsedMillis(long from, long to) {
+        if (from == 0 || to == 0) return -1;
+        return TimeUnit.NANOSECONDS.toMillis(to - from);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.comcast.vrex.sdk.session;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// transition() walks CONNECTING -> OPEN -> INIT_SENT -> LISTENING -> STREAMING; closing() and close() leave any state.
+// Leaving a state cancels its deadline, so a finished session leaves nothing on the shared scheduler.
+class SessionStateMachine {
+
+    private static final Map<SessionState, EnumSet<SessionState>> TRANSITIONS = new EnumMap<>(SessionState.class);
+
+    static {
+        TRANSITIONS.put(SessionState.CONNECTING, EnumSet.of(SessionState.OPEN));
+        TRANSITIONS.put(SessionState.OPEN, EnumSet.of(SessionState.INIT_SENT));
+        TRANSITIONS.put(SessionState.INIT_SENT, EnumSet.of(SessionState.LISTENING));
+        TRANSITIONS.put(SessionState.LISTENING, EnumSet.of(SessionState.STREAMING));
+        TRANSITIONS.put(SessionState.STREAMING, EnumSet.noneOf(SessionState.class));
+        TRANSITIONS.put(SessionState.CLOSING, EnumSet.noneOf(SessionState.class));
+        TRANSITIONS.put(SessionState.CLOSED, EnumSet.noneOf(SessionState.class));
+    }
+
+    private final AtomicReference<SessionState> state = new AtomicReference<>(SessionState.CONNECTING);
+    private final Map<SessionState, ScheduledFuture<?>> deadlines = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    SessionStateMachine(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    SessionState get() {
+        return state.get();
+    }
+
+    boolean is(SessionState expected) {
+        return state.get() == expected;
+    }
+
+    static boolean isLegal(SessionState from, SessionState to) {
+        return TRANSITIONS.get(from).contains(to);
+    }
+
+    // False when the session has already moved on; an edge missing from the table is a bug in the caller
+    boolean transition(SessionState from, SessionState to) {
+        if (!isLegal(from, to)) {
+            throw new IllegalStateException("Illegal session state transition " + from + " -> " + to);
+        }
+        if (!state.compareAndSet(from, to)) return false;
+        cancelDeadline(from);
+        return true;
+    }
+
+    boolean closing() {
+        SessionState current;
+        do {
+            current = state.get();
+            if (current == SessionState.CLOSING || current == SessionState.CLOSED) return false;
+        } while (!state.compareAndSet(current, SessionState.CLOSING));
+        cancelDeadline(current);
+        return true;
+    }
+
+    SessionState close() {
+        SessionState previous = state.getAndSet(SessionState.CLOSED);
+        deadlines.keySet().forEach(this::cancelDeadline);
+        return previous;
+    }
+
+    // Runs onExpired if the session is still in the given state once the deadline passes
+    void deadline(SessionState expected, long timeoutMs, Runnable onExpired) {
+        if (timeoutMs <= 0 || state.get() != expected) return;
+        ScheduledFuture<?> future = scheduler.schedule(() -> {
+            if (state.get() == expected) onExpired.run();
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> replaced = deadlines.put(expected, future);
+        if (replaced != null) replaced.cancel(false);
+        // The state may have been left while the deadline was being scheduled
+        if (state.get() != expected) cancelDeadline(expected);
+    }
+
+    private void cancelDeadline(SessionState left) {
+        ScheduledFuture<?> future = deadlines.remove(left);
+        if (future != null) future.cancel(false);
+    }
+}
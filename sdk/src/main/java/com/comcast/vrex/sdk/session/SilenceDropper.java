@@ -0,0 +1,83 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.session;
+
+import com.comcast.vrex.sdk.audio.processing.AudioContext;
+import com.comcast.vrex.sdk.audio.processing.AudioProcessor;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+// Drops 10 ms frames of 16 kHz PCM quieter than the threshold while the degradation policy allows it,
+// compacting the chunk in place. Nothing is measured while the uplink keeps up.
+class SilenceDropper implements AudioProcessor {
+
+    private static final int FRAME_BYTES = 320;
+    private static final int FRAME_SAMPLES = FRAME_BYTES / 2;
+
+    private final DegradationPolicy policy;
+    // Sum of squared samples over a frame at the threshold
+    private final double thresholdEnergy;
+    private final byte[] frame = new byte[FRAME_BYTES];
+
+    SilenceDropper(DegradationPolicy policy) {
+        this.policy = policy;
+        double amplitude = 32768 * Math.pow(10, policy.getSilenceThreshold() / 20);
+        this.thresholdEnergy = amplitude * amplitude * FRAME_SAMPLES;
+    }
+
+    @Override
+    public ByteBuffer process(ByteBuffer chunk, AudioContext context) {
+        long droppable = policy.getDroppableBytes();
+        if (droppable < FRAME_BYTES) return chunk;
+        int read = chunk.position();
+        int write = read;
+        int end = chunk.limit();
+        int dropped = 0;
+        for (; end - read >= FRAME_BYTES; read += FRAME_BYTES) {
+            if (dropped + FRAME_BYTES <= droppable && isSilent(chunk, read)) {
+                dropped += FRAME_BYTES;
+            } else {
+                if (write != read) move(chunk, read, write, FRAME_BYTES);
+                write += FRAME_BYTES;
+            }
+        }
+        if (dropped == 0) return chunk;
+        // Less than a frame is left at the end; it is kept as is
+        if (end > read) move(chunk, read, write, end - read);
+        ((Buffer) chunk).limit(write + end - read);
+        policy.dropped(dropped);
+        return chunk;
+    }
+
+    private boolean isSilent(ByteBuffer chunk, int offset) {
+        long energy = 0;
+        for (int i = offset; i < offset + FRAME_BYTES; i += 2) {
+            int sample = (chunk.get(i) & 0xFF) | (chunk.get(i + 1) << 8);
+            energy += (long) sample * sample;
+        }
+        return energy < thresholdEnergy;
+    }
+
+    private void move(ByteBuffer chunk, int from, int to, int length) {
+        for (int i = 0; i < length; i++) frame[i] = chunk.get(from + i);
+        for (int i = 0; i < length; i++) chunk.put(to + i, frame[i]);
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.comcast.vrex.sdk.session;
+
+import com.comcast.vrex.sdk.capture.AudioCapture;
+import com.comcast.vrex.sdk.config.SpeechConfiguration;
+import com.comcast.vrex.sdk.config.SpeechConfigurationManager;
+import com.comcast.vrex.sdk.exception.SpeechSessionException;
+import com.comcast.vrex.sdk.message.InitTemplates;
+import com.comcast.vrex.sdk.util.SpeechUtils;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.client.ClientUpgradeRequest;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+public class SpeechClient implements AutoCloseable {
+
+    private static final Map<SpeechConfigurationManager, SpeechClient> DEFAULT_CLIENTS = new ConcurrentHashMap<>();
+
+    @Getter
+    private final SpeechConfigurationManager configManager;
+    @Getter
+    private final ByteBufferPool bufferPool;
+    private final SslContextFactory.Client sslContextFactory;
+    private final WebSocketClient webSocketClient;
+    @Getter
+    private final ScheduledExecutorService scheduler;
+    // Blocking work of sessions, stream reads and context builders, which would otherwise hold a scheduler thread
+    @Getter
+    private final ExecutorService audioReaders;
+    @Getter
+    private final ConnectionPool connectionPool;
+    // Null unless capture.enabled
+    @Getter
+    private final AudioCapture capture;
+    @Getter
+    private final InitTemplates initTemplates;
+
+    private final UplinkHealth uplinkHealth = new UplinkHealth();
+    private final Set<WebSocketListener> activeSessions = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    private SpeechClient(SpeechConfigurationManager configManager) throws Exception {
+        this.configManager = configManager;
+        SpeechConfiguration.Connection connection = configManager.getConfiguration().getConnection();
+        initTemplates = InitTemplates.fromConfiguration(configManager.getConfiguration());
+
+        ScheduledThreadPoolExecutor sessionScheduler = new ScheduledThreadPoolExecutor(
+                Math.max(1, connection.getClient().getSchedulerThreads()),
+                new ThreadFactoryBuilder().setNameFormat("speech-session-%d").setDaemon(true).build());
+        sessionScheduler.setRemoveOnCancelPolicy(true);
+        scheduler = sessionScheduler;
+        audioReaders = Executors.newCachedThreadPool(
+                new ThreadFactoryBuilder().setNameFormat("speech-audio-reader-%d").setDaemon(true).build());
+
+        bufferPool = new MappedByteBufferPool();
+        SpeechConfiguration.Capture captureConfig = configManager.getConfiguration().getCapture();
+        capture = captureConfig.isEnabled() ? AudioCapture.open(captureConfig, bufferPool) : null;
+        sslContextFactory = new SslContextFactory.Client();
+
+        QueuedThreadPool threadPool = new QueuedThreadPool();
+        threadPool.setName("speech-client");
+        threadPool.setDaemon(true);
+
+        HttpClient httpClient = new HttpClient(sslContextFactory);
+        httpClient.setExecutor(threadPool);
+        httpClient.setScheduler(new ScheduledExecutorScheduler("speech-client-scheduler", true));
+        httpClient.setByteBufferPool(bufferPool);
+
+        webSocketClient = new WebSocketClient(httpClient);
+        webSocketClient.setConnectTimeout(connection.getWebsocket().getConnectTimeout());
+        webSocketClient.start();
+
+        connectionPool = new ConnectionPool(this);
+        connectionPool.start();
+    }
+
+    public static SpeechClient newClient(@NonNull SpeechConfigurationManager configManager) throws Exception {
+        log.info("Starting a new Speech client.");
+        return new SpeechClient(configManager);
+    }
+
+    static SpeechClient defaultClient(SpeechConfigurationManager configManager) {
+        return DEFAULT_CLIENTS.computeIfAbsent(configManager, manager -> {
+            try {
+                return newClient(manager);
+            } catch (Exception e) {
+                throw new SpeechSessionException("Unable to start the default Speech client", e);
+            }
+        });
+    }
+
+    public SpeechSession newSession(@NonNull String trx) throws URISyntaxException {
+        return SpeechSession.newSession(trx, this);
+    }
+
+    // Takes a pre-warmed connection when one is ready; its trx is generated by the pool
+    public SpeechSession newSession() throws URISyntaxException {
+        WebSocketListener warmListener = connectionPool.take();
+        if (warmListener == null) return newSession(SpeechUtils.generateTrx());
+        return SpeechSession.newSession(warmListener, this);
+    }
+
+    UplinkHealth getUplinkHealth() {
+        return uplinkHealth;
+    }
+
+    SerialExecutor newSessionExecutor() {
+        return new SerialExecutor(scheduler);
+    }
+
+    void connect(WebSocketListener listener, URI uri) throws IOException {
+        if (closed) {
+            throw new SpeechSessionException("Speech client is closed. Unable to start session");
+        }
+        activeSessions.add(listener);
+        try {
+            webSocketClient.connect(listener, uri, new ClientUpgradeRequest());
+        } catch (IOException e) {
+            release(listener);
+            throw e;
+        }
+    }
+
+    Future<Session> connectWarm(WebSocketListener listener, URI uri) throws IOException {
+        if (closed) {
+            throw new SpeechSessionException("Speech client is closed. Unable to pre-warm a connection");
+        }
+        return webSocketClient.connect(listener, uri, new ClientUpgradeRequest());
+    }
+
+    void attach(WebSocketListener listener) {
+        if (closed) {
+            throw new SpeechSessionException("Speech client is closed. Unable to start session");
+        }
+        activeSessions.add(listener);
+    }
+
+    void release(WebSocketListener listener) {
+        if (activeSessions.remove(listener) && activeSessions.isEmpty()) {
+            synchronized (activeSessions) {
+                activeSessions.notifyAll();
+            }
+        }
+    }
+
+    public int getActiveSessionCount() {
+        return activeSessions.size();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (closed) return;
+        closed = true;
+        DEFAULT_CLIENTS.remove(configManager, this);
+        connectionPool.close();
+        drain(configManager.getConfiguration().getConnection().getClient().getDrainTimeout());
+        webSocketClient.stop();
+        if (capture != null) capture.close();
+        scheduler.shutdownNow();
+        audioReaders.shutdownNow();
+        log.info("Speech client stopped.");
+    }
+
+    private void drain(long drainTimeout) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(drainTimeout);
+        synchronized (activeSessions) {
+            long remaining;
+            while (!activeSessions.isEmpty() && (remaining = deadline - System.nanoTime()) > 0) {
+                TimeUnit.NANOSECONDS.timedWait(activeSessions, remaining);
+            }
+        }
+        if (!activeSessions.isEmpty()) {
+            log.warn("Stopping Speech client with " + activeSessions.size() + " session(s) still in flight.");
+        }
+    }
+}
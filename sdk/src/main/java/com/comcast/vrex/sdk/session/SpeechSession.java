@@ -19,11 +19,15 @@
 package com.comcast.vrex.sdk.session;
 
 import com.comcast.vrex.sdk.audio.AudioOption;
+import com.comcast.vrex.sdk.audio.AudioSink;
+import com.comcast.vrex.sdk.config.SpeechConfiguration;
 import com.comcast.vrex.sdk.config.SpeechConfigurationManager;
 import com.comcast.vrex.sdk.exception.SpeechSessionException;
 import com.comcast.vrex.sdk.message.ContextMessage;
 import com.comcast.vrex.sdk.message.ExtraMessage;
 import com.comcast.vrex.sdk.message.InitPayloadBuilder;
+import com.comcast.vrex.sdk.message.InitTemplate;
+import com.comcast.vrex.sdk.messageModel.send.ImmutableInitPayload;
 import com.comcast.vrex.sdk.messageModel.send.InitPayload;
 import com.comcast.vrex.sdk.result.SpeechResultObserver;
 import lombok.NonNull;
@@ -31,9 +35,7 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.net.URISyntaxException;
 import java.util.concurrent.Callable;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
 
 import static com.comcast.vrex.sdk.util.SpeechUtils.LogTemplates.LOG_TEMPLATE;
 
@@ -41,41 +43,96 @@ import static com.comcast.vrex.sdk.util.SpeechUtils.LogTemplates.LOG_TEMPLATE;
 public class SpeechSession {
 
     private SpeechConfigurationManager configManager;
+    private SpeechClient speechClient;
 
-    private CountDownLatch listeningLatch;
-    private CountDownLatch connectLatch;
+    private SessionStateMachine state;
+    private SessionMetrics metrics;
 
     private WebSocketListener listener;
     private WebSocketSender sender;
 
-    private ExecutorService executor;
+    private SerialExecutor executor;
 
     private InitPayloadBuilder initPayloadBuilder;
+    private InitTemplate initTemplate;
     private Callable<ContextMessage> contextMessageCallable;
 
     private AudioOption audioOption;
     private SpeechResultObserver speechResultObserver;
+    private boolean streamBeforeListening;
+    private boolean voiceActivityDetection;
+    private boolean degradation;
 
-    private SpeechSession(String trx, SpeechConfigurationManager configManager) throws URISyntaxException {
-        this.configManager = configManager;
-        listeningLatch = new CountDownLatch(1);
-        connectLatch = new CountDownLatch(1);
-        executor = Executors.newCachedThreadPool();
-        this.listener = new WebSocketListener(trx, configManager);
-        sender = new WebSocketSender(trx, listeningLatch, connectLatch, executor);
+    private final String trx;
+
+    private SpeechSession(String trx, SpeechClient speechClient) throws URISyntaxException {
+        this(speechClient, new WebSocketListener(trx, speechClient.getConfigManager()));
+    }
+
+    private SpeechSession(SpeechClient speechClient, WebSocketListener listener) {
+        if (speechClient.isClosed()) {
+            throw new SpeechSessionException("Speech client is closed. Unable to start session");
+        }
+        this.speechClient = speechClient;
+        this.configManager = speechClient.getConfigManager();
+        this.trx = listener.getTrx();
+        this.streamBeforeListening = configManager.getConfiguration().getAudio().isStreamBeforeListening();
+        this.voiceActivityDetection = configManager.getConfiguration().getAudio().getVad().isEnabled();
+        this.degradation = configManager.getConfiguration().getAudio().getDegradation().isEnabled();
+        state = new SessionStateMachine(speechClient.getScheduler());
+        metrics = new SessionMetrics();
+        executor = speechClient.newSessionExecutor();
+        this.listener = listener;
+        sender = new WebSocketSender(trx, state, executor, metrics, speechClient.getBufferPool(),
+                configManager.getConfiguration().getConnection().getClient().getWriteWindow(),
+                speechClient.getUplinkHealth(),
+                speechClient.getCapture() == null ? null : speechClient.getCapture().tap(trx));
     }
 
     public static SpeechSession newSession(@NonNull String trx, @NonNull SpeechConfigurationManager speechConfigurationManager)
             throws URISyntaxException {
+        return newSession(trx, SpeechClient.defaultClient(speechConfigurationManager));
+    }
+
+    public static SpeechSession newSession(@NonNull String trx, @NonNull SpeechClient speechClient)
+            throws URISyntaxException {
         log.info(LOG_TEMPLATE, trx, "A new Speech session has been initialized.");
-        return new SpeechSession(trx, speechConfigurationManager);
+        return new SpeechSession(trx, speechClient);
+    }
+
+    static SpeechSession newSession(WebSocketListener warmListener, SpeechClient speechClient) {
+        log.info(LOG_TEMPLATE, warmListener.getTrx(), "A new Speech session has been initialized on a pre-warmed connection.");
+        return new SpeechSession(speechClient, warmListener);
     }
 
     public SpeechSession withInit(@NonNull InitPayload initPayload) {
         this.initPayloadBuilder = InitPayloadBuilder.customizeExistingPayload(initPayload);
+        this.initTemplate = null;
+        return this;
+    }
+
+    // For a payload shared between sessions, such as one cached per device. The session changes a copy of its own.
+    public SpeechSession withInit(@NonNull ImmutableInitPayload initPayload) {
+        this.initPayloadBuilder = InitPayloadBuilder.customizeExistingPayload(initPayload);
+        this.initTemplate = null;
+        return this;
+    }
+
+    // The init frame is spliced from the template's serialized bytes instead of built for the session
+    public SpeechSession withInit(@NonNull InitTemplate initTemplate) {
+        this.initTemplate = initTemplate;
+        this.initPayloadBuilder = null;
         return this;
     }
 
+    public SpeechSession withInitTemplate(@NonNull String name) {
+        InitTemplate template = speechClient.getInitTemplates().get(name);
+        if (template == null) {
+            throw new SpeechSessionException("No init template named " + name);
+        }
+        return withInit(template);
+    }
+
     public SpeechSession withContext(ContextMessage contextMessage) {
         return withContext(() -> contextMessage);
     }
@@ -90,11 +147,34 @@ public class SpeechSession {
         return this;
     }
 
+    // Audio is pushed by the caller through getAudioSink() instead of being read from a stream
+    public SpeechSession withAudioSink() {
+        return withAudio(AudioOption.from(new AudioSink(configManager.getConfiguration().getAudio().getSinkCapacity())));
+    }
+
     public SpeechSession withResultObserver(SpeechResultObserver speechResultObserver) {
         this.speechResultObserver = speechResultObserver;
         return this;
     }
 
+    public SpeechSession withStreamBeforeListening(boolean streamBeforeListening) {
+        this.streamBeforeListening = streamBeforeListening;
+        return this;
+    }
+
+    // Trims leading silence and ends the stream after audio.vad.trailingSilence, using the audio.vad settings
+    public SpeechSession withVoiceActivityDetection(boolean voiceActivityDetection) {
+        this.voiceActivityDetection = voiceActivityDetection;
+        return this;
+    }
+
+    // Lets a congested uplink switch the codec or drop silence, using the audio.degradation settings.
+    // Each degradation is reported to the result observer.
+    public SpeechSession withDegradation(boolean degradation) {
+        this.degradation = degradation;
+        return this;
+    }
+
     private void updateIds() {
         boolean shouldRefresh = false;
         InitPayload initPayload = initPayloadBuilder.buildMessage();
@@ -128,6 +208,10 @@ public class SpeechSession {
     }
 
     private void updateInit() {
+        if (initPayloadBuilder == null && initTemplate != null) {
+            initPayloadBuilder = InitPayloadBuilder.copyFromExistingPayload(initTemplate.getPayload());
+            initTemplate = null;
+        }
         if (initPayloadBuilder == null) {
             throw new SpeechSessionException("No init payload provided. Unable to start session");
         }
@@ -146,16 +230,82 @@ public class SpeechSession {
     }
 
     public void startSession() throws Exception {
-        updateInit();
-        listener.startSession(sender, listeningLatch, connectLatch, executor, speechResultObserver);
-        sender.sendInit(initPayloadBuilder.buildMessage());
-        sendMessage(contextMessageCallable);
-        sender.handleAudio(audioOption);
+        // Text sessions change the payload itself, so they build it from the template's copy
+        InitTemplate template = audioOption.getSelectedOption() instanceof AudioOption.TextOption ? null : initTemplate;
+        InitFrame initFrame = null;
+        InitPayload initPayload;
+        if (template != null) {
+            initFrame = bindTemplate(template);
+            initPayload = template.getPayload();
+        } else {
+            updateInit();
+            initPayload = initPayloadBuilder.buildMessage();
+        }
+        metrics.markStarted();
+        SpeechConfiguration.Audio audioConfig = configManager.getConfiguration().getAudio();
+        DegradationPolicy policy = degradation
+                ? new DegradationPolicy(trx, audioConfig.getDegradation(), speechResultObserver) : null;
+        AudioPump audioPump = AudioPump.forOption(trx, audioOption, initPayload.getAudio(), audioConfig,
+                voiceActivityDetection, policy, speechClient, executor, sender, metrics);
+        if (initFrame != null && WebSocketSender.rewritesInit(initPayload, audioPump)) {
+            // The session sends other audio settings than the template has
+            updateInit();
+            initPayload = initPayloadBuilder.buildMessage();
+            initFrame = null;
+        }
+        if (audioPump != null) audioPump.start();
+        sender.prepare(initPayload, initFrame, prepareMessage(contextMessageCallable), audioPump, streamBeforeListening);
+        listener.startSession(speechClient, sender, state, metrics, executor, speechResultObserver);
     }
 
-    private void sendMessage(Callable<? extends ExtraMessage> message) {
-        if (message != null) {
-            sender.sendMessage(message);
+    // Ids missing from the template come from the configuration, as they do for a payload
+    private InitFrame bindTemplate(InitTemplate template) {
+        String deviceId = template.resolveDeviceId(configManager.getDeviceId());
+        if (deviceId == null) {
+            throw new SpeechSessionException("No deviceId provided. Unable to start session");
+        }
+        String accountId = template.resolveAccountId(configManager.getAccountId());
+        if (accountId == null) {
+            throw new SpeechSessionException("No accountId provided. Unable to start session");
         }
+        return new InitFrame(template, contextMessageCallable != null, deviceId, accountId,
+                template.resolveCustomerId(configManager.getCustomerId()));
+    }
+
+    // Extra messages are built while the connection is being established, on a reader thread as the callable may
+    // block, and handed back to the session executor so the sender picks them up there
+    private CompletableFuture<? extends ExtraMessage> prepareMessage(Callable<? extends ExtraMessage> message) {
+        if (message == null) return null;
+        CompletableFuture<ExtraMessage> future = new CompletableFuture<>();
+        speechClient.getAudioReaders().execute(() -> {
+            ExtraMessage built;
+            try {
+                built = message.call();
+            } catch (Exception e) {
+                executor.execute(() -> future.completeExceptionally(e));
+                return;
+            }
+            executor.execute(() -> future.complete(built));
+        });
+        return future;
+    }
+
+    public AudioSink getAudioSink() {
+        if (audioOption != null && audioOption.getSelectedOption() instanceof AudioOption.AudioSinkOption) {
+            return ((AudioOption.AudioSinkOption) audioOption.getSelectedOption()).getSink();
+        }
+        return null;
+    }
+
+    public SessionState getState() {
+        return state.get();
+    }
+
+    public String getTrx() {
+        return trx;
+    }
+
+    public SessionMetrics getMetrics() {
+        return metrics;
     }
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.session;
+
+import java.util.concurrent.TimeUnit;
+
+// Write latency of audio frames across the sessions of a client, so a new session can tell how the
+// uplink has been doing before it sends anything
+class UplinkHealth {
+
+    // Older measurements say little about the uplink now
+    private static final long STALE_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private volatile long writeLatencyNanos;
+    private volatile long recordedAt;
+
+    void record(long latencyNanos) {
+        long average = writeLatencyNanos;
+        writeLatencyNanos = average == 0 ? latencyNanos : average + (latencyNanos - average) / 16;
+        recordedAt = System.nanoTime();
+    }
+
+    // 0 when no audio has been written recently
+    long getWriteLatencyNanos() {
+        long recorded = recordedAt;
+        if (recorded == 0 || System.nanoTime() - recorded > STALE_NANOS) return 0;
+        return writeLatencyNanos;
+    }
+}
@@ -20,48 +20,46 @@ package com.comcast.vrex.sdk.session;
 
 import com.comcast.vrex.sdk.config.SpeechConfiguration;
 import com.comcast.vrex.sdk.config.SpeechConfigurationManager;
+import com.comcast.vrex.sdk.exception.SpeechSessionException;
 import com.comcast.vrex.sdk.message.IncomingMessageType;
-import com.comcast.vrex.sdk.messageModel.common.EventMessage;
 import com.comcast.vrex.sdk.messageModel.receive.VrexResponse;
 import com.comcast.vrex.sdk.messageModel.receive.WbwResponse;
 import com.comcast.vrex.sdk.messageModel.receive.WuwVerificationMessage;
 import com.comcast.vrex.sdk.result.SpeechResultObserver;
-import com.comcast.vrex.sdk.util.ObjectMappers;
 import com.comcast.vrex.sdk.util.SpeechUtils;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.http.client.utils.URIBuilder;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketConnect;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketError;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
 import org.eclipse.jetty.websocket.api.annotations.WebSocket;
-import org.eclipse.jetty.websocket.client.ClientUpgradeRequest;
-import org.eclipse.jetty.websocket.client.WebSocketClient;
 
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Optional;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 @WebSocket
 @Slf4j
 public class WebSocketListener {
-    private static ObjectMapper objectMapper = ObjectMappers.noFailOnUnknownPropsMapper();
     private final String trx;
     private URI uri;
+    private String authToken;
     private Session session = null;
     private SpeechConfigurationManager speechConfigurationManager;
 
-    private CountDownLatch listeningLatch;
-    private CountDownLatch connectLatch;
+    private SessionStateMachine state;
+    private SessionMetrics metrics;
 
+    private SpeechClient speechClient;
+    private ConnectionPool connectionPool;
+    private boolean attached;
     private WebSocketSender sender;
-    private ExecutorService executor;
+    private SerialExecutor executor;
 
     private Optional<SpeechResultObserver> speechResultObserver;
     private VrexResponse closeConnectionResponse;
@@ -73,7 +71,7 @@ public class WebSocketListener {
     }
 
     private void initUri() throws URISyntaxException {
-        SpeechConfiguration.Websocket websocketConfig = speechConfigurationManager.getConfiguration().getConnection().getWebsocket();
+        SpeechConfiguration.Websocket websocketConfig = websocketConfig();
         URIBuilder uriBuilder = new URIBuilder(new URI(websocketConfig.getUrl()))
                 .setParameter("version", "version=v" + websocketConfig.getVersion())
                 .setParameter("trx", trx)
@@ -85,93 +83,212 @@ public class WebSocketListener {
 
     private void appendAuthToken(URIBuilder uriBuilder) {
         if (speechConfigurationManager.authIsEnabled()) {
-            String token = speechConfigurationManager.getSpeechAuthenticator().getAuthResponse().getToken();
-            uriBuilder.setParameter("sat", token);
+            authToken = speechConfigurationManager.getSpeechAuthenticator().getAuthResponse().getToken();
+            uriBuilder.setParameter("sat", authToken);
         }
     }
 
-    public void startSession(WebSocketSender sender, CountDownLatch listeningLatch, CountDownLatch connectLatch,
-                             ExecutorService executor, SpeechResultObserver speechResultObserver) throws Exception {
-        this.listeningLatch = listeningLatch;
-        this.connectLatch = connectLatch;
-        this.sender = sender;
-        this.executor = executor;
-        this.speechResultObserver = Optional.ofNullable(speechResultObserver);
+    // Opens the connection ahead of time; the session is attached later by startSession
+    Future<Session> connectWarm(SpeechClient speechClient, ConnectionPool connectionPool,
+                                ConnectionPool.Connector connector) throws IOException {
+        this.speechClient = speechClient;
+        this.connectionPool = connectionPool;
+        return connector.connect(this, this.uri);
+    }
+
+    public void startSession(SpeechClient speechClient, WebSocketSender sender, SessionStateMachine state,
+                             SessionMetrics metrics, SerialExecutor executor,
+                             SpeechResultObserver speechResultObserver) throws Exception {
+        boolean warm;
+        synchronized (this) {
+            this.speechClient = speechClient;
+            this.state = state;
+            this.metrics = metrics;
+            this.sender = sender;
+            this.executor = executor;
+            this.speechResultObserver = Optional.ofNullable(speechResultObserver);
+            this.attached = true;
+            warm = session != null;
+        }
+        if (warm) {
+            log.info(SpeechUtils.LogTemplates.LOG_SESSION_TEMPLATE, trx, "Using a pre-warmed websocket connection.");
+            speechClient.attach(this);
+            if (session.isOpen()) {
+                onConnected();
+            } else {
+                failSession("Pre-warmed connection closed before the session started.");
+            }
+            return;
+        }
         log.info(SpeechUtils.LogTemplates.LOG_TEMPLATE, trx, "Connecting to Websocket URL...");
-        WebSocketClient client = new WebSocketClient();
-        client.start();
-        ClientUpgradeRequest request = new ClientUpgradeRequest();
-        client.connect(this, this.uri, request);
+        state.deadline(SessionState.CONNECTING, websocketConfig().getConnectTimeout(),
+                () -> failSession("Timed out connecting to the Speech server."));
+        speechClient.connect(this, this.uri);
+    }
+
+    private SpeechConfiguration.Websocket websocketConfig() {
+        return speechConfigurationManager.getConfiguration().getConnection().getWebsocket();
     }
 
     @OnWebSocketConnect
     public void onOpen(Session session) throws IOException {
         log.info(SpeechUtils.LogTemplates.LOG_SESSION_TEMPLATE, trx, "Successfully established websocket connection with Speech server.");
-        this.session = session;
+        synchronized (this) {
+            this.session = session;
+            if (!attached) {
+                connectionPool.onOpen(this);
+                return;
+            }
+        }
+        onConnected();
+    }
+
+    private void onConnected() {
+        metrics.markOpened();
         sender.setSession(session);
-        connectLatch.countDown();
+        if (!state.transition(SessionState.CONNECTING, SessionState.OPEN)) {
+            session.close(StatusCode.NORMAL, "Session no longer active");
+            return;
+        }
+        sender.sendInit();
+        if (state.transition(SessionState.OPEN, SessionState.INIT_SENT)) {
+            state.deadline(SessionState.INIT_SENT, websocketConfig().getListeningTimeout(),
+                    () -> failSession("Timed out waiting for the Speech server to start listening."));
+            if (sender.isStreamBeforeListening()) sender.startStreaming();
+        }
     }
 
     @OnWebSocketClose
     public void onClose(Session userSession, int status, String reason) {
-        afterClose();
+        if (releaseIfWarm()) return;
         log.info(SpeechUtils.LogTemplates.LOG_SESSION_TEMPLATE, trx, "Websocket session closed.");
+        // Already ended by an error, and the observer only hears about one of the two
+        if (state.close() == SessionState.CLOSED) return;
+        afterClose();
         speechResultObserver.ifPresent(observer -> observer.onCloseConnection(closeConnectionResponse));
     }
 
     @OnWebSocketError
     public void onError(Throwable t) {
         log.error(SpeechUtils.LogTemplates.LOG_SESSION_TEMPLATE, trx, "Websocket session error: " + t.getLocalizedMessage());
+        if (releaseIfWarm()) return;
+        if (state.close() == SessionState.CLOSED) return;
         afterClose();
         speechResultObserver.ifPresent(observer -> observer.onError(t));
     }
 
+    private synchronized boolean isAttached() {
+        return attached;
+    }
+
+    private synchronized boolean releaseIfWarm() {
+        if (attached) return false;
+        connectionPool.onClose(this);
+        return true;
+    }
+
+    void closeWarm(String reason) {
+        if (session != null && session.isOpen()) {
+            session.close(StatusCode.NORMAL, reason);
+        }
+    }
+
+    boolean isOpen() {
+        return session != null && session.isOpen();
+    }
+
+    String getTrx() {
+        return trx;
+    }
+
+    String getAuthToken() {
+        return authToken;
+    }
+
+    private void failSession(String reason) {
+        onError(new SpeechSessionException(reason));
+        if (session != null && session.isOpen()) {
+            session.close(StatusCode.SHUTDOWN, reason);
+        }
+    }
+
     @OnWebSocketMessage
     public void onMessage(String message) {
         log.debug(SpeechUtils.LogTemplates.LOG_TEMPLATE, trx, "RECEIVED message: " + message);
+        if (!isAttached()) return;
+        IncomingMessageReader.IncomingMessage incomingMessage;
         try {
-            EventMessage eventMessage = objectMapper.readValue(message, EventMessage.class);
-            IncomingMessageType messageType = IncomingMessageType.reverseLookup(eventMessage.getMsgType());
-            handleMessage(messageType, eventMessage);
+            incomingMessage = IncomingMessageReader.read(message);
         } catch (IOException e) {
             log.error(SpeechUtils.LogTemplates.LOG_JSON_TEMPLATE, trx, "Unable to read incoming message", message);
+            return;
         }
+        handleMessage(incomingMessage, message);
     }
 
-    private void handleMessage(IncomingMessageType messageType, EventMessage eventMessage) {
+    private void handleMessage(IncomingMessageReader.IncomingMessage incomingMessage, String message) {
+        IncomingMessageType messageType = incomingMessage.getType();
+        if (messageType == null) {
+            log.error(SpeechUtils.LogTemplates.LOG_SESSION_TEMPLATE, trx, "Internal Error - Unhandled Message: " + incomingMessage.getMsgType());
+            return;
+        }
         switch (messageType) {
             case LISTENING:
                 handleListening();
-                break;
+                return;
             case TRANSCRIPTION:
-                handleTranscription(eventMessage);
+                WbwResponse transcription = incomingMessage.getPayload(WbwResponse.class);
+                if (transcription != null) {
+                    handleTranscription(transcription, message);
+                    return;
+                }
                 break;
             case VREX_RESPONSE:
-                handleVrexResponse(eventMessage);
+                VrexResponse response = incomingMessage.getPayload(VrexResponse.class);
+                if (response != null) {
+                    handleVrexResponse(response);
+                    return;
+                }
                 break;
             case WUW_VERIFICATION:
-                handleWuwVerification(eventMessage);
+                WuwVerificationMessage verification = incomingMessage.getPayload(WuwVerificationMessage.class);
+                if (verification != null) {
+                    handleWuwVerification(verification, message);
+                    return;
+                }
                 break;
             case CLOSE_CONNECTION:
-                handleCloseConnection(eventMessage);
+                VrexResponse closeResponse = incomingMessage.getPayload(VrexResponse.class);
+                if (closeResponse != null) {
+                    handleCloseConnection(closeResponse, message);
+                    return;
+                }
                 break;
             default:
                 log.error(SpeechUtils.LogTemplates.LOG_SESSION_TEMPLATE, trx, "Internal Error - Unhandled Message: " + messageType);
+                return;
         }
+        log.error(SpeechUtils.LogTemplates.LOG_JSON_TEMPLATE, trx, "Incoming message has no payload", message);
     }
 
     private void handleListening() {
+        boolean listening = state.transition(SessionState.INIT_SENT, SessionState.LISTENING);
+        // When streaming before listening, the whole utterance may already be sent by the time the server listens
+        if (!listening && !(sender.isStreamBeforeListening() && state.is(SessionState.CLOSING))) return;
+        metrics.markListening();
         log.info(SpeechUtils.LogTemplates.LOG_TEMPLATE, trx, "Speech server is now awaiting audio from the client.");
-        listeningLatch.countDown();
         speechResultObserver.ifPresent(observer -> observer.onListening());
+        if (listening) {
+            sender.startStreaming();
+            state.transition(SessionState.LISTENING, SessionState.STREAMING);
+        }
     }
 
-    private void handleWuwVerification(EventMessage eventMessage) {
-        WuwVerificationMessage response = objectMapper.convertValue(eventMessage.getMsgPayload(), WuwVerificationMessage.class);
+    private void handleWuwVerification(WuwVerificationMessage response, String message) {
         if (response.isPassed()) {
-            log.info(SpeechUtils.LogTemplates.LOG_JSON_TEMPLATE, trx, "WUW Verification received with PASSED status", eventMessage.getMsgPayload());
+            log.info(SpeechUtils.LogTemplates.LOG_JSON_TEMPLATE, trx, "WUW Verification received with PASSED status", message);
         } else {
-            log.error(SpeechUtils.LogTemplates.LOG_JSON_TEMPLATE, trx, "WUW Verification received with FAILED status", eventMessage.getMsgPayload());
+            log.error(SpeechUtils.LogTemplates.LOG_JSON_TEMPLATE, trx, "WUW Verification received with FAILED status", message);
         }
         speechResultObserver.ifPresent(observer -> {
             if (response.isPassed()) {
@@ -183,12 +300,11 @@ public class WebSocketListener {
         });
     }
 
-    private void handleVrexResponse(EventMessage eventMessage) {
-        VrexResponse response = objectMapper.convertValue(eventMessage.getMsgPayload(), VrexResponse.class);
+    private void handleVrexResponse(VrexResponse response) {
         if (response.getReturnCode() == 0) {
-            log.info(SpeechUtils.LogTemplates.LOG_TEMPLATE, trx, "Final successful response received: " + eventMessage);
+            log.info(SpeechUtils.LogTemplates.LOG_TEMPLATE, trx, "Final successful response received: " + response);
         } else {
-            log.error(SpeechUtils.LogTemplates.LOG_TEMPLATE, trx, "Final unsuccessful response received: " + eventMessage);
+            log.error(SpeechUtils.LogTemplates.LOG_TEMPLATE, trx, "Final unsuccessful response received: " + response);
         }
         speechResultObserver.ifPresent(observer -> {
             if (response.getReturnCode() == 0) {
@@ -200,14 +316,13 @@ public class WebSocketListener {
         });
     }
 
-    private void handleTranscription(EventMessage eventMessage) {
-        JsonNode messagePayload = eventMessage.getMsgPayload();
-        WbwResponse response = objectMapper.convertValue(messagePayload, WbwResponse.class);
-        String transcriptionType = response.getIsFinal() ? "FINAL" : "PARTIAL";
-        log.info(SpeechUtils.LogTemplates.LOG_JSON_TEMPLATE, trx, transcriptionType + " transcription received", messagePayload);
+    private void handleTranscription(WbwResponse response, String message) {
+        boolean isFinal = Boolean.TRUE.equals(response.getIsFinal());
+        String transcriptionType = isFinal ? "FINAL" : "PARTIAL";
+        log.info(SpeechUtils.LogTemplates.LOG_JSON_TEMPLATE, trx, transcriptionType + " transcription received", message);
 
         speechResultObserver.ifPresent(observer -> {
-            if (response.getIsFinal()) {
+            if (isFinal) {
                 observer.onFinalTranscriptionReceived(response.getText());
             } else {
                 observer.onPartialTranscriptionReceived(response.getText());
@@ -215,24 +330,23 @@ public class WebSocketListener {
         });
     }
 
-    private VrexResponse getVrexResponseFromPayload(JsonNode messagePayload) {
-        return objectMapper.convertValue(messagePayload, VrexResponse.class);
-    }
-
-    private void handleCloseConnection(EventMessage eventMessage) {
-        this.closeConnectionResponse = objectMapper.convertValue(eventMessage.getMsgPayload(), VrexResponse.class);
-        switch (closeConnectionResponse.getReturnCode()) {
-            default:
-                log.info(SpeechUtils.LogTemplates.LOG_JSON_TEMPLATE, trx, "Server is closing the websocket connection.", eventMessage.getMsgPayload());
-        }
+    private void handleCloseConnection(VrexResponse response, String message) {
+        this.closeConnectionResponse = response;
+        state.closing();
+        log.info(SpeechUtils.LogTemplates.LOG_JSON_TEMPLATE, trx, "Server is closing the websocket connection.", message);
     }
 
     private void stopSendingAudioOrMessages() {
+        state.closing();
         executor.shutdownNow();
     }
 
     private void afterClose() {
+        metrics.markClosed();
+        log.debug(SpeechUtils.LogTemplates.LOG_SESSION_TEMPLATE, trx, "Session metrics: " + metrics);
         log.debug(SpeechUtils.LogTemplates.LOG_SESSION_TEMPLATE, trx, "Performing speech session cleanup");
         executor.shutdownNow();
+        sender.close();
+        speechClient.release(this);
     }
 }
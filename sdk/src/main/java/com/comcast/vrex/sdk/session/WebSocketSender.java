@@ -18,33 +18,31 @@
 
 package com.comcast.vrex.sdk.session;
 
-import com.comcast.vrex.sdk.audio.AudioOption;
-import com.comcast.vrex.sdk.audio.AudioStreamReader;
+import com.comcast.vrex.sdk.audio.codec.AudioEncoder;
+import com.comcast.vrex.sdk.capture.CaptureTap;
 import com.comcast.vrex.sdk.message.ExtraMessage;
 import com.comcast.vrex.sdk.messageModel.common.EventMessage;
 import com.comcast.vrex.sdk.messageModel.common.MessageType;
+import com.comcast.vrex.sdk.messageModel.send.Audio;
 import com.comcast.vrex.sdk.messageModel.send.EndOfStream;
 import com.comcast.vrex.sdk.messageModel.send.InitMessage;
 import com.comcast.vrex.sdk.messageModel.send.InitPayload;
+import com.comcast.vrex.sdk.messageModel.send.WakeUpWord;
 import com.comcast.vrex.sdk.util.ObjectMappers;
+import com.comcast.vrex.sdk.util.PooledBufferOutputStream;
 import com.comcast.vrex.sdk.util.SpeechUtils;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.extern.slf4j.Slf4j;
-import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.io.ByteBufferPool;
 import org.eclipse.jetty.websocket.api.Session;
 
-import javax.sound.sampled.AudioInputStream;
 import java.io.IOException;
-import java.io.InterruptedIOException;
-import java.io.PipedInputStream;
 import java.nio.ByteBuffer;
-import java.util.concurrent.Callable;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
 
 import static com.comcast.vrex.sdk.util.SpeechUtils.LogTemplates.LOG_TEMPLATE;
 
@@ -52,158 +50,208 @@ import static com.comcast.vrex.sdk.util.SpeechUtils.LogTemplates.LOG_TEMPLATE;
 public class WebSocketSender {
 
     private static ObjectMapper objectMapper = ObjectMappers.defaultMapper();
+    private static final ObjectWriter messageWriter = ObjectMappers.eventMessageWriter();
+    // Fits most messages; a larger one moves on to a bigger pooled buffer
+    private static final int MESSAGE_CAPACITY = 2048;
     private final String trx;
-    private ExecutorService executor;
+    private final SessionStateMachine state;
+    private SerialExecutor executor;
     private Session session;
-    private RemoteEndpoint remoteEndpoint;
+    private final OutboundPipeline pipeline;
+    private final ByteBufferPool bufferPool;
 
-    private CountDownLatch listeningLatch;
-    private CountDownLatch connectLatch;
+    private final SessionMetrics metrics;
 
-    public WebSocketSender(String trx, CountDownLatch listeningLatch, CountDownLatch connectLatch, ExecutorService executor) {
+    private EventMessage initMessage;
+    private InitFrame initFrame;
+    private CompletableFuture<? extends ExtraMessage> contextMessage;
+    private AudioPump audioPump;
+    private boolean streamBeforeListening;
+    private boolean streamingStarted;
+
+    WebSocketSender(String trx, SessionStateMachine state, SerialExecutor executor, SessionMetrics metrics,
+                    ByteBufferPool bufferPool, int writeWindow, UplinkHealth uplink, CaptureTap captureTap) {
         this.trx = trx;
-        this.listeningLatch = listeningLatch;
-        this.connectLatch = connectLatch;
+        this.bufferPool = bufferPool;
+        this.pipeline = new OutboundPipeline(trx, writeWindow, bufferPool, metrics, uplink, captureTap);
+        this.state = state;
         this.executor = executor;
+        this.metrics = metrics;
     }
 
-    public void sendInit(InitPayload initPayload) {
-        executor.execute(() -> {
-            EventMessage eventMessage = new EventMessage(trx, MessageType.INIT);
-            eventMessage.setMsgPayload(objectMapper.valueToTree(new InitMessage(initPayload)));
-            try {
-                connectLatch.await(3000, TimeUnit.MILLISECONDS);
-                sendMessageIfSessionOpen(eventMessage);
-            } catch (InterruptedException | IOException e) {
-                logOnMessageSendError(eventMessage, e);
-            }
-        });
+    // With an init frame, the init message is spliced from its template; the payload must not need rewriting then
+    void prepare(InitPayload initPayload, InitFrame initFrame, CompletableFuture<? extends ExtraMessage> contextMessage,
+                 AudioPump audioPump, boolean streamBeforeListening) {
+        this.streamBeforeListening = streamBeforeListening;
+        this.initFrame = initFrame;
+        if (initFrame == null) {
+            this.initMessage = EventMessage.typed(trx, MessageType.INIT, new InitMessage(initPayload));
+            if (rewritesInit(initPayload, audioPump)) rewriteAudio(initPayload, audioPump);
+        }
+        this.contextMessage = contextMessage;
+        this.audioPump = audioPump;
+    }
+
+    // The codec may have been switched for a congested uplink. Wake-up word offsets count the caller's audio,
+    // which is resampled to 16 kHz and may be trimmed ahead of the wake-up word before it is sent.
+    static boolean rewritesInit(InitPayload initPayload, AudioPump audioPump) {
+        Audio audio = initPayload.getAudio();
+        if (audio == null || audioPump == null) return false;
+        return audioPump.getCodec() != audio.getEnvoyCodec() || rewriteWakeUpWord(audio, audioPump) != audio.getWuw();
+    }
+
+    private static WakeUpWord rewriteWakeUpWord(Audio audio, AudioPump audioPump) {
+        if (audio.getWuw() == null) return null;
+        float rate = AudioEncoder.PCM_16_16K.getSampleRate();
+        return audio.getWuw()
+                .resample(audioPump.getSourceRate(), rate)
+                .rebase(audioPump.getWakeUpWordTrimMillis(), rate);
+    }
+
+    // Only the outgoing message is changed, so the caller's payload can be reused. That takes a tree, which is only
+    // built when something does change.
+    private void rewriteAudio(InitPayload initPayload, AudioPump audioPump) {
+        Audio audio = initPayload.getAudio();
+        boolean codecSwitched = audioPump.getCodec() != audio.getEnvoyCodec();
+        WakeUpWord wakeUpWord = rewriteWakeUpWord(audio, audioPump);
+        JsonNode payload = initMessage.getMsgPayload();
+        JsonNode audioNode = payload.path("elements").path(0).path("audio");
+        if (!audioNode.isObject()) return;
+        if (codecSwitched) ((ObjectNode) audioNode).put("envoyCodec", audioPump.getCodec().getValue());
+        if (wakeUpWord != audio.getWuw()) ((ObjectNode) audioNode).set("wuw", objectMapper.valueToTree(wakeUpWord));
+        initMessage.setMsgPayload(payload);
     }
 
-    public void handleAudio(AudioOption audioOption) throws IOException {
-        AudioOption.SelectedOption option = audioOption.getSelectedOption();
-        if (option instanceof AudioOption.AudioInputStreamOption) {
-            AudioOption.AudioInputStreamOption audioInputStreamOption = (AudioOption.AudioInputStreamOption) option;
-            sendAudio(audioInputStreamOption.getStream(), audioInputStreamOption.getBufferSize());
-        } else if (option instanceof AudioOption.PipedInputStreamOption) {
-            AudioOption.PipedInputStreamOption audioInputStreamOption = (AudioOption.PipedInputStreamOption) option;
-            sendAudio(audioInputStreamOption.getStream(), audioInputStreamOption.getBufferSize());
-        } else if (option instanceof AudioOption.TextOption) {
-            //Do Nothing
-        } else {
-            log.error(LOG_TEMPLATE, trx, "Internal error. Could not resolve audio.");
+    void sendInit() {
+        if (initFrame == null) {
+            sendMessage(initMessage, metrics::markInitSent);
+        } else if (session.isOpen()) {
+            sendFrame(initFrame.render(bufferPool, trx), MessageType.INIT.getValue(), metrics::markInitSent);
         }
     }
 
-    public void sendAudio(PipedInputStream inputStream, int bufferSize) throws IOException {
-        executor.execute(() -> {
-            try {
-                boolean shouldSendAudio = listeningLatch.await(3000, TimeUnit.MILLISECONDS);
-                if (shouldSendAudio) {
-                    log.info(LOG_TEMPLATE, trx, "Streaming audio...");
-                    int readCount = 0;
-                    byte[] bytes = new byte[bufferSize];
-                    while ((readCount = inputStream.read(bytes)) != -1 && session.isOpen()) {
-                        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, readCount);
-                        remoteEndpoint.sendBytes(buffer);
-                        bytes = new byte[bufferSize];
-                    }
-                    sendEndOfAudio();
-                }
-            } catch (InterruptedIOException e) {
-                log.error(LOG_TEMPLATE, trx, "Sending Audio was interrupted due to unsuccessful message from server.");
-            } catch (IOException e) {
-                log.error(LOG_TEMPLATE, trx, "Error sending audio: " + e.getMessage());
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        });
+    boolean isStreamBeforeListening() {
+        return streamBeforeListening;
     }
 
-    public void sendAudio(AudioInputStream audioInputStream, int bufferSize) {
-        executor.execute(() -> {
-            try {
-                boolean shouldSendAudio = listeningLatch.await(3000, TimeUnit.MILLISECONDS);
-                if (shouldSendAudio) {
-                    log.info(LOG_TEMPLATE, trx, "Sending audio...");
-                    AudioStreamReader reader = new AudioStreamReader(audioInputStream);
-                    while (reader.hasMore() && session.isOpen()) {
-                        ByteBuffer buffer = ByteBuffer.wrap(reader.read(bufferSize));
-                        remoteEndpoint.sendBytes(buffer);
-                    }
-                    sendEndOfAudio();
-                }
-            } catch (InterruptedIOException e) {
-                log.error(LOG_TEMPLATE, trx, "Sending Audio was interrupted due to unsuccessful message from server.");
-            } catch (IOException e) {
-                log.error(LOG_TEMPLATE, trx, "Error sending audio: " + e.getMessage());
-            } catch (Exception e) {
-                e.printStackTrace();
+    // The context message always goes out ahead of the first audio chunk
+    synchronized void startStreaming() {
+        if (streamingStarted) return;
+        streamingStarted = true;
+        if (contextMessage == null) {
+            goLive();
+            return;
+        }
+        contextMessage.whenComplete((message, t) -> executor.runOrExecute(() -> {
+            if (t != null) {
+                log.error(LOG_TEMPLATE, trx, "Unable to create context message: " + t.getMessage());
+            } else {
+                sendMessage(message.getMessage());
             }
-        });
+            goLive();
+        }));
+    }
+
+    private void goLive() {
+        if (audioPump != null) audioPump.goLive();
+    }
+
+    // Takes ownership of a buffer acquired from the client's pool
+    boolean sendAudio(ByteBuffer pooledBuffer) {
+        if (!session.isOpen()) {
+            bufferPool.release(pooledBuffer);
+            sendEndOfAudio();
+            return false;
+        }
+        return pipeline.offerAudio(pooledBuffer);
+    }
+
+    boolean isWritable() {
+        return pipeline.isWritable();
+    }
+
+    void whenWritable(Runnable callback) {
+        pipeline.whenWritable(callback);
+    }
+
+    int getQueueDepth() {
+        return pipeline.getQueueDepth();
+    }
+
+    long getWriteLatencyNanos() {
+        return pipeline.getWriteLatencyNanos();
     }
 
     public void sendMessage(EventMessage message) {
-        executor.execute(() -> {
-            try {
-                listeningLatch.await(3000, TimeUnit.MILLISECONDS);
-                sendMessageIfSessionOpen(message);
-            } catch (InterruptedException | IOException e) {
-                logOnMessageSendError(message, e);
-            }
+        sendMessage(message, null);
+    }
+
+    private void sendMessage(EventMessage message, Runnable onSent) {
+        if (!session.isOpen()) return;
+        ByteBuffer frame = encode(message);
+        if (frame != null) sendFrame(frame, message.getMsgType(), onSent);
+    }
+
+    private void sendFrame(ByteBuffer frame, String msgType, Runnable onSent) {
+        String messageText = log.isDebugEnabled() ? StandardCharsets.UTF_8.decode(frame.duplicate()).toString() : null;
+        pipeline.offerText(frame, () -> {
+            if (messageText != null) log.debug(LOG_TEMPLATE, trx, "Sent Message: " + messageText);
+            logOnMessageSendSuccess(msgType);
+            if (onSent != null) onSent.run();
         });
     }
 
-    private void sendMessageIfSessionOpen(EventMessage message) throws IOException {
-        if (session.isOpen()) {
-            String messageText = objectMapper.writeValueAsString(message);
-            remoteEndpoint.sendString(messageText);
-            log.debug(LOG_TEMPLATE, trx, "Sent Message: " + messageText);
-            logOnMessageSendSuccess(message);
-        }
+    void sendEndOfAudio() {
+        sendEndOfAudio(EndOfStream.END_OF_AUDIO);
     }
 
-    public void sendMessage(Callable<? extends ExtraMessage> extraMessageCallable) {
-        executor.submit(() -> {
-            Future<? extends ExtraMessage> extraMessageFuture = executor.submit(extraMessageCallable);
-            ExtraMessage message = null;
-            try {
-                message = extraMessageFuture.get();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            } catch (ExecutionException e) {
-                e.printStackTrace();
-            }
-            sendMessage(message.getMessage());
+    // endOfStream is always the last frame of the session
+    void sendEndOfAudio(int reason) {
+        if (!state.closing()) return;
+        EventMessage message = createEndOfStreamMessage(trx, reason);
+        if (!session.isOpen()) return;
+        ByteBuffer frame = encode(message);
+        if (frame == null) return;
+        pipeline.offerLast(frame, () -> {
+            metrics.markEndOfStream(reason);
+            logOnMessageSendSuccess(message.getMsgType());
         });
     }
 
-    private void sendEndOfAudio() throws IOException {
-        EventMessage message = createEndOfStreamMessage(trx, 0);
-        String messageText = objectMapper.writeValueAsString(message);
-        if (session.isOpen()) {
-            remoteEndpoint.sendString(messageText);
-            logOnMessageSendSuccess(message);
+    // Serialized in one pass straight into a pooled UTF-8 buffer, with no tree or String in between.
+    // Null when the message cannot be serialized.
+    private ByteBuffer encode(EventMessage message) {
+        PooledBufferOutputStream out = new PooledBufferOutputStream(bufferPool, MESSAGE_CAPACITY);
+        try {
+            messageWriter.writeValue(out, message);
+            return out.takeBuffer();
+        } catch (IOException e) {
+            out.release();
+            logOnMessageSendError(message, e);
+            return null;
         }
     }
 
+    void close() {
+        pipeline.close();
+        if (audioPump != null) audioPump.close();
+    }
+
     private EventMessage createEndOfStreamMessage(String trx, int reasonCode) {
-        EndOfStream endOfStream = new EndOfStream(reasonCode);
-        JsonNode jsonPayload = objectMapper.valueToTree(endOfStream);
-        return new EventMessage(trx, MessageType.END_OF_STREAM, jsonPayload);
+        return EventMessage.typed(trx, MessageType.END_OF_STREAM, new EndOfStream(reasonCode));
     }
 
     public void setSession(Session session) {
         this.session = session;
-        this.remoteEndpoint = session.getRemote();
+        pipeline.setRemote(session.getRemote());
     }
 
-    private void logOnMessageSendError(EventMessage message, Exception e) {
+    private void logOnMessageSendError(EventMessage message, Throwable e) {
         log.error(SpeechUtils.LogTemplates.LOG_SESSION_TEMPLATE, trx, "Error sending" + message.getMsgType() + "message: " + e.getLocalizedMessage());
         e.printStackTrace();
     }
 
-    private void logOnMessageSendSuccess(EventMessage message) {
-        log.info(SpeechUtils.LogTemplates.LOG_SESSION_TEMPLATE, trx, message.getMsgType() + " message sent.");
+    private void logOnMessageSendSuccess(String msgType) {
+        log.info(SpeechUtils.LogTemplates.LOG_SESSION_TEMPLATE, trx, msgType + " message sent.");
     }
 }
@@ -18,24 +18,36 @@
 
 package com.comcast.vrex.sdk.util;
 
+import com.comcast.vrex.sdk.messageModel.JsonCodecModule;
+import com.comcast.vrex.sdk.messageModel.common.EventMessage;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 public class ObjectMappers {
 
     private static ObjectMapper DEFAULT_MAPPER;
     private static ObjectMapper NO_FAIL_ON_UNKNOWN_MAPPER;
+    private static ObjectWriter EVENT_MESSAGE_WRITER;
 
+    // Both mappers read and write the message model with the codecs generated at build time
     public static ObjectMapper defaultMapper() {
-        if (DEFAULT_MAPPER == null) DEFAULT_MAPPER = new ObjectMapper();
+        if (DEFAULT_MAPPER == null) DEFAULT_MAPPER = new ObjectMapper().registerModule(new JsonCodecModule());
         return DEFAULT_MAPPER;
     }
 
     public static ObjectMapper noFailOnUnknownPropsMapper() {
         if (NO_FAIL_ON_UNKNOWN_MAPPER == null) {
             NO_FAIL_ON_UNKNOWN_MAPPER = new ObjectMapper()
+                    .registerModule(new JsonCodecModule())
                     .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         }
         return NO_FAIL_ON_UNKNOWN_MAPPER;
     }
+
+    // Outbound messages are written with the serializer resolved once, instead of looked up per message
+    public static ObjectWriter eventMessageWriter() {
+        if (EVENT_MESSAGE_WRITER == null) EVENT_MESSAGE_WRITER = defaultMapper().writerFor(EventMessage.class);
+        return EVENT_MESSAGE_WRITER;
+    }
 }
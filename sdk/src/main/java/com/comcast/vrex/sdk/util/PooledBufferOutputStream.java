@@ -0,0 +1,80 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.util;
+
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.util.BufferUtil;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+// Collects what is written into a buffer from the pool, moving to a larger one as it fills up
+public class PooledBufferOutputStream extends OutputStream {
+
+    private final ByteBufferPool bufferPool;
+    private ByteBuffer buffer;
+
+    public PooledBufferOutputStream(ByteBufferPool bufferPool, int initialCapacity) {
+        this.bufferPool = bufferPool;
+        this.buffer = acquire(initialCapacity);
+    }
+
+    @Override
+    public void write(int b) {
+        ensureSpace(1);
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        ensureSpace(length);
+        buffer.put(bytes, offset, length);
+    }
+
+    // Hands over the pooled buffer, ready to be read. The caller releases it to the pool.
+    public ByteBuffer takeBuffer() {
+        ByteBuffer taken = buffer;
+        buffer = null;
+        BufferUtil.flipToFlush(taken, 0);
+        return taken;
+    }
+
+    // Gives the buffer back to the pool when it was not taken
+    public void release() {
+        if (buffer != null) bufferPool.release(buffer);
+        buffer = null;
+    }
+
+    private void ensureSpace(int length) {
+        if (buffer.remaining() >= length) return;
+        ByteBuffer larger = acquire(Math.max(buffer.capacity() * 2, buffer.position() + length));
+        BufferUtil.flipToFlush(buffer, 0);
+        larger.put(buffer);
+        bufferPool.release(buffer);
+        buffer = larger;
+    }
+
+    // In fill mode, so writes go straight in
+    private ByteBuffer acquire(int capacity) {
+        ByteBuffer acquired = bufferPool.acquire(capacity, true);
+        BufferUtil.clearToFill(acquired);
+        return acquired;
+    }
+}
@@ -63,4 +63,26 @@ class AudioConfigTest {
         assertEquals(hfAudio.getTriggeredBy(), TriggeredBy.WUW);
         assertEquals(hfAudio.getWuw(), wakeUpWord);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void wakeUpWordTrimRebasesOffsets() {
+        WakeUpWord samples = WakeUpWord.builder()
+                .withStartOfWakeUpWord(48000 * 3)
+                .withEndOfWakeUpWord(48000 * 4)
+                .withUnit(Unit.SAMPLE)
+                .build();
+        Audio hfAudio = AudioConfig.customConfiguration().withWakeUpWord(samples).withWakeUpWordTrim(500).buildAudio();
+        assertEquals(500, hfAudio.getWuwTrimMargin());
+        assertEquals(3000, samples.getSowuwByMs(48000));
+
+        // 2.5 s trimmed from 48 kHz audio that is sent at 16 kHz
+        WakeUpWord rebased = samples.resample(48000, 16000).rebase(2500, 16000);
+        assertEquals(8000, rebased.getStartOfWakeUpWord());
+        assertEquals(24000, rebased.getEndOfWakeUpWord());
+        assertEquals(500, rebased.getSowuwByMs());
+
+        WakeUpWord millis = WakeUpWord.builder().withStartOfWakeUpWord(100).withEndOfWakeUpWord(780).withUnit(Unit.MS).build();
+        assertEquals(0, millis.rebase(200, 16000).getStartOfWakeUpWord());
+        assertEquals(580, millis.rebase(200, 16000).getEndOfWakeUpWord());
+    }
+}
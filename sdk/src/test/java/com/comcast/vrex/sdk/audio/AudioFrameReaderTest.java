@@ -0,0 +1,91 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.comcast.vrex.sdk.audio;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AudioFrameReaderTest {
+
+    // Hands out a few bytes per read and never reports anything as available, like a live capture source
+    private static InputStream tricklingStream(byte[] data, int bytesPerRead) {
+        return new ByteArrayInputStream(data) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, bytesPerRead));
+            }
+
+            @Override
+            public synchronized int available() {
+                return 0;
+            }
+        };
+    }
+
+    @Test
+    public void readsUntilRealEndOfFile() throws Exception {
+        AudioFrameReader reader = new AudioFrameReader(tricklingStream(new byte[1000], 3), 2);
+        byte[] buffer = new byte[64];
+        long total = 0;
+        int count;
+        while ((count = reader.read(buffer, 0, buffer.length)) != -1) {
+            assertEquals(0, count % 2);
+            total += count;
+        }
+        assertEquals(1000, total);
+        assertEquals(1000, reader.getBytesRead());
+        assertEquals(500, reader.getFramesRead());
+        assertTrue(reader.isEndOfStream());
+    }
+
+    @Test
+    public void returnsTruncatedLastFrame() throws Exception {
+        AudioFrameReader reader = new AudioFrameReader(new ByteArrayInputStream(new byte[5]), 4);
+        byte[] buffer = new byte[8];
+        assertEquals(5, reader.read(buffer, 0, 8));
+        assertEquals(-1, reader.read(buffer, 0, 8));
+        assertEquals(1, reader.getFramesRead());
+    }
+
+    @Test
+    public void rejectsReadsShorterThanAFrame() throws Exception {
+        AudioFrameReader reader = new AudioFrameReader(new ByteArrayInputStream(new byte[8]), 4);
+        assertThrows(IllegalArgumentException.class, () -> reader.read(new byte[8], 0, 3));
+        // Nothing was consumed, so the next read still starts on a frame boundary
+        assertEquals(0, reader.getBytesRead());
+        assertEquals(8, reader.read(new byte[8], 0, 8));
+    }
+
+    @Test
+    public void readsIntoDirectBuffers() throws Exception {
+        AudioFrameReader reader = new AudioFrameReader(new ByteArrayInputStream(new byte[]{1, 2, 3, 4}), 2);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4);
+        assertEquals(4, reader.read(buffer));
+        assertEquals(4, buffer.position());
+        buffer.clear();
+        assertEquals(-1, reader.read(buffer));
+    }
+}
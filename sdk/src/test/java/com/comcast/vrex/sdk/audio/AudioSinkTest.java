@@ -0,0 +1,91 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.comcast.vrex.sdk.audio;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AudioSinkTest {
+
+    @Test
+    public void writeAcceptsOnlyWhatFits() {
+        AudioSink sink = new AudioSink(8);
+        assertEquals(8, sink.write(new byte[12], 0, 12));
+        assertEquals(0, sink.remainingCapacity());
+        assertEquals(0, sink.write(ByteBuffer.allocate(1)));
+    }
+
+    @Test
+    public void readReturnsEndOfAudioOnceDrained() {
+        AudioSink sink = new AudioSink(8);
+        sink.write(new byte[]{1, 2, 3}, 0, 3);
+        sink.complete();
+        ByteBuffer dst = ByteBuffer.allocate(8);
+        assertEquals(3, sink.read(dst, 8));
+        assertEquals(-1, sink.read(dst, 8));
+        assertThrows(IllegalStateException.class, () -> sink.write(new byte[1], 0, 1));
+    }
+
+    @Test
+    public void awaitDataRunsOnNextWrite() {
+        AudioSink sink = new AudioSink(8);
+        AtomicInteger wakeUps = new AtomicInteger();
+        sink.awaitData(wakeUps::incrementAndGet);
+        assertEquals(0, wakeUps.get());
+        sink.write(new byte[]{1}, 0, 1);
+        sink.write(new byte[]{2}, 0, 1);
+        assertEquals(1, wakeUps.get());
+    }
+
+    @Test
+    public void producerAndConsumerThreadsSeeEveryByteInOrder() throws InterruptedException {
+        AudioSink sink = new AudioSink(64);
+        int total = 100_000;
+        Thread producer = new Thread(() -> {
+            byte[] chunk = new byte[7];
+            int next = 0;
+            while (next < total) {
+                int length = Math.min(chunk.length, total - next);
+                for (int i = 0; i < length; i++) chunk[i] = (byte) (next + i);
+                int offset = 0;
+                while (offset < length) offset += sink.write(chunk, offset, length - offset);
+                next += length;
+            }
+            sink.complete();
+        });
+        producer.start();
+
+        ByteBuffer dst = ByteBuffer.allocate(13);
+        int received = 0;
+        int count;
+        while ((count = sink.read(dst, dst.capacity())) != -1) {
+            dst.flip();
+            for (int i = 0; i < count; i++) assertEquals((byte) (received + i), dst.get());
+            received += count;
+            dst.clear();
+        }
+        producer.join();
+        assertEquals(total, received);
+    }
+}
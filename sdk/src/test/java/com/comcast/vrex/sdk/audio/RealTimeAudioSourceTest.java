@@ -0,0 +1,112 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.audio;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFormat;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RealTimeAudioSourceTest {
+
+    private static final AudioFormat FORMAT = new AudioFormat(16000, 16, 1, true, false);
+
+    @Test
+    public void replaysAtTheRateOfTheFormat() throws InterruptedException {
+        RealTimeAudioSource source = RealTimeAudioSource.from(new byte[16000], FORMAT).start();
+        AudioSink sink = source.getSink();
+        Thread.sleep(250);
+        // A quarter of a second in, about half of the audio has been written
+        assertEquals(8000, sink.available(), 3200);
+        assertEquals(16000, drain(sink));
+        long millis = TimeUnit.NANOSECONDS.toMillis(source.getEndOfAudioAt() - source.getStartedAt());
+        assertTrue(millis >= 480 && millis < 1000, "Replay took " + millis + " ms");
+    }
+
+    @Test
+    public void burstsAheadOfThePacedAudio() throws InterruptedException {
+        RealTimeAudioSource source = RealTimeAudioSource.from(new byte[16000], FORMAT).withBurst(300).start();
+        Thread.sleep(50);
+        assertTrue(source.getSink().available() >= 9600);
+        assertEquals(16000, drain(source.getSink()));
+        assertTrue(source.isDone());
+    }
+
+    @Test
+    public void endsRightAfterTheLastByteIsWritten() throws InterruptedException {
+        // The burst is exactly the file, so the first tick writes its last byte; the next tick is a second away
+        RealTimeAudioSource source = RealTimeAudioSource.from(new byte[16000], FORMAT)
+                .withFrameDuration(1000).withBurst(500).start();
+        Thread.sleep(200);
+        try {
+            assertTrue(source.isDone());
+            assertEquals(16000, source.getSink().available());
+            long millis = TimeUnit.NANOSECONDS.toMillis(source.getEndOfAudioAt() - source.getStartedAt());
+            assertTrue(millis < 100, "End of audio stamped " + millis + " ms after the start");
+        } finally {
+            source.close();
+        }
+    }
+
+    @Test
+    public void aSlowConsumerDoesNotHoldUpOtherSources() throws InterruptedException {
+        RealTimeAudioSource slow = RealTimeAudioSource.from(new byte[16000], FORMAT).start();
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        slow.getSink().awaitData(() -> {
+            blocked.countDown();
+            awaitQuietly(release);
+        });
+        try {
+            assertTrue(blocked.await(1, TimeUnit.SECONDS));
+            RealTimeAudioSource source = RealTimeAudioSource.from(new byte[16000], FORMAT).start();
+            Thread.sleep(250);
+            assertEquals(8000, source.getSink().available(), 3200);
+            source.close();
+        } finally {
+            release.countDown();
+            slow.close();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static int drain(AudioSink sink) throws InterruptedException {
+        ByteBuffer dst = ByteBuffer.allocate(64 * 1024);
+        int total = 0;
+        int count;
+        while ((count = sink.read(dst, dst.remaining())) != -1) {
+            total += count;
+            if (count == 0) Thread.sleep(5);
+        }
+        return total;
+    }
+}
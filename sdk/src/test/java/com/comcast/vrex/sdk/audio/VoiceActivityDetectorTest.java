@@ -0,0 +1,98 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.comcast.vrex.sdk.audio;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VoiceActivityDetectorTest {
+
+    private static final int BYTES_PER_MS = 32;
+
+    @Test
+    public void trimsLeadingSilenceAndEndsAfterTrailingSilence() {
+        ByteBuffer audio = utterance(1000, 600, 2000);
+        VoiceActivityDetector vad = new VoiceActivityDetector(-45, 800, 300, true);
+        ByteBuffer kept = ByteBuffer.allocate(vad.maxOutputSize(audio.remaining()));
+        int fed = 0;
+        while (audio.hasRemaining() && !vad.isEndOfSpeech()) {
+            ByteBuffer chunk = audio.duplicate();
+            chunk.limit(Math.min(audio.limit(), audio.position() + 700));
+            fed += chunk.remaining();
+            vad.process(chunk, kept);
+            audio.position(chunk.position());
+        }
+        assertTrue(vad.isEndOfSpeech());
+        // Padding ahead of the onset, the utterance and the trailing silence window
+        assertEquals((300 + 20 + 600 + 800) * BYTES_PER_MS, kept.position(), 20 * BYTES_PER_MS);
+        assertEquals((1000 - 300 - 20) * BYTES_PER_MS, vad.getTrimmedBytes(), 20 * BYTES_PER_MS);
+        // The source is no longer read once the speech is over
+        assertTrue(fed < (1000 + 600 + 800 + 100) * BYTES_PER_MS);
+    }
+
+    @Test
+    public void keepsLeadingSilenceWhenNotTrimming() {
+        ByteBuffer audio = utterance(500, 400, 1000);
+        VoiceActivityDetector vad = new VoiceActivityDetector(-45, 500, 300, false);
+        ByteBuffer kept = ByteBuffer.allocate(vad.maxOutputSize(audio.remaining()));
+        vad.process(audio, kept);
+        assertTrue(vad.isEndOfSpeech());
+        assertEquals((500 + 400 + 500) * BYTES_PER_MS, kept.position(), 20 * BYTES_PER_MS);
+        assertEquals(0, vad.getTrimmedBytes());
+    }
+
+    @Test
+    public void quietFricativesDoNotEndTheUtterance() {
+        ByteBuffer audio = ByteBuffer.allocate((300 + 400 + 400) * BYTES_PER_MS).order(ByteOrder.LITTLE_ENDIAN);
+        Random random = new Random(7);
+        tone(audio, 300, 3000);
+        // White noise just under the threshold crosses zero on about half the samples
+        for (int i = 0; i < 400 * 16; i++) audio.putShort((short) (random.nextGaussian() * 120));
+        tone(audio, 400, 3000);
+        audio.flip();
+        VoiceActivityDetector vad = new VoiceActivityDetector(-45, 300, 0, false);
+        vad.process(audio, ByteBuffer.allocate(vad.maxOutputSize(audio.remaining())));
+        assertTrue(vad.isSpeechStarted());
+        assertFalse(vad.isEndOfSpeech());
+    }
+
+    private static ByteBuffer utterance(int leadingMillis, int speechMillis, int trailingMillis) {
+        ByteBuffer audio = ByteBuffer.allocate((leadingMillis + speechMillis + trailingMillis) * BYTES_PER_MS)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        Random random = new Random(1);
+        for (int i = 0; i < leadingMillis * 16; i++) audio.putShort((short) (random.nextGaussian() * 20));
+        tone(audio, speechMillis, 4000);
+        for (int i = 0; i < trailingMillis * 16; i++) audio.putShort((short) (random.nextGaussian() * 20));
+        audio.flip();
+        return audio;
+    }
+
+    private static void tone(ByteBuffer audio, int millis, int amplitude) {
+        for (int i = 0; i < millis * 16; i++) {
+            audio.putShort((short) (amplitude * Math.sin(2 * Math.PI * 220 * i / 16000.0)));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.comcast.vrex.sdk.audio;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WavFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static byte[] wav(int formatTag, int channels, int sampleRate, int bits, byte[] data, boolean extraChunk) {
+        ByteBuffer buffer = ByteBuffer.allocate(64 + data.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(0).put("WAVE".getBytes(StandardCharsets.US_ASCII));
+        buffer.put("fmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16)
+                .putShort((short) formatTag).putShort((short) channels).putInt(sampleRate)
+                .putInt(sampleRate * channels * bits / 8).putShort((short) (channels * bits / 8)).putShort((short) bits);
+        if (extraChunk) {
+            buffer.put("LIST".getBytes(StandardCharsets.US_ASCII)).putInt(3).put(new byte[]{1, 2, 3, 0});
+        }
+        buffer.put("data".getBytes(StandardCharsets.US_ASCII)).putInt(data.length).put(data);
+        byte[] bytes = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @Test
+    public void parsesHeaderAndMapsDataChunk() throws IOException {
+        Path path = Files.write(tempDir.resolve("stereo.wav"), wav(1, 2, 8000, 16, new byte[]{1, 2, 3, 4, 5, 6, 7, 8}, true));
+        WavFile wavFile = WavFile.open(path);
+
+        assertEquals(8000f, wavFile.getFormat().getSampleRate());
+        assertEquals(2, wavFile.getFormat().getChannels());
+        assertEquals(4, wavFile.getFrameSize());
+        assertEquals(8, wavFile.getDataLength());
+
+        ByteBuffer slice = wavFile.slice(4, 4);
+        assertEquals(4, slice.remaining());
+        assertEquals(5, slice.get());
+    }
+
+    @Test
+    public void readsAnUnsetDataSizeToTheEndOfTheFile() throws IOException {
+        byte[] data = {1, 2, 3, 4, 5, 6};
+        for (int unset : new int[]{0, 0xFFFFFFFF}) {
+            byte[] bytes = wav(1, 1, 16000, 16, data, true);
+            ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(bytes.length - data.length - 4, unset);
+            WavFile wavFile = WavFile.open(Files.write(tempDir.resolve("streamed-" + unset + ".wav"), bytes));
+
+            assertEquals(6, wavFile.getDataLength());
+            assertEquals(1, wavFile.slice(0, 6).get());
+        }
+    }
+
+    @Test
+    public void treatsHeaderlessFilesAsRawPcm() throws IOException {
+        Path path = Files.write(tempDir.resolve("audio.pcm"), new byte[100]);
+        WavFile wavFile = WavFile.open(path);
+
+        assertEquals(16000f, wavFile.getFormat().getSampleRate());
+        assertEquals(100, wavFile.getDataLength());
+    }
+
+    @Test
+    public void rejectsCompressedWavFiles() throws IOException {
+        Path path = Files.write(tempDir.resolve("ulaw.wav"), wav(7, 1, 8000, 8, new byte[4], false));
+        assertThrows(IOException.class, () -> WavFile.open(path));
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.comcast.vrex.sdk.audio.codec;
+
+import com.comcast.vrex.sdk.messageModel.send.Codec;
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AudioEncoderTest {
+
+    private static final int[] STEP_TABLE = {
+            7, 8, 9, 10, 11, 12, 13, 14, 16, 17, 19, 21, 23, 25, 28, 31, 34, 37, 41, 45,
+            50, 55, 60, 66, 73, 80, 88, 97, 107, 118, 130, 143, 157, 173, 190, 209, 230, 253, 279, 307,
+            337, 371, 408, 449, 494, 544, 598, 658, 724, 796, 876, 963, 1060, 1166, 1282, 1411, 1552, 1707, 1878, 2066,
+            2272, 2499, 2749, 3024, 3327, 3660, 4026, 4428, 4871, 5358, 5894, 6484, 7132, 7845, 8630, 9493, 10442, 11487, 12635, 13899,
+            15289, 16818, 18500, 20350, 22385, 24623, 27086, 29794, 32767
+    };
+    private static final int[] INDEX_TABLE = {-1, -1, -1, -1, 2, 4, 6, 8};
+
+    @Test
+    public void muLawMatchesJavaSoundForSteadyLevels() throws IOException {
+        for (short level : new short[]{0, 1, 100, -100, 1000, -1000, 12345, -12345, 32000, -32000}) {
+            byte[] pcm = constant(level, 8);
+            byte[] encoded = encode(new MuLawEncoder(), pcm);
+            assertEquals(4, encoded.length);
+            // The first output still sees the filter's zero history, so compare the steady state
+            assertEquals(javaSoundMuLaw(level), encoded[3], "level " + level);
+        }
+        // Java Sound overflows at full scale, G.711 clips
+        assertEquals((byte) 0x80, MuLawEncoder.encodeSample(Short.MAX_VALUE));
+        assertEquals((byte) 0x00, MuLawEncoder.encodeSample(Short.MIN_VALUE));
+    }
+
+    @Test
+    public void encodersCarrySplitSamplesAcrossChunks() {
+        byte[] pcm = sine(1601);
+        for (AudioEncoder[] pair : new AudioEncoder[][]{
+                {new MuLawEncoder(), new MuLawEncoder()}, {new ImaAdpcmEncoder(), new ImaAdpcmEncoder()}}) {
+            byte[] whole = encode(pair[0], pcm);
+            ByteBuffer out = ByteBuffer.allocate(pcm.length);
+            for (int offset = 0, size = 1; offset < pcm.length; offset += size, size = size % 7 + 1) {
+                ByteBuffer chunk = ByteBuffer.wrap(pcm, offset, Math.min(size, pcm.length - offset)).slice();
+                pair[1].encode(chunk);
+                out.put(chunk);
+            }
+            byte[] split = new byte[out.position()];
+            ((ByteBuffer) out.flip()).get(split);
+            assertArrayEquals(whole, split, pair[0].getCodec().name());
+        }
+    }
+
+    @Test
+    public void adpcmDecodesCloseToTheInput() {
+        byte[] pcm = sine(1600);
+        byte[] encoded = encode(new ImaAdpcmEncoder(), pcm);
+        assertEquals(pcm.length / 4, encoded.length);
+
+        ByteBuffer samples = ByteBuffer.wrap(pcm).order(ByteOrder.LITTLE_ENDIAN);
+        int predictor = 0;
+        int index = 0;
+        long error = 0;
+        for (int i = 0; i < encoded.length * 2; i++) {
+            int nibble = (encoded[i / 2] >> ((i % 2) * 4)) & 0x0F;
+            int step = STEP_TABLE[index];
+            int delta = step >> 3;
+            if ((nibble & 4) != 0) delta += step;
+            if ((nibble & 2) != 0) delta += step >> 1;
+            if ((nibble & 1) != 0) delta += step >> 2;
+            predictor = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, predictor + ((nibble & 8) != 0 ? -delta : delta)));
+            index = Math.max(0, Math.min(88, index + INDEX_TABLE[nibble & 7]));
+            // Skip the attack while the step size adapts
+            if (i >= 100) error += Math.abs(predictor - samples.getShort(i * 2));
+        }
+        assertTrue(error / (encoded.length * 2 - 100) < 200, "mean error " + error / (encoded.length * 2 - 100));
+    }
+
+    @Test
+    public void onlyCompressedCodecsHaveAnEncoder() {
+        assertNull(AudioEncoder.forCodec(Codec.PCM_16_16K));
+        assertTrue(AudioEncoder.isPcm16k(new AudioFormat(16000, 16, 1, true, false)));
+        assertFalse(AudioEncoder.isPcm16k(new AudioFormat(8000, 16, 1, true, false)));
+    }
+
+    private static byte[] encode(AudioEncoder encoder, byte[] pcm) {
+        ByteBuffer buffer = ByteBuffer.wrap(pcm.clone());
+        encoder.encode(buffer);
+        byte[] encoded = new byte[buffer.remaining()];
+        buffer.get(encoded);
+        return encoded;
+    }
+
+    private static byte[] constant(short level, int samples) {
+        ByteBuffer buffer = ByteBuffer.allocate(samples * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < samples; i++) buffer.putShort(level);
+        return buffer.array();
+    }
+
+    private static byte[] sine(int samples) {
+        ByteBuffer buffer = ByteBuffer.allocate(samples * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < samples; i++) {
+            buffer.putShort((short) (8000 * Math.sin(2 * Math.PI * 300 * i / 16000.0)));
+        }
+        return buffer.array();
+    }
+
+    private static byte javaSoundMuLaw(short level) throws IOException {
+        AudioFormat pcmFormat = new AudioFormat(8000, 16, 1, true, false);
+        AudioInputStream pcm = new AudioInputStream(new ByteArrayInputStream(constant(level, 8)), pcmFormat, 8);
+        AudioInputStream ulaw = AudioSystem.getAudioInputStream(AudioFormat.Encoding.ULAW, pcm);
+        byte[] out = new byte[8];
+        assertEquals(8, ulaw.read(out));
+        return out[7];
+    }
+}
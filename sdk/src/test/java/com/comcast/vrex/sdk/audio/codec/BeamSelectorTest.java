@@ -0,0 +1,118 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.comcast.vrex.sdk.audio.codec;
+
+import com.comcast.vrex.sdk.messageModel.send.Beam;
+import com.comcast.vrex.sdk.messageModel.send.Detector;
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFormat;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BeamSelectorTest {
+
+    private static final AudioFormat FOUR_CHANNELS = new AudioFormat(16000, 16, 4, true, false);
+
+    @Test
+    public void selectsOneChannel() {
+        BeamSelector selector = BeamSelector.select(FOUR_CHANNELS, 2);
+        assertArrayEquals(new short[]{102, 202, 302}, process(selector, interleaved(3, 4)));
+        assertEquals(1, selector.getOutputFormat().getChannels());
+        assertEquals(2, selector.getOutputFormat().getFrameSize());
+    }
+
+    @Test
+    public void mixesChannelsByWeight() {
+        BeamSelector mixer = BeamSelector.mix(FOUR_CHANNELS, 1, 0, 0, 3);
+        // (100 + 3 * 103) / 4 rounded
+        assertArrayEquals(new short[]{102, 202}, process(mixer, interleaved(2, 4)));
+    }
+
+    @Test
+    public void carriesSplitFramesAcrossChunks() {
+        byte[] pcm = new byte[8 * 101];
+        for (int i = 0; i < pcm.length; i++) pcm[i] = (byte) (i * 37);
+        for (BeamSelector[] pair : new BeamSelector[][]{
+                {BeamSelector.select(FOUR_CHANNELS, 0), BeamSelector.select(FOUR_CHANNELS, 0)},
+                {BeamSelector.select(FOUR_CHANNELS, 3), BeamSelector.select(FOUR_CHANNELS, 3)},
+                {BeamSelector.mix(FOUR_CHANNELS, 1, 2, 3, 4), BeamSelector.mix(FOUR_CHANNELS, 1, 2, 3, 4)}}) {
+            short[] whole = process(pair[0], ByteBuffer.wrap(pcm.clone()));
+            ByteBuffer out = ByteBuffer.allocate(pcm.length);
+            for (int offset = 0, size = 1; offset < pcm.length; offset += size, size = size % 11 + 1) {
+                ByteBuffer chunk = ByteBuffer.wrap(pcm.clone(), offset, Math.min(size, pcm.length - offset)).slice();
+                pair[1].process(chunk);
+                out.put(chunk);
+            }
+            out.flip();
+            // A sample completed by a chunk too short to hold it waits for the next chunk
+            short[] split = toShorts(out);
+            assertTrue(split.length >= whole.length - 1);
+            assertArrayEquals(Arrays.copyOf(whole, split.length), split);
+        }
+    }
+
+    @Test
+    public void followsTheDetector() {
+        Detector detector = Detector.builder().withSelectedBeam(1).build();
+        assertArrayEquals(new short[]{101}, process(BeamSelector.forDetector(FOUR_CHANNELS, detector), interleaved(1, 4)));
+
+        List<Beam> beams = new ArrayList<>();
+        for (int confidence : new int[]{0, 0, 50, 50}) {
+            Beam beam = new Beam();
+            beam.setConfidence(confidence);
+            beams.add(beam);
+        }
+        detector = Detector.builder().withBeams(beams).build();
+        // (102 + 103) / 2 rounded
+        assertArrayEquals(new short[]{103}, process(BeamSelector.forDetector(FOUR_CHANNELS, detector), interleaved(1, 4)));
+
+        assertNull(BeamSelector.forDetector(FOUR_CHANNELS, new Detector()));
+        assertNull(BeamSelector.forDetector(new AudioFormat(16000, 16, 1, true, false), detector));
+    }
+
+    // Sample value 100 * frame + channel
+    private static ByteBuffer interleaved(int frames, int channels) {
+        ByteBuffer buffer = ByteBuffer.allocate(frames * channels * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (int f = 1; f <= frames; f++) {
+            for (int c = 0; c < channels; c++) buffer.putShort((short) (100 * f + c));
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static short[] process(BeamSelector selector, ByteBuffer pcm) {
+        selector.process(pcm);
+        return toShorts(pcm);
+    }
+
+    private static short[] toShorts(ByteBuffer buffer) {
+        short[] samples = new short[buffer.remaining() / 2];
+        buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(samples);
+        return samples;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.comcast.vrex.sdk.audio.codec;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFormat;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PcmConverterTest {
+
+    @Test
+    public void downsamplesAndDownmixesStereo48k() {
+        AudioFormat format = new AudioFormat(48000, 16, 2, true, false);
+        ByteBuffer src = ByteBuffer.allocate(48000 * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < 48000; i++) {
+            short sample = (short) (10000 * Math.sin(2 * Math.PI * 1000 * i / 48000.0));
+            src.putShort(sample).putShort(sample);
+        }
+        short[] out = convert(new PcmConverter(format), (ByteBuffer) src.flip());
+        assertEquals(16000, out.length);
+        assertEquals(10000 / Math.sqrt(2), rms(out, 1000), 150);
+    }
+
+    @Test
+    public void removesContentAboveTheNewNyquistRate() {
+        AudioFormat format = new AudioFormat(48000, 16, 1, true, false);
+        ByteBuffer src = ByteBuffer.allocate(48000 * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < 48000; i++) {
+            src.putShort((short) (10000 * Math.sin(2 * Math.PI * 12000 * i / 48000.0)));
+        }
+        short[] out = convert(new PcmConverter(format), (ByteBuffer) src.flip());
+        assertTrue(rms(out, 1000) < 200, "rms " + rms(out, 1000));
+    }
+
+    @Test
+    public void upsamplesAndWidensEightBitAudio() {
+        AudioFormat format = new AudioFormat(8000, 8, 1, false, false);
+        ByteBuffer src = ByteBuffer.allocate(8000);
+        for (int i = 0; i < 8000; i++) {
+            src.put((byte) (128 + 60 * Math.sin(2 * Math.PI * 500 * i / 8000.0)));
+        }
+        short[] out = convert(new PcmConverter(format), (ByteBuffer) src.flip());
+        assertEquals(16000, out.length);
+        assertEquals(60 * 256 / Math.sqrt(2), rms(out, 1000), 300);
+    }
+
+    @Test
+    public void convertsFloatAnd24BitSamples() {
+        ByteBuffer floats = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putFloat(0.5f).putFloat(-0.25f);
+        short[] out = convert(new PcmConverter(new AudioFormat(AudioFormat.Encoding.PCM_FLOAT, 16000, 32, 1, 4, 16000, false)),
+                (ByteBuffer) floats.flip());
+        assertArrayEquals(new short[]{16384, -8192}, out);
+
+        ByteBuffer packed = ByteBuffer.wrap(new byte[]{0x12, 0x34, 0x56, (byte) 0x80, 0x00, 0x00});
+        out = convert(new PcmConverter(new AudioFormat(16000, 24, 1, true, true)), packed);
+        assertArrayEquals(new short[]{0x1234, Short.MIN_VALUE}, out);
+    }
+
+    @Test
+    public void carriesPartialFramesAcrossChunks() {
+        AudioFormat format = new AudioFormat(44100, 16, 2, true, false);
+        byte[] pcm = new byte[4410 * 4];
+        for (int i = 0; i < pcm.length; i++) pcm[i] = (byte) (i * 31);
+        short[] whole = convert(new PcmConverter(format), ByteBuffer.wrap(pcm));
+        assertEquals(1600, whole.length, 1);
+
+        PcmConverter converter = new PcmConverter(format);
+        ByteBuffer dst = ByteBuffer.allocate(whole.length * 2 + 16);
+        for (int offset = 0, size = 1; offset < pcm.length; offset += size, size = size % 13 + 1) {
+            ByteBuffer chunk = ByteBuffer.wrap(pcm, offset, Math.min(size, pcm.length - offset));
+            converter.convert(chunk, dst);
+        }
+        assertArrayEquals(whole, toShorts((ByteBuffer) dst.flip()));
+    }
+
+    @Test
+    public void rejectsUnsupportedFormats() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PcmConverter(new AudioFormat(AudioFormat.Encoding.ULAW, 8000, 8, 1, 1, 8000, false)));
+    }
+
+    private static short[] convert(PcmConverter converter, ByteBuffer src) {
+        ByteBuffer dst = ByteBuffer.allocate(converter.maxOutputSize(src.remaining()));
+        converter.convert(src, dst);
+        return toShorts((ByteBuffer) dst.flip());
+    }
+
+    private static short[] toShorts(ByteBuffer buffer) {
+        short[] samples = new short[buffer.remaining() / 2];
+        buffer.order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(samples);
+        return samples;
+    }
+
+    // Skips the filter's start-up transient
+    private static double rms(short[] samples, int from) {
+        double sum = 0;
+        for (int i = from; i < samples.length; i++) sum += (double) samples[i] * samples[i];
+        return Math.sqrt(sum / (samples.length - from));
+    }
+}
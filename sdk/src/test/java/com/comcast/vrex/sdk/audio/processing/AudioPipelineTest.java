@@ -0,0 +1,116 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.audio.processing;
+
+import com.comcast.vrex.sdk.audio.codec.MuLawEncoder;
+import com.comcast.vrex.sdk.audio.codec.PcmConverter;
+import org.eclipse.jetty.util.BufferUtil;
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFormat;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class AudioPipelineTest {
+
+    @Test
+    public void passesBuffersThroughStagesAndCountsBytes() {
+        TestContext context = new TestContext();
+        AudioPipeline pipeline = new AudioPipeline(Arrays.asList(
+                new PcmConverter(new AudioFormat(32000, 16, 2, true, false)),
+                new AudioTrimmer(320),
+                new MuLawEncoder()), context);
+
+        ByteBuffer chunk = context.acquire(6400);
+        BufferUtil.append(chunk, new byte[6400], 0, 6400);
+        ByteBuffer sent = pipeline.process(chunk);
+
+        // The converter hands over a buffer of its own and releases the input; the others work in place
+        assertEquals(1, context.released.size());
+        assertSame(chunk, context.released.get(0));
+        List<AudioPipeline.StageMetrics> stages = pipeline.getStageMetrics();
+        assertEquals("PcmConverter", stages.get(0).getName());
+        assertEquals(6400, stages.get(0).getBytesIn());
+        assertEquals(1600, stages.get(1).getBytesIn());
+        assertEquals(1280, stages.get(1).getBytesOut());
+        assertEquals(320, stages.get(2).getBytesOut());
+        assertEquals(320, sent.remaining());
+        for (AudioPipeline.StageMetrics stage : stages) assertEquals(1, stage.getChunks());
+    }
+
+    @Test
+    public void releasesChunksLeftEmpty() {
+        TestContext context = new TestContext();
+        AudioPipeline pipeline = new AudioPipeline(Arrays.asList(new AudioTrimmer(1000), new MuLawEncoder()), context);
+
+        ByteBuffer chunk = context.acquire(640);
+        BufferUtil.append(chunk, new byte[640], 0, 640);
+        assertNull(pipeline.process(chunk));
+        assertSame(chunk, context.released.get(0));
+        // Stages after the one that emptied the chunk are skipped
+        assertEquals(0, pipeline.getStageMetrics().get(1).getChunks());
+    }
+
+    @Test
+    public void stagesMayEndTheStream() {
+        TestContext context = new TestContext();
+        AudioProcessor endAfterFirstChunk = (chunk, ctx) -> {
+            ctx.endOfStream(1);
+            return chunk;
+        };
+        AudioPipeline pipeline = new AudioPipeline(Arrays.asList(endAfterFirstChunk, new MuLawEncoder()), context);
+
+        ByteBuffer chunk = context.acquire(64);
+        BufferUtil.append(chunk, new byte[64], 0, 64);
+        assertEquals(16, pipeline.process(chunk).remaining());
+        assertEquals(1, context.endOfStreamReason);
+    }
+
+    private static class TestContext implements AudioContext {
+        private final List<ByteBuffer> released = new ArrayList<>();
+        private int endOfStreamReason = -1;
+
+        @Override
+        public String getTrx() {
+            return "test";
+        }
+
+        @Override
+        public ByteBuffer acquire(int size) {
+            return BufferUtil.allocateDirect(size);
+        }
+
+        @Override
+        public void release(ByteBuffer buffer) {
+            released.add(buffer);
+        }
+
+        @Override
+        public void endOfStream(int reason) {
+            endOfStreamReason = reason;
+        }
+    }
+}
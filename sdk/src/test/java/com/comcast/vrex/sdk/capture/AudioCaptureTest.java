@@ -0,0 +1,168 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.capture;
+
+import com.comcast.vrex.sdk.config.SpeechConfiguration;
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AudioCaptureTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void readsBackTheFramesOfATrxInOrder() throws Exception {
+        AudioCapture capture = AudioCapture.open(config(1024 * 1024, 1024 * 1024), new MappedByteBufferPool());
+        CaptureTap first = capture.tap("first");
+        CaptureTap second = capture.tap("second");
+        first.text(ByteBuffer.wrap("{\"msgType\":\"init\"}".getBytes(StandardCharsets.UTF_8)));
+        ByteBuffer frame = ByteBuffer.allocateDirect(4).put(new byte[]{1, 2, 3, 4});
+        frame.flip();
+        first.audio(frame);
+        second.audio(ByteBuffer.wrap(new byte[]{9, 9}));
+        first.audio(ByteBuffer.wrap(new byte[]{5, 6}));
+        capture.close();
+
+        // The sent frame is left for the connection to write
+        assertEquals(4, frame.remaining());
+        List<CaptureRecord> records = CaptureReader.read(directory, "first");
+        assertEquals(3, records.size());
+        assertEquals(CaptureRecord.Kind.TEXT, records.get(0).getKind());
+        assertEquals("{\"msgType\":\"init\"}", records.get(0).getText());
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6}, CaptureReader.readAudio(directory, "first"));
+        assertArrayEquals(new byte[]{9, 9}, CaptureReader.readAudio(directory, "second"));
+        assertEquals(0, capture.getSkippedFrames());
+    }
+
+    @Test
+    public void deletesTheOldestSegmentsPastTheDiskLimit() throws Exception {
+        AudioCapture capture = AudioCapture.open(config(1024, 4096), new MappedByteBufferPool());
+        for (int i = 0; i < 50; i++) {
+            capture.tap("trx-" + i).audio(ByteBuffer.wrap(new byte[200]));
+        }
+        capture.close();
+
+        List<Long> segments = CaptureLog.listSegments(directory);
+        assertTrue(segments.size() <= 4);
+        assertTrue(CaptureReader.read(directory, "trx-0").isEmpty());
+        assertEquals(200, CaptureReader.readAudio(directory, "trx-49").length);
+    }
+
+    @Test
+    public void tapsOnlySampledSessions() throws Exception {
+        SpeechConfiguration.Capture config = config(1024, 4096);
+        config.setSampleRate(0);
+        AudioCapture capture = AudioCapture.open(config, new MappedByteBufferPool());
+        assertNull(capture.tap("trx"));
+        capture.close();
+    }
+
+    @Test
+    public void releasesAFrameQueuedWhileClosing() throws Exception {
+        CountDownLatch acquiring = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger outstanding = new AtomicInteger();
+        // The copy is acquired between the closed check and the enqueue, which is where close() can slip in
+        AudioCapture capture = AudioCapture.open(config(1024, 4096), new MappedByteBufferPool() {
+            @Override
+            public ByteBuffer acquire(int size, boolean direct) {
+                acquiring.countDown();
+                awaitQuietly(release);
+                outstanding.incrementAndGet();
+                return super.acquire(size, direct);
+            }
+
+            @Override
+            public void release(ByteBuffer buffer) {
+                outstanding.decrementAndGet();
+                super.release(buffer);
+            }
+        });
+        CaptureTap tap = capture.tap("trx");
+        Thread producer = new Thread(() -> tap.audio(ByteBuffer.wrap(new byte[200])));
+        producer.start();
+        assertTrue(acquiring.await(1, TimeUnit.SECONDS));
+        capture.close();
+        release.countDown();
+        producer.join();
+
+        assertEquals(0, outstanding.get());
+        assertEquals(1, capture.getSkippedFrames());
+    }
+
+    @Test
+    public void idleWriterWaitsWithoutPolling() throws Exception {
+        AudioCapture capture = AudioCapture.open(config(1024 * 1024, 1024 * 1024), new MappedByteBufferPool());
+        try {
+            Thread writer = awaitWriterParked();
+            assertEquals(Thread.State.WAITING, writer.getState());
+
+            capture.tap("trx").audio(ByteBuffer.wrap(new byte[200]));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (capture.getCapturedBytes() < 200 && System.nanoTime() < deadline) Thread.sleep(1);
+            assertEquals(200, capture.getCapturedBytes());
+        } finally {
+            capture.close();
+        }
+    }
+
+    private static Thread awaitWriterParked() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (thread.getName().equals("speech-capture") && thread.getState() != Thread.State.RUNNABLE) return thread;
+            }
+            Thread.sleep(5);
+        }
+        throw new AssertionError("Capture writer did not park");
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private SpeechConfiguration.Capture config(int segmentSize, long maxDiskUsage) {
+        SpeechConfiguration.Capture config = new SpeechConfiguration.Capture();
+        config.setEnabled(true);
+        config.setDirectory(directory.toString());
+        config.setSegmentSize(segmentSize);
+        config.setMaxDiskUsage(maxDiskUsage);
+        return config;
+    }
+}
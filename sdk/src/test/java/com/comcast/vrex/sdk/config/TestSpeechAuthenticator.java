@@ -22,6 +22,8 @@ import com.comcast.vrex.sdk.auth.AuthResponse;
 import com.comcast.vrex.sdk.auth.SpeechAuthenticator;
 
 public class TestSpeechAuthenticator extends SpeechAuthenticator {
+    private volatile String currentToken = "some-token";
+
     @Override
     public AuthResponse getAuthResponse() {
         return this.authResponse;
@@ -32,11 +34,16 @@ public class TestSpeechAuthenticator extends SpeechAuthenticator {
         this.authResponse = new AuthResponse() {
             @Override
             public String getToken() {
-                return "some-token";
+                return currentToken;
             }
         };
     }
 
+    // Stands in for a renewed SAT token
+    public void rotateToken(String token) {
+        this.currentToken = token;
+    }
+
     @Override
     public void scheduleTokenFetching() throws Exception {
     }
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.message;
+
+import com.comcast.vrex.sdk.audio.AudioConfig;
+import com.comcast.vrex.sdk.config.SpeechConfiguration;
+import com.comcast.vrex.sdk.messageModel.common.EventMessage;
+import com.comcast.vrex.sdk.messageModel.common.MessageType;
+import com.comcast.vrex.sdk.messageModel.send.InitMessage;
+import com.comcast.vrex.sdk.messageModel.send.InitPayload;
+import com.comcast.vrex.sdk.messageModel.send.Roles;
+import com.comcast.vrex.sdk.util.ObjectMappers;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.junit.jupiter.api.Test;
+import org.yaml.snakeyaml.Yaml;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InitTemplateTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = ObjectMappers.defaultMapper();
+
+    @Test
+    public void rendersTheInitMessageOfTheSession() throws Exception {
+        InitPayloadBuilder builder = InitPayloadBuilder.fromEmptyInitPayload()
+                .withRoles(Roles.INPUT)
+                .withCapabilities("WBW")
+                .withAudio(AudioConfig.fromDefaultPttConfig());
+        InitTemplate template = InitTemplate.of("ptt", builder);
+
+        InitPayload expected = builder.withDeviceId("device").withAccountId("account").withContextCapability().buildMessage();
+        builder.refreshIds();
+        JsonNode expectedTree = OBJECT_MAPPER.valueToTree(EventMessage.typed("a\"trx", MessageType.INIT, new InitMessage(expected)));
+
+        JsonNode rendered = render(template, "a\"trx", true, "device", "account");
+        long created = rendered.get("created").asLong();
+        assertTrue(created > 0);
+        assertEquals(created, rendered.at("/msgPayload/elements/0/audio/created").asLong());
+        ((ObjectNode) expectedTree).put("created", created);
+        ((ObjectNode) expectedTree.at("/msgPayload/elements/0/audio")).put("created", created);
+        assertEquals(expectedTree, rendered);
+
+        JsonNode withoutContext = render(template, "trx", false, "other", "account");
+        assertEquals("[\"WBW\"]", withoutContext.at("/msgPayload/elements/0/capabilities").toString());
+        assertEquals("other", withoutContext.at("/msgPayload/elements/0/id/values/0/value").asText());
+    }
+
+    @Test
+    public void loadsTemplatesFromTheConfiguration() throws Exception {
+        SpeechConfiguration configuration = new Yaml().loadAs("initTemplates:\n"
+                + "  hf:\n"
+                + "    roles: [input]\n"
+                + "    language: eng-USA\n"
+                + "    audio:\n"
+                + "      envoyCodec: PCM_16_16K\n", SpeechConfiguration.class);
+        InitTemplates templates = InitTemplates.fromConfiguration(configuration);
+        assertNull(templates.get("ptt"));
+
+        JsonNode rendered = render(templates.get("hf"), "trx", false, "device", "account");
+        assertEquals("eng-USA", rendered.at("/msgPayload/elements/0/language").asText());
+        assertEquals("input", rendered.at("/msgPayload/elements/0/roles/0").asText().toLowerCase());
+    }
+
+    private JsonNode render(InitTemplate template, String trx, boolean context, String deviceId, String accountId)
+            throws Exception {
+        ByteBuffer frame = template.render(new MappedByteBufferPool(), trx, context, deviceId, accountId, null);
+        return OBJECT_MAPPER.readTree(StandardCharsets.UTF_8.decode(frame).toString());
+    }
+}
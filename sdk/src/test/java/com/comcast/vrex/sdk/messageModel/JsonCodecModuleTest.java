@@ -0,0 +1,104 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.messageModel;
+
+import com.comcast.vrex.sdk.audio.AudioConfig;
+import com.comcast.vrex.sdk.message.InitPayloadBuilder;
+import com.comcast.vrex.sdk.messageModel.receive.VrexResponse;
+import com.comcast.vrex.sdk.messageModel.receive.WbwResponse;
+import com.comcast.vrex.sdk.messageModel.send.Detector;
+import com.comcast.vrex.sdk.messageModel.send.InitPayload;
+import com.comcast.vrex.sdk.messageModel.send.Roles;
+import com.comcast.vrex.sdk.messageModel.send.Unit;
+import com.comcast.vrex.sdk.messageModel.send.WakeUpWord;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// The generated codecs must read and write exactly what Jackson's own bean codecs do
+class JsonCodecModuleTest {
+
+    private static final ObjectMapper REFLECTIVE = new ObjectMapper();
+    private static final ObjectMapper GENERATED = new ObjectMapper().registerModule(new JsonCodecModule());
+
+    @Test
+    public void writesLikeJackson() throws Exception {
+        InitPayload payload = InitPayloadBuilder.fromEmptyInitPayload()
+                .withRoles(Roles.INPUT)
+                .withAudio(AudioConfig.fromDefaultPttConfig())
+                .withDeviceId("device")
+                .withAccountId("account")
+                .withContextCapability()
+                .buildMessage();
+        payload.getAudio().setWuw(WakeUpWord.builder()
+                .withUnit(Unit.SAMPLE)
+                .withStartOfWakeUpWord(100)
+                .withEndOfWakeUpWord(2000)
+                .withDetector(Detector.builder().withVendor("v").withChannel(2).build())
+                .build());
+        assertEquals(REFLECTIVE.writeValueAsString(payload), GENERATED.writeValueAsString(payload));
+
+        WbwResponse wbw = new WbwResponse();
+        assertEquals(REFLECTIVE.writeValueAsString(wbw), GENERATED.writeValueAsString(wbw));
+
+        VrexResponse response = new VrexResponse();
+        response.setReturnCode(3);
+        assertEquals(REFLECTIVE.writeValueAsString(response), GENERATED.writeValueAsString(response));
+        // VrexResponse leaves nulls to the mapper
+        assertEquals(REFLECTIVE.copy().setSerializationInclusion(JsonInclude.Include.NON_NULL).writeValueAsString(response),
+                GENERATED.copy().setSerializationInclusion(JsonInclude.Include.NON_NULL).writeValueAsString(response));
+    }
+
+    @Test
+    public void readsLikeJackson() throws Exception {
+        String init = "{\"audio\":{\"envoyCodec\":\"PCM_16_16K\",\"created\":1,\"wuw\":{\"sowuw\":100,\"eowuw\":2000,"
+                + "\"detector\":{\"vendor\":\"v\",\"channel\":2,\"signalNoiseRatio\":1.5,\"selectedBeam\":null,\"beams\":[]}}},"
+                + "\"capabilities\":[\"CONTEXT\"],\"dictationMode\":true,\"experience\":\"X2\",\"roles\":[\"input\"],"
+                + "\"id\":{\"values\":[]},\"deviceId\":\"ignored\",\"text\":null}";
+        assertEquals(REFLECTIVE.writeValueAsString(REFLECTIVE.readValue(init, InitPayload.class)),
+                REFLECTIVE.writeValueAsString(GENERATED.readValue(init, InitPayload.class)));
+
+        String response = "{\"returnCode\":null,\"errorMessage\":\"e\",\"connectionClosed\":false,"
+                + "\"executeResponse\":{\"executeAgent\":\"a\",\"jsonResponse\":{\"b\":[1]}}}";
+        assertEquals(REFLECTIVE.writeValueAsString(REFLECTIVE.readValue(response, VrexResponse.class)),
+                REFLECTIVE.writeValueAsString(GENERATED.readValue(response, VrexResponse.class)));
+
+        String wbw = "{\"text\":\"hello\",\"isFinal\":true}";
+        assertEquals(REFLECTIVE.writeValueAsString(REFLECTIVE.readValue(wbw, WbwResponse.class)),
+                REFLECTIVE.writeValueAsString(GENERATED.readValue(wbw, WbwResponse.class)));
+    }
+
+    @Test
+    public void rejectsUnknownPropertiesLikeJackson() {
+        String init = "{\"audio\":{\"wuw\":{\"sowuwByMs\":1}}}";
+        UnrecognizedPropertyException reflective = assertThrows(UnrecognizedPropertyException.class,
+                () -> REFLECTIVE.readValue(init, InitPayload.class));
+        UnrecognizedPropertyException generated = assertThrows(UnrecognizedPropertyException.class,
+                () -> GENERATED.readValue(init, InitPayload.class));
+        assertEquals(reflective.getPathReference(), generated.getPathReference());
+        assertEquals(new HashSet<>(reflective.getKnownPropertyIds()), new HashSet<>(generated.getKnownPropertyIds()));
+    }
+}
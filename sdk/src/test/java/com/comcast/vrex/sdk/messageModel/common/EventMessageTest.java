@@ -0,0 +1,69 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.messageModel.common;
+
+import com.comcast.vrex.sdk.audio.AudioConfig;
+import com.comcast.vrex.sdk.message.InitPayloadBuilder;
+import com.comcast.vrex.sdk.messageModel.send.InitMessage;
+import com.comcast.vrex.sdk.messageModel.send.Roles;
+import com.comcast.vrex.sdk.util.ObjectMappers;
+import com.comcast.vrex.sdk.util.PooledBufferOutputStream;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EventMessageTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = ObjectMappers.defaultMapper();
+
+    @Test
+    public void writesATypedPayloadLikeItsTree() throws Exception {
+        InitMessage init = new InitMessage(InitPayloadBuilder.fromEmptyInitPayload()
+                .withRoles(Roles.INPUT)
+                .withAudio(AudioConfig.fromDefaultPttConfig())
+                .buildMessage());
+        EventMessage typed = EventMessage.typed("trx", MessageType.INIT, init);
+        EventMessage tree = new EventMessage("trx", MessageType.INIT, OBJECT_MAPPER.valueToTree(init));
+        tree.setCreated(typed.getCreated());
+
+        PooledBufferOutputStream out = new PooledBufferOutputStream(new MappedByteBufferPool(), 16);
+        ObjectMappers.eventMessageWriter().writeValue(out, typed);
+        ByteBuffer buffer = out.takeBuffer();
+
+        String expected = OBJECT_MAPPER.writeValueAsString(tree);
+        assertEquals(expected, StandardCharsets.UTF_8.decode(buffer).toString());
+        assertEquals(OBJECT_MAPPER.readTree(expected).get("msgPayload"), typed.getMsgPayload());
+    }
+
+    @Test
+    public void readsAReceivedMessage() throws Exception {
+        EventMessage message = OBJECT_MAPPER.readValue(
+                "{\"msgType\":\"listening\",\"trx\":\"trx\",\"created\":1,\"msgPayload\":{\"a\":1}}", EventMessage.class);
+        assertEquals("listening", message.getMsgType());
+        assertEquals(1, message.getMsgPayload().get("a").asInt());
+        assertEquals("{\"msgType\":\"listening\",\"trx\":\"trx\",\"created\":1,\"msgPayload\":{\"a\":1}}",
+                OBJECT_MAPPER.writeValueAsString(message));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.messageModel.send;
+
+import com.comcast.vrex.sdk.audio.AudioConfig;
+import com.comcast.vrex.sdk.message.InitPayloadBuilder;
+import com.comcast.vrex.sdk.messageModel.common.LanguageType;
+import com.comcast.vrex.sdk.util.ObjectMappers;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Sets;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImmutableInitPayloadTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = ObjectMappers.defaultMapper();
+
+    @Test
+    void internsEqualSets() {
+        InternedSet<String> capabilities = InternedSet.of(InitPayload.CAPABILITIES, Sets.newHashSet("WBW", "UHD"));
+
+        assertSame(capabilities, InternedSet.of(InitPayload.CAPABILITIES, Sets.newHashSet("UHD", "WBW")));
+        assertSame(capabilities, capabilities.with("CONTEXT").without("CONTEXT"));
+        assertSame(capabilities, capabilities.with("WBW"));
+        assertEquals(Sets.newHashSet("WBW", "UHD"), capabilities);
+        assertEquals(Sets.newHashSet("WBW", "UHD").hashCode(), capabilities.hashCode());
+        assertFalse(capabilities.contains("CONTEXT"));
+        assertSame(InitPayload.CAPABILITIES.empty(), capabilities.without("WBW").without("UHD"));
+    }
+
+    @Test
+    void derivesWithoutChangingTheSource() throws Exception {
+        ImmutableInitPayload device = ImmutableInitPayload.copyOf(InitPayloadBuilder.fromEmptyInitPayload()
+                .withRoles(Roles.INPUT)
+                .withCapabilities("WBW")
+                .withLanguage(LanguageType.ENG_USA)
+                .withAudio(AudioConfig.fromDefaultPttConfig())
+                .buildMessage());
+
+        ImmutableInitPayload session = device.withAddedCapability("CONTEXT").withIds("device", "account", null);
+
+        assertEquals(Sets.newHashSet("WBW"), device.getCapabilities());
+        assertEquals(Sets.newHashSet("WBW", "CONTEXT"), session.getCapabilities());
+        assertSame(device.getRoles(), session.getRoles());
+        assertSame(device, device.withRemovedCapability("CONTEXT"));
+        assertNull(device.getDeviceId());
+        assertEquals("device", session.getDeviceId());
+
+        InitPayload first = session.toInitPayload();
+        InitPayload second = session.toInitPayload();
+        assertNotSame(first.getAudio(), second.getAudio());
+        first.getAudio().setAudioProfile("changed");
+        assertEquals(OBJECT_MAPPER.valueToTree(second), OBJECT_MAPPER.valueToTree(session.toInitPayload()));
+        assertEquals(2, second.getId().getValues().size());
+        assertTrue(OBJECT_MAPPER.valueToTree(second).path("capabilities").toString().contains("CONTEXT"));
+    }
+
+    @Test
+    void readsSetsFromJson() throws Exception {
+        InitPayload initPayload = OBJECT_MAPPER.readValue(
+                "{\"roles\":[\"input\",\"unknown\"],\"vrexModes\":[\"NLP\"],\"capabilities\":[\"WBW\"]}", InitPayload.class);
+
+        assertEquals(Sets.newHashSet(Roles.INPUT), initPayload.getRoles());
+        assertSame(InternedSet.of(InitPayload.VREX_MODES, Sets.newHashSet("NLP")), initPayload.getVrexModes());
+        assertEquals("[\"WBW\"]", OBJECT_MAPPER.valueToTree(initPayload).path("capabilities").toString());
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.session;
+
+import com.comcast.vrex.sdk.audio.AudioOption;
+import com.comcast.vrex.sdk.audio.AudioSink;
+import com.comcast.vrex.sdk.config.SpeechConfigurationManager;
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AudioPumpTest {
+
+    @Test
+    public void stalledStreamsLeaveTheSchedulerFree() throws Exception {
+        SpeechConfigurationManager manager = TestSpeechClients.configManager();
+        manager.getConfiguration().getConnection().getClient().setSchedulerThreads(1);
+        List<AudioPump> pumps = new ArrayList<>();
+        try (SpeechClient client = SpeechClient.newClient(manager)) {
+            // More sessions than scheduler threads, each waiting on a stream nobody writes to
+            CountDownLatch stepped = new CountDownLatch(3);
+            for (int i = 0; i < 3; i++) {
+                SerialExecutor executor = client.newSessionExecutor();
+                pumps.add(startStalledPump(client, executor, "trx-" + i));
+                executor.execute(stepped::countDown);
+            }
+            assertTrue(stepped.await(5, TimeUnit.SECONDS));
+
+            CountDownLatch expired = new CountDownLatch(1);
+            new SessionStateMachine(client.getScheduler()).deadline(SessionState.CONNECTING, 50, expired::countDown);
+            assertTrue(expired.await(5, TimeUnit.SECONDS));
+        } finally {
+            pumps.forEach(AudioPump::close);
+        }
+    }
+
+    @Test
+    public void sinkWritesLeaveTheSendToTheSessionExecutor() throws Exception {
+        try (SpeechClient client = SpeechClient.newClient(TestSpeechClients.configManager())) {
+            SerialExecutor executor = client.newSessionExecutor();
+            SessionMetrics metrics = new SessionMetrics();
+            FakeRemote remote = new FakeRemote();
+            WebSocketSender sender = new WebSocketSender("trx", new SessionStateMachine(client.getScheduler()), executor,
+                    metrics, client.getBufferPool(), 8, client.getUplinkHealth(), null);
+            sender.setSession(remote.session());
+            AudioSink sink = new AudioSink(4096);
+            AudioPump pump = AudioPump.forOption("trx", AudioOption.from(sink, 640), null,
+                    client.getConfigManager().getConfiguration().getAudio(), false, null, client, executor, sender, metrics);
+            try {
+                pump.start();
+                pump.goLive();
+                awaitIdle(executor);
+
+                sink.write(new byte[640], 0, 640);
+                sink.complete();
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                while (remote.sent.isEmpty() && System.nanoTime() < deadline) Thread.sleep(5);
+                assertEquals(640, remote.sent.get(0).data.length);
+                // The capture thread only writes into the sink
+                assertNotSame(Thread.currentThread(), remote.sent.get(0).thread);
+            } finally {
+                pump.close();
+            }
+        }
+    }
+
+    @Test
+    public void preRollHoldsOnlyWholeFrames() throws Exception {
+        SpeechConfigurationManager manager = TestSpeechClients.configManager();
+        // Room for four and a half 16-bit frames
+        manager.getConfiguration().getAudio().setPreRollCapacity(9);
+        try (SpeechClient client = SpeechClient.newClient(manager)) {
+            SerialExecutor executor = client.newSessionExecutor();
+            SessionMetrics metrics = new SessionMetrics();
+            FakeRemote remote = new FakeRemote();
+            WebSocketSender sender = new WebSocketSender("trx", new SessionStateMachine(client.getScheduler()), executor,
+                    metrics, client.getBufferPool(), 8, client.getUplinkHealth(), null);
+            sender.setSession(remote.session());
+            AudioFormat format = new AudioFormat(16000, 16, 1, true, false);
+            AudioInputStream stream = new AudioInputStream(new ByteArrayInputStream(new byte[64]), format, 32);
+            AudioPump pump = AudioPump.forOption("trx", AudioOption.from(stream), null, manager.getConfiguration().getAudio(),
+                    false, null, client, executor, sender, metrics);
+            try {
+                pump.start();
+                // The pre-roll stops at the last whole frame and the rest waits in the stream
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                while (stream.available() > 56 && System.nanoTime() < deadline) Thread.sleep(5);
+                // Gives the reader time to hand the chunk over, and to read on if it were going to
+                Thread.sleep(50);
+                awaitIdle(executor);
+                assertEquals(56, stream.available());
+                pump.goLive();
+                awaitIdle(executor);
+                assertEquals(8, metrics.getPreRollBytes());
+                int audio = 0;
+                while (audio < 64 && System.nanoTime() < deadline) {
+                    Thread.sleep(5);
+                    audio = remote.sent.stream().filter(sent -> !sent.text).mapToInt(sent -> sent.data.length).sum();
+                }
+                assertEquals(64, audio);
+                remote.sent.stream().filter(sent -> !sent.text).forEach(sent -> assertEquals(0, sent.data.length % 2));
+            } finally {
+                pump.close();
+            }
+        }
+    }
+
+    private static void awaitIdle(SerialExecutor executor) throws InterruptedException {
+        CountDownLatch idle = new CountDownLatch(1);
+        executor.execute(idle::countDown);
+        assertTrue(idle.await(5, TimeUnit.SECONDS));
+    }
+
+    private static AudioPump startStalledPump(SpeechClient client, SerialExecutor executor, String trx) throws IOException {
+        SessionMetrics metrics = new SessionMetrics();
+        WebSocketSender sender = new WebSocketSender(trx, new SessionStateMachine(client.getScheduler()), executor,
+                metrics, client.getBufferPool(), 8, client.getUplinkHealth(), null);
+        PipedInputStream stream = new PipedInputStream(new PipedOutputStream());
+        AudioPump pump = AudioPump.forOption(trx, AudioOption.from(stream), null,
+                client.getConfigManager().getConfiguration().getAudio(), false, null, client, executor, sender, metrics);
+        pump.start();
+        return pump;
+    }
+}
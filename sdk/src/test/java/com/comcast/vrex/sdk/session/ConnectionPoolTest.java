@@ -0,0 +1,172 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.session;
+
+import com.comcast.vrex.sdk.config.SpeechConfiguration;
+import com.comcast.vrex.sdk.config.SpeechConfigurationManager;
+import com.comcast.vrex.sdk.config.TestSpeechAuthenticator;
+import com.comcast.vrex.sdk.exception.SpeechSessionException;
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectionPoolTest {
+
+    private final List<Connect> connects = new CopyOnWriteArrayList<>();
+    private SpeechConfigurationManager manager;
+    private SpeechConfiguration.Pool config;
+    private SpeechClient client;
+    private ConnectionPool pool;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        manager = TestSpeechClients.configManager();
+        // The client's own pool stays disabled; the one under test connects through the fake
+        client = SpeechClient.newClient(manager);
+        config = manager.getConfiguration().getConnection().getPool();
+        config.setSize(2);
+        pool = new ConnectionPool(client, (listener, uri) -> {
+            Connect connect = new Connect(listener);
+            connects.add(connect);
+            return connect.future;
+        });
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        pool.close();
+        client.close();
+    }
+
+    @Test
+    public void countsHitsAndMisses() throws IOException {
+        assertNull(pool.take());
+        assertEquals(1, pool.getMisses());
+
+        pool.refill();
+        connects.get(0).open();
+        assertSame(connects.get(0).listener, pool.take());
+        assertEquals(1, pool.getHits());
+        assertNull(pool.take());
+        assertEquals(2, pool.getMisses());
+    }
+
+    @Test
+    public void refillsUpToThePoolSize() throws IOException {
+        pool.refill();
+        pool.refill();
+        pool.refill();
+        assertEquals(2, connects.size());
+        connects.get(0).open();
+        connects.get(1).open();
+        pool.refill();
+        assertEquals(2, pool.getIdleCount());
+        assertEquals(2, connects.size());
+
+        pool.take();
+        pool.refill();
+        assertEquals(3, connects.size());
+    }
+
+    @Test
+    public void replacesConnectionsOpenedWithARotatedToken() throws IOException {
+        pool.refill();
+        FakeRemote remote = connects.get(0).open();
+        ((TestSpeechAuthenticator) manager.getSpeechAuthenticator()).rotateToken("renewed-token");
+
+        assertNull(pool.take());
+        assertFalse(remote.isOpen());
+        assertEquals(1, pool.getMisses());
+    }
+
+    @Test
+    public void evictsConnectionsIdleTooLong() throws Exception {
+        config.setIdleTimeout(20);
+        pool.refill();
+        FakeRemote remote = connects.get(0).open();
+        Thread.sleep(40);
+
+        pool.refill();
+        assertFalse(remote.isOpen());
+        assertEquals(0, pool.getIdleCount());
+        assertEquals(2, connects.size());
+    }
+
+    @Test
+    public void cancelsConnectsThatTimeOutAndClosesThemIfTheyOpenLater() throws Exception {
+        manager.getConfiguration().getConnection().getWebsocket().setConnectTimeout(20);
+        pool.refill();
+        Thread.sleep(40);
+
+        pool.refill();
+        assertTrue(connects.get(0).future.isCancelled());
+        assertEquals(2, connects.size());
+
+        FakeRemote late = connects.get(0).open();
+        assertFalse(late.isOpen());
+        connects.get(1).open();
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void closeCancelsPendingConnects() throws Exception {
+        pool.refill();
+        pool.close();
+        assertTrue(connects.get(0).future.isCancelled());
+        assertFalse(connects.get(0).open().isOpen());
+    }
+
+    @Test
+    public void closedClientOpensNoWarmConnections() throws Exception {
+        client.close();
+        WebSocketListener listener = new WebSocketListener("trx", manager);
+        assertThrows(SpeechSessionException.class, () -> client.connectWarm(listener, URI.create("wss://localhost")));
+    }
+
+    private static class Connect {
+        private final WebSocketListener listener;
+        private final CompletableFuture<Session> future = new CompletableFuture<>();
+
+        private Connect(WebSocketListener listener) {
+            this.listener = listener;
+        }
+
+        // The server accepts the connection, whether or not the pool still wants it
+        private FakeRemote open() throws IOException {
+            FakeRemote remote = new FakeRemote();
+            listener.onOpen(remote.session());
+            return remote;
+        }
+    }
+}
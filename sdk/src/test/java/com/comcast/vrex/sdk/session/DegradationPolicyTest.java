@@ -0,0 +1,140 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.session;
+
+import com.comcast.vrex.sdk.config.SpeechConfiguration;
+import com.comcast.vrex.sdk.messageModel.receive.VrexResponse;
+import com.comcast.vrex.sdk.messageModel.send.Codec;
+import com.comcast.vrex.sdk.result.DegradationEvent;
+import com.comcast.vrex.sdk.result.SpeechResultObserver;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DegradationPolicyTest {
+
+    private final List<DegradationEvent> events = new ArrayList<>();
+    private final SpeechConfiguration.Degradation config = new SpeechConfiguration.Degradation();
+
+    @Test
+    public void switchesCodecWhenTheUplinkHasBeenSlow() {
+        DegradationPolicy policy = new DegradationPolicy("trx", config, new Observer());
+        assertEquals(Codec.PCM_16_16K, policy.chooseCodec(Codec.PCM_16_16K, TimeUnit.MILLISECONDS.toNanos(100)));
+        assertEquals(Codec.U_LAW, policy.chooseCodec(Codec.U_LAW, TimeUnit.SECONDS.toNanos(2)));
+        assertTrue(events.isEmpty());
+
+        assertEquals(Codec.ADPCM, policy.chooseCodec(Codec.PCM_16_16K, TimeUnit.SECONDS.toNanos(2)));
+        assertEquals(DegradationEvent.Type.CODEC_SWITCHED, events.get(0).getType());
+        assertEquals(2000, events.get(0).getWriteLatencyMillis());
+    }
+
+    @Test
+    public void dropsSilenceOnlyWhileCongested() {
+        config.setMaxDroppedSilence(50);
+        DegradationPolicy policy = new DegradationPolicy("trx", config, new Observer());
+        SilenceDropper dropper = new SilenceDropper(policy);
+
+        policy.update(0, 0);
+        assertEquals(3200, dropper.process(audio(100, 0), null).remaining());
+
+        policy.update(6, 0);
+        // Silent frames go up to the limit; loud ones are always kept
+        ByteBuffer chunk = dropper.process(audio(30, 30), null);
+        assertEquals(960, chunk.remaining());
+        assertEquals(1000, chunk.getShort(chunk.position()));
+        assertEquals(960, dropper.process(audio(50, 0), null).remaining());
+        assertEquals(50 * 32, policy.getDroppedBytes());
+
+        assertEquals(DegradationEvent.Type.SILENCE_DROPPED, events.get(0).getType());
+        assertEquals(50, events.get(0).getDroppedMillis());
+        assertEquals(DegradationEvent.Type.DROP_LIMIT_REACHED, events.get(1).getType());
+    }
+
+    @Test
+    public void reportsDroppedSilenceOnceTheUplinkRecovers() {
+        DegradationPolicy policy = new DegradationPolicy("trx", config, new Observer());
+        SilenceDropper dropper = new SilenceDropper(policy);
+        policy.update(0, TimeUnit.SECONDS.toNanos(1));
+        dropper.process(audio(40, 0), null);
+        policy.update(3, TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(events.isEmpty());
+        policy.update(1, TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(40, events.get(0).getDroppedMillis());
+    }
+
+    // Silence followed by a constant level of 1000, as 16 kHz PCM
+    private static ByteBuffer audio(int silentMillis, int loudMillis) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect((silentMillis + loudMillis) * 32).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(silentMillis * 32);
+        while (buffer.hasRemaining()) buffer.putShort((short) 1000);
+        buffer.flip();
+        return buffer;
+    }
+
+    private class Observer implements SpeechResultObserver {
+        @Override
+        public void onDegradation(DegradationEvent event) {
+            events.add(event);
+        }
+
+        @Override
+        public void onListening() {
+        }
+
+        @Override
+        public void onPartialTranscriptionReceived(String text) {
+        }
+
+        @Override
+        public void onFinalTranscriptionReceived(String text) {
+        }
+
+        @Override
+        public void onCloseConnection(VrexResponse response) {
+        }
+
+        @Override
+        public void onWakeUpWordVerificationSuccess(Integer confidence) {
+        }
+
+        @Override
+        public void onWakeUpWordVerificationFailure(Integer confidence) {
+        }
+
+        @Override
+        public void onFinalResponseSuccess(VrexResponse response) {
+        }
+
+        @Override
+        public void onFinalResponseFailure(VrexResponse response) {
+        }
+
+        @Override
+        public void onError(Throwable t) {
+        }
+    }
+}
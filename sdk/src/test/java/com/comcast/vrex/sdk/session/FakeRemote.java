@@ -0,0 +1,108 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.session;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Records what a session sends instead of writing it to a socket. Writes complete right away unless told to hold
+// them, in which case the test completes them.
+class FakeRemote {
+
+    static class Sent {
+        final boolean text;
+        final byte[] data;
+        final Thread thread;
+        final WriteCallback callback;
+
+        private Sent(boolean text, byte[] data, WriteCallback callback) {
+            this.text = text;
+            this.data = data;
+            this.thread = Thread.currentThread();
+            this.callback = callback;
+        }
+
+        String text() {
+            return new String(data, StandardCharsets.UTF_8);
+        }
+    }
+
+    final List<Sent> sent = new CopyOnWriteArrayList<>();
+    private volatile boolean holding;
+    private volatile boolean open = true;
+
+    FakeRemote holdWrites() {
+        holding = true;
+        return this;
+    }
+
+    void close() {
+        open = false;
+    }
+
+    boolean isOpen() {
+        return open;
+    }
+
+    RemoteEndpoint remote() {
+        return (RemoteEndpoint) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{RemoteEndpoint.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("sendBytes") && args.length == 2) {
+                        ByteBuffer buffer = ((ByteBuffer) args[0]).duplicate();
+                        byte[] data = new byte[buffer.remaining()];
+                        buffer.get(data);
+                        record(new Sent(false, data, (WriteCallback) args[1]));
+                    } else if (method.getName().equals("sendString") && args.length == 2) {
+                        record(new Sent(true, ((String) args[0]).getBytes(StandardCharsets.UTF_8), (WriteCallback) args[1]));
+                    }
+                    return null;
+                });
+    }
+
+    Session session() {
+        RemoteEndpoint remote = remote();
+        return (Session) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Session.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "isOpen":
+                            return open;
+                        case "getRemote":
+                            return remote;
+                        case "close":
+                            open = false;
+                            return null;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private void record(Sent frame) {
+        sent.add(frame);
+        if (!holding) frame.callback.writeSuccess();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.session;
+
+import com.comcast.vrex.sdk.audio.processing.AudioContext;
+import com.comcast.vrex.sdk.config.SpeechConfiguration;
+import org.eclipse.jetty.util.BufferUtil;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrameCoalescerTest {
+
+    private final List<ByteBuffer> sent = new ArrayList<>();
+    private final List<ByteBuffer> released = new ArrayList<>();
+    private final AudioContext context = new AudioContext() {
+        @Override
+        public String getTrx() {
+            return "test";
+        }
+
+        @Override
+        public ByteBuffer acquire(int size) {
+            return BufferUtil.allocateDirect(size);
+        }
+
+        @Override
+        public void release(ByteBuffer buffer) {
+            released.add(buffer);
+        }
+
+        @Override
+        public void endOfStream(int reason) {
+        }
+    };
+
+    @Test
+    public void passesFullFramesThrough() {
+        FrameCoalescer coalescer = new FrameCoalescer(context, sent::add, 100);
+        ByteBuffer chunk = chunk(630);
+        assertTrue(coalescer.offer(chunk, 640));
+        assertSame(chunk, sent.get(0));
+        assertFalse(coalescer.isHolding());
+    }
+
+    @Test
+    public void coalescesSmallChunksIntoFrames() {
+        FrameCoalescer coalescer = new FrameCoalescer(context, sent::add, 1000);
+        for (int i = 0; i < 10; i++) coalescer.offer(chunk(160), 640);
+        assertEquals(2, sent.size());
+        assertEquals(640, sent.get(0).remaining());
+        assertEquals(10, released.size());
+        assertTrue(coalescer.isHolding());
+        assertTrue(coalescer.flush());
+        assertEquals(320, sent.get(2).remaining());
+    }
+
+    @Test
+    public void sendsHeldAudioAfterMaxHold() throws InterruptedException {
+        FrameCoalescer coalescer = new FrameCoalescer(context, sent::add, 20);
+        coalescer.offer(chunk(100), 640);
+        assertTrue(sent.isEmpty());
+        Thread.sleep(30);
+        assertTrue(coalescer.getHoldRemainingNanos() <= 0);
+        coalescer.offer(chunk(100), 640);
+        assertEquals(200, sent.get(0).remaining());
+    }
+
+    @Test
+    public void adaptiveFramesFollowTheQueue() {
+        SpeechConfiguration.Framing framing = new SpeechConfiguration.Framing();
+        framing.setAdaptive(true);
+        FrameSizer sizer = new FrameSizer(40, framing);
+        sizer.update(4, 0);
+        assertEquals(60, sizer.getFrameMillis());
+        for (int i = 0; i < 20; i++) sizer.update(8, 0);
+        assertEquals(framing.getMaxDuration(), sizer.getFrameMillis());
+        for (int i = 0; i < 100; i++) sizer.update(0, 1_000_000);
+        assertEquals(framing.getMinDuration(), sizer.getFrameMillis());
+
+        framing.setAdaptive(false);
+        FrameSizer fixed = new FrameSizer(40, framing);
+        fixed.update(8, 0);
+        assertEquals(40, fixed.getFrameMillis());
+    }
+
+    private static ByteBuffer chunk(int length) {
+        ByteBuffer buffer = BufferUtil.allocateDirect(length);
+        BufferUtil.append(buffer, new byte[length], 0, length);
+        return buffer;
+    }
+}
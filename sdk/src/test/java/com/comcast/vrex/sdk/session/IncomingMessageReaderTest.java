@@ -0,0 +1,72 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.session;
+
+import com.comcast.vrex.sdk.message.IncomingMessageType;
+import com.comcast.vrex.sdk.messageModel.receive.ExecResponse;
+import com.comcast.vrex.sdk.messageModel.receive.VrexResponse;
+import com.comcast.vrex.sdk.messageModel.receive.WbwResponse;
+import com.comcast.vrex.sdk.util.ObjectMappers;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IncomingMessageReaderTest {
+
+    @Test
+    public void bindsThePayloadToTheTypeOfTheMessage() throws Exception {
+        IncomingMessageReader.IncomingMessage message = IncomingMessageReader.read(
+                "{\"msgType\":\"asr\",\"trx\":\"trx\",\"created\":1,\"msgPayload\":{\"text\":\"hello\",\"isFinal\":false,\"extra\":[1]}}");
+        assertEquals(IncomingMessageType.TRANSCRIPTION, message.getType());
+        assertEquals("hello", message.getPayload(WbwResponse.class).getText());
+        assertNull(message.getPayload(VrexResponse.class));
+    }
+
+    @Test
+    public void holdsAPayloadThatComesAheadOfItsType() throws Exception {
+        IncomingMessageReader.IncomingMessage message = IncomingMessageReader.read(
+                "{\"msgPayload\":{\"returnCode\":3,\"errorMessage\":\"failed\"},\"msgType\":\"vrexResponse\"}");
+        assertEquals(IncomingMessageType.VREX_RESPONSE, message.getType());
+        assertEquals(3, message.getPayload(VrexResponse.class).getReturnCode());
+    }
+
+    @Test
+    public void skipsMessagesItDoesNotKnow() throws Exception {
+        IncomingMessageReader.IncomingMessage message = IncomingMessageReader.read(
+                "{\"msgType\":\"somethingNew\",\"msgPayload\":{\"a\":{\"b\":[1,2]}}}");
+        assertEquals("somethingNew", message.getMsgType());
+        assertNull(message.getType());
+        assertNull(message.getPayload(Object.class));
+    }
+
+    @Test
+    public void parsesTheExecuteResponseOnlyWhenItIsAskedFor() throws Exception {
+        IncomingMessageReader.IncomingMessage message = IncomingMessageReader.read("{\"msgType\":\"vrexResponse\","
+                + "\"msgPayload\":{\"returnCode\":0,\"executeResponse\":{\"executeAgent\":\"agent\","
+                + "\"jsonResponse\":{\"action\":\"tune\",\"channels\":[5,7]}}}}");
+        ExecResponse execResponse = message.getPayload(VrexResponse.class).getExecuteResponse();
+        assertTrue(execResponse.toString().contains("jsonResponse={\"action\":\"tune\",\"channels\":[5,7]}"));
+        assertEquals(7, execResponse.getJsonResponse().get("channels").get(1).asInt());
+        assertTrue(ObjectMappers.defaultMapper().writeValueAsString(execResponse)
+                .contains("\"jsonResponse\":{\"action\":\"tune\",\"channels\":[5,7]}"));
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.session;
+
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutboundPipelineTest {
+
+    private final CountingPool pool = new CountingPool();
+    private final FakeRemote remote = new FakeRemote();
+
+    @Test
+    public void writesTextAndAudioInEnqueueOrder() {
+        OutboundPipeline pipeline = newPipeline(8);
+        pipeline.offerText(text("init"), null);
+        pipeline.offerAudio(audio(1, 2, 3));
+        pipeline.offerText(text("end"), null);
+        pipeline.setRemote(remote.remote());
+
+        assertEquals(3, remote.sent.size());
+        assertEquals("init", remote.sent.get(0).text());
+        assertArrayEquals(new byte[]{1, 2, 3}, remote.sent.get(1).data);
+        assertEquals("end", remote.sent.get(2).text());
+        assertEquals(3, pool.released.get());
+    }
+
+    @Test
+    public void handsAtMostTheWindowToJetty() {
+        OutboundPipeline pipeline = newPipeline(2);
+        pipeline.setRemote(remote.holdWrites().remote());
+        for (int i = 0; i < 3; i++) {
+            pipeline.offerAudio(audio(i));
+        }
+        assertEquals(2, remote.sent.size());
+        assertEquals(3, pipeline.getQueueDepth());
+        assertFalse(pipeline.isWritable());
+
+        remote.sent.get(0).callback.writeSuccess();
+        assertEquals(3, remote.sent.size());
+        assertEquals(2, pipeline.getQueueDepth());
+    }
+
+    @Test
+    public void wakesWritableListenersOnceThereIsRoom() {
+        OutboundPipeline pipeline = newPipeline(1);
+        pipeline.setRemote(remote.holdWrites().remote());
+        pipeline.offerAudio(audio(1));
+        AtomicInteger wakeups = new AtomicInteger();
+        pipeline.whenWritable(wakeups::incrementAndGet);
+        assertEquals(0, wakeups.get());
+
+        remote.sent.get(0).callback.writeSuccess();
+        assertEquals(1, wakeups.get());
+        pipeline.whenWritable(wakeups::incrementAndGet);
+        assertEquals(2, wakeups.get());
+    }
+
+    @Test
+    public void dropsFramesOfferedAfterTheLast() {
+        OutboundPipeline pipeline = newPipeline(8);
+        pipeline.setRemote(remote.remote());
+        assertTrue(pipeline.offerLast(text("end"), null));
+        assertFalse(pipeline.offerAudio(audio(1)));
+        assertFalse(pipeline.offerText(text("late"), null));
+
+        assertEquals(1, remote.sent.size());
+        assertEquals(3, pool.released.get());
+    }
+
+    @Test
+    public void releasesEveryBufferWhenAWriteFails() {
+        OutboundPipeline pipeline = newPipeline(1);
+        pipeline.setRemote(remote.holdWrites().remote());
+        pipeline.offerAudio(audio(1));
+        pipeline.offerAudio(audio(2));
+        pipeline.offerText(text("queued"), null);
+
+        remote.sent.get(0).callback.writeFailed(new Exception("Connection reset"));
+        assertFalse(pipeline.isWritable());
+        assertEquals(1, remote.sent.size());
+        assertEquals(3, pool.released.get());
+    }
+
+    @Test
+    public void releasesQueuedBuffersOnClose() {
+        OutboundPipeline pipeline = newPipeline(8);
+        pipeline.offerAudio(audio(1));
+        pipeline.offerText(text("queued"), null);
+        pipeline.close();
+        assertFalse(pipeline.offerAudio(audio(2)));
+        assertEquals(3, pool.released.get());
+    }
+
+    @Test
+    public void closeWaitsForAnOfferInProgress() throws InterruptedException {
+        OutboundPipeline pipeline = newPipeline(8);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // The first write blocks inside offer(), standing in for a producer preempted before it enqueues
+        pipeline.setRemote((RemoteEndpoint) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("sendBytes")) {
+                        writing.countDown();
+                        awaitQuietly(release);
+                        ((WriteCallback) args[1]).writeSuccess();
+                    }
+                    return null;
+                }));
+        Thread producer = new Thread(() -> pipeline.offerAudio(audio(1)));
+        producer.start();
+        assertTrue(writing.await(1, TimeUnit.SECONDS));
+
+        Thread closer = new Thread(pipeline::close);
+        closer.start();
+        closer.join(100);
+        assertTrue(closer.isAlive());
+        release.countDown();
+        producer.join();
+        closer.join();
+        assertFalse(pipeline.offerAudio(audio(2)));
+        assertEquals(pool.acquired.get(), pool.released.get());
+    }
+
+    private OutboundPipeline newPipeline(int window) {
+        return new OutboundPipeline("test", window, pool, new SessionMetrics(), new UplinkHealth(), null);
+    }
+
+    private ByteBuffer text(String text) {
+        return pooled(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private ByteBuffer audio(int... samples) {
+        byte[] data = new byte[samples.length];
+        for (int i = 0; i < samples.length; i++) {
+            data[i] = (byte) samples[i];
+        }
+        return pooled(data);
+    }
+
+    private ByteBuffer pooled(byte[] data) {
+        ByteBuffer buffer = pool.acquire(data.length, false);
+        buffer.clear();
+        buffer.put(data).flip();
+        return buffer;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class CountingPool extends MappedByteBufferPool {
+        private final AtomicInteger acquired = new AtomicInteger();
+        private final AtomicInteger released = new AtomicInteger();
+
+        @Override
+        public ByteBuffer acquire(int size, boolean direct) {
+            acquired.incrementAndGet();
+            return super.acquire(size, direct);
+        }
+
+        @Override
+        public void release(ByteBuffer buffer) {
+            released.incrementAndGet();
+            super.release(buffer);
+        }
+    }
+}
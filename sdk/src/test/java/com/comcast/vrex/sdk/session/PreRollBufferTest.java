@@ -0,0 +1,61 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.comcast.vrex.sdk.session;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PreRollBufferTest {
+
+    @Test
+    public void writeStopsAtCapacity() {
+        PreRollBuffer buffer = new PreRollBuffer(4);
+        assertEquals(4, buffer.write(new byte[]{1, 2, 3, 4, 5, 6}, 0, 6));
+        assertEquals(0, buffer.remaining());
+        assertEquals(0, buffer.write(new byte[]{7}, 0, 1));
+    }
+
+    @Test
+    public void readWrapsAroundTheRing() {
+        PreRollBuffer buffer = new PreRollBuffer(4);
+        buffer.write(new byte[]{1, 2, 3}, 0, 3);
+        ByteBuffer first = ByteBuffer.allocate(2);
+        assertEquals(2, buffer.read(first, 2));
+        assertArrayEquals(new byte[]{1, 2}, first.array());
+
+        buffer.write(new byte[]{4, 5, 6}, 0, 3);
+        ByteBuffer rest = ByteBuffer.allocate(8);
+        assertEquals(4, buffer.read(rest, 8));
+        assertArrayEquals(new byte[]{3, 4, 5, 6}, Arrays.copyOf(rest.array(), 4));
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void zeroCapacityHoldsNothing() {
+        PreRollBuffer buffer = new PreRollBuffer(0);
+        assertEquals(0, buffer.write(new byte[]{1}, 0, 1));
+        assertEquals(0, buffer.read(ByteBuffer.allocate(1), 1));
+    }
+}
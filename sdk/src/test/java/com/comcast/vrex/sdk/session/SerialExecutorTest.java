@@ -0,0 +1,153 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.session;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SerialExecutorTest {
+
+    // Runs the turns handed to the shared pool only when the test says so
+    private final Queue<Runnable> turns = new ArrayDeque<>();
+    private final SerialExecutor manual = new SerialExecutor(turns::add);
+
+    @Test
+    public void runsTasksOneAtATimeInOrder() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            SerialExecutor executor = new SerialExecutor(pool);
+            List<Integer> order = new ArrayList<>();
+            AtomicInteger running = new AtomicInteger();
+            AtomicBoolean overlapped = new AtomicBoolean();
+            CountDownLatch done = new CountDownLatch(1000);
+            for (int i = 0; i < 1000; i++) {
+                int task = i;
+                executor.execute(() -> {
+                    if (running.incrementAndGet() > 1) overlapped.set(true);
+                    order.add(task);
+                    running.decrementAndGet();
+                    done.countDown();
+                });
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertFalse(overlapped.get());
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(i, order.get(i));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void yieldsThePoolAfterATurn() {
+        AtomicInteger ran = new AtomicInteger();
+        for (int i = 0; i < SerialExecutor.MAX_TASKS_PER_TURN + 4; i++) {
+            manual.execute(ran::incrementAndGet);
+        }
+        assertEquals(1, turns.size());
+
+        turns.poll().run();
+        assertEquals(SerialExecutor.MAX_TASKS_PER_TURN, ran.get());
+        // The rest waits for another turn, behind whatever else the pool has queued
+        assertEquals(1, turns.size());
+        turns.poll().run();
+        assertEquals(SerialExecutor.MAX_TASKS_PER_TURN + 4, ran.get());
+        assertTrue(turns.isEmpty());
+    }
+
+    @Test
+    public void runOrExecuteRunsInlineOnlyWhenIdle() {
+        List<String> order = new ArrayList<>();
+        Thread caller = Thread.currentThread();
+        manual.runOrExecute(() -> {
+            assertSame(caller, Thread.currentThread());
+            order.add("outer");
+            // Reentrant calls queue behind the running task rather than nesting inside it
+            manual.runOrExecute(() -> order.add("inner"));
+            order.add("outer done");
+        });
+        assertEquals(1, turns.size());
+
+        manual.execute(() -> order.add("queued"));
+        manual.runOrExecute(() -> order.add("behind queued"));
+        turns.poll().run();
+        assertEquals(5, order.size());
+        assertEquals("outer", order.get(0));
+        assertEquals("outer done", order.get(1));
+        assertEquals("inner", order.get(2));
+        assertEquals("queued", order.get(3));
+        assertEquals("behind queued", order.get(4));
+    }
+
+    @Test
+    public void shutdownNowInterruptsTheRunningTaskAndDropsTheRest() throws InterruptedException {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            SerialExecutor executor = new SerialExecutor(pool);
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch interrupted = new CountDownLatch(1);
+            AtomicBoolean droppedRan = new AtomicBoolean();
+            executor.execute(() -> {
+                started.countDown();
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            });
+            executor.execute(() -> droppedRan.set(true));
+            assertTrue(started.await(1, TimeUnit.SECONDS));
+
+            executor.shutdownNow();
+            assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+            executor.execute(() -> droppedRan.set(true));
+            assertTrue(executor.isShutdown());
+
+            // The pool thread comes back without the interrupt
+            AtomicBoolean poolInterrupted = new AtomicBoolean(true);
+            CountDownLatch checked = new CountDownLatch(1);
+            pool.execute(() -> {
+                poolInterrupted.set(Thread.currentThread().isInterrupted());
+                checked.countDown();
+            });
+            assertTrue(checked.await(1, TimeUnit.SECONDS));
+            assertFalse(poolInterrupted.get());
+            assertFalse(droppedRan.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.session;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionStateMachineTest {
+
+    private final ScheduledThreadPoolExecutor scheduler = newScheduler();
+    private final SessionStateMachine state = new SessionStateMachine(scheduler);
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void walksTheForwardPath() {
+        assertEquals(SessionState.CONNECTING, state.get());
+        assertTrue(state.transition(SessionState.CONNECTING, SessionState.OPEN));
+        assertTrue(state.transition(SessionState.OPEN, SessionState.INIT_SENT));
+        assertTrue(state.transition(SessionState.INIT_SENT, SessionState.LISTENING));
+        assertTrue(state.transition(SessionState.LISTENING, SessionState.STREAMING));
+        assertTrue(state.closing());
+        assertFalse(state.closing());
+        assertEquals(SessionState.CLOSING, state.close());
+        assertEquals(SessionState.CLOSED, state.get());
+    }
+
+    @Test
+    public void onlyTheNextStateIsLegal() {
+        SessionState[] path = {SessionState.CONNECTING, SessionState.OPEN, SessionState.INIT_SENT,
+                SessionState.LISTENING, SessionState.STREAMING};
+        for (SessionState from : SessionState.values()) {
+            for (SessionState to : SessionState.values()) {
+                boolean next = false;
+                for (int i = 0; i + 1 < path.length; i++) {
+                    next |= path[i] == from && path[i + 1] == to;
+                }
+                assertEquals(next, SessionStateMachine.isLegal(from, to), from + " -> " + to);
+            }
+        }
+        assertThrows(IllegalStateException.class, () -> state.transition(SessionState.CONNECTING, SessionState.LISTENING));
+        assertThrows(IllegalStateException.class, () -> state.transition(SessionState.STREAMING, SessionState.OPEN));
+        assertEquals(SessionState.CONNECTING, state.get());
+    }
+
+    @Test
+    public void aLegalTransitionFromAnotherStateIsRefused() {
+        state.closing();
+        assertFalse(state.transition(SessionState.CONNECTING, SessionState.OPEN));
+        assertEquals(SessionState.CLOSING, state.get());
+    }
+
+    @Test
+    public void deadlinesFireWhileTheStateIsKept() throws InterruptedException {
+        assertFires(SessionState.CONNECTING);
+        state.transition(SessionState.CONNECTING, SessionState.OPEN);
+        state.transition(SessionState.OPEN, SessionState.INIT_SENT);
+        assertFires(SessionState.INIT_SENT);
+        state.transition(SessionState.INIT_SENT, SessionState.LISTENING);
+        assertFires(SessionState.LISTENING);
+    }
+
+    @Test
+    public void leavingAStateCancelsItsDeadline() throws InterruptedException {
+        AtomicBoolean expired = new AtomicBoolean();
+        state.deadline(SessionState.CONNECTING, 50, () -> expired.set(true));
+        state.transition(SessionState.CONNECTING, SessionState.OPEN);
+        state.transition(SessionState.OPEN, SessionState.INIT_SENT);
+        state.deadline(SessionState.INIT_SENT, 50, () -> expired.set(true));
+        state.transition(SessionState.INIT_SENT, SessionState.LISTENING);
+        state.deadline(SessionState.LISTENING, 50, () -> expired.set(true));
+        state.transition(SessionState.LISTENING, SessionState.STREAMING);
+        // Cancelled deadlines are removed from the scheduler rather than left to expire
+        assertEquals(0, scheduler.getQueue().size());
+        Thread.sleep(100);
+        assertFalse(expired.get());
+    }
+
+    @Test
+    public void closingCancelsThePendingDeadline() {
+        state.deadline(SessionState.CONNECTING, 5000, () -> {
+        });
+        assertEquals(1, scheduler.getQueue().size());
+        state.closing();
+        assertEquals(0, scheduler.getQueue().size());
+
+        SessionStateMachine closed = new SessionStateMachine(scheduler);
+        closed.deadline(SessionState.CONNECTING, 5000, () -> {
+        });
+        closed.close();
+        assertEquals(0, scheduler.getQueue().size());
+    }
+
+    @Test
+    public void noDeadlineForAStateAlreadyLeft() {
+        state.transition(SessionState.CONNECTING, SessionState.OPEN);
+        state.deadline(SessionState.CONNECTING, 5000, () -> {
+        });
+        assertEquals(0, scheduler.getQueue().size());
+    }
+
+    private void assertFires(SessionState expected) throws InterruptedException {
+        CountDownLatch expired = new CountDownLatch(1);
+        state.deadline(expected, 20, expired::countDown);
+        assertTrue(expired.await(1, TimeUnit.SECONDS), expected + " deadline did not fire");
+    }
+
+    private static ScheduledThreadPoolExecutor newScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.session;
+
+import com.comcast.vrex.sdk.config.SpeechConfigurationManager;
+import com.comcast.vrex.sdk.exception.SpeechSessionException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpeechClientTest {
+
+    @Test
+    public void refusesSessionsOnceClosed() throws Exception {
+        SpeechClient client = SpeechClient.newClient(TestSpeechClients.configManager());
+        client.close();
+        assertTrue(client.isClosed());
+        assertThrows(SpeechSessionException.class, () -> client.newSession("trx"));
+        assertThrows(SpeechSessionException.class, client::newSession);
+    }
+
+    @Test
+    public void closeWaitsForActiveSessions() throws Exception {
+        SpeechClient client = SpeechClient.newClient(TestSpeechClients.configManager());
+        WebSocketListener listener = new WebSocketListener("trx", client.getConfigManager());
+        client.attach(listener);
+        Thread closer = new Thread(() -> closeQuietly(client));
+        closer.start();
+        closer.join(200);
+        assertTrue(closer.isAlive());
+
+        client.release(listener);
+        closer.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse(closer.isAlive());
+        assertTrue(client.isClosed());
+    }
+
+    @Test
+    public void closeGivesUpOnSessionsAfterTheDrainTimeout() throws Exception {
+        SpeechConfigurationManager manager = TestSpeechClients.configManager();
+        manager.getConfiguration().getConnection().getClient().setDrainTimeout(100);
+        SpeechClient client = SpeechClient.newClient(manager);
+        client.attach(new WebSocketListener("trx", manager));
+
+        long start = System.nanoTime();
+        client.close();
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(millis >= 100 && millis < 3000, "Close took " + millis + " ms");
+        assertTrue(client.getScheduler().isShutdown());
+    }
+
+    @Test
+    public void closedDefaultClientIsReplaced() throws Exception {
+        SpeechConfigurationManager manager = TestSpeechClients.configManager();
+        SpeechClient client = SpeechClient.defaultClient(manager);
+        assertSame(client, SpeechClient.defaultClient(manager));
+
+        client.close();
+        SpeechClient replacement = SpeechClient.defaultClient(manager);
+        try {
+            assertNotSame(client, replacement);
+            assertFalse(replacement.isClosed());
+        } finally {
+            replacement.close();
+        }
+    }
+
+    private static void closeQuietly(SpeechClient client) {
+        try {
+            client.close();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
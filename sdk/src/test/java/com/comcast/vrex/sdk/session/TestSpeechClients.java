@@ -0,0 +1,37 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.session;
+
+import com.comcast.vrex.sdk.config.SpeechConfigurationManager;
+import com.comcast.vrex.sdk.config.TestSpeechAuthenticator;
+
+// Configuration for clients in tests. Nothing connects to its url unless a test opens a session.
+final class TestSpeechClients {
+
+    private TestSpeechClients() {
+    }
+
+    static SpeechConfigurationManager configManager() throws Exception {
+        SpeechConfigurationManager manager = new SpeechConfigurationManager(TestSpeechClients.class,
+                new TestSpeechAuthenticator(), "test-speech-config.yml", "test-speech-secrets.properties");
+        manager.init();
+        return manager;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2021 Comcast Cable Communications Management, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+
+package com.comcast.vrex.sdk.session;
+
+import com.comcast.vrex.sdk.audio.AudioConfig;
+import com.comcast.vrex.sdk.config.SpeechConfigurationManager;
+import com.comcast.vrex.sdk.message.InitPayloadBuilder;
+import com.comcast.vrex.sdk.messageModel.receive.VrexResponse;
+import com.comcast.vrex.sdk.messageModel.send.Roles;
+import com.comcast.vrex.sdk.result.SpeechResultObserver;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebSocketListenerTest {
+
+    private final FakeRemote remote = new FakeRemote();
+    private final AtomicInteger errors = new AtomicInteger();
+    private final AtomicInteger closes = new AtomicInteger();
+    private final CountDownLatch failed = new CountDownLatch(1);
+    private SpeechClient client;
+    private SessionMetrics metrics;
+    private WebSocketListener listener;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        SpeechConfigurationManager manager = TestSpeechClients.configManager();
+        manager.getConfiguration().getConnection().getWebsocket().setListeningTimeout(50);
+        client = SpeechClient.newClient(manager);
+        manager.getConfiguration().getConnection().getPool().setSize(1);
+        // The server accepts right away, so the session starts on an open connection
+        ConnectionPool pool = new ConnectionPool(client, (warm, uri) -> {
+            warm.onOpen(remote.session());
+            return new CompletableFuture<>();
+        });
+        pool.refill();
+        listener = pool.take();
+
+        SerialExecutor executor = client.newSessionExecutor();
+        SessionStateMachine state = new SessionStateMachine(client.getScheduler());
+        metrics = new SessionMetrics();
+        WebSocketSender sender = new WebSocketSender(listener.getTrx(), state, executor, metrics, client.getBufferPool(), 8,
+                client.getUplinkHealth(), null);
+        sender.prepare(InitPayloadBuilder.fromEmptyInitPayload()
+                .withRoles(Roles.INPUT)
+                .withAudio(AudioConfig.fromDefaultPttConfig())
+                .buildMessage(), null, null, null, false);
+        metrics.markStarted();
+        listener.startSession(client, sender, state, metrics, executor, new CountingObserver());
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        client.close();
+    }
+
+    @Test
+    public void aSessionFailedByItsDeadlineIsNotClosedTwice() throws Exception {
+        // Nothing answers the init message, so the listening deadline fails the session and closes the socket
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (remote.isOpen() && System.nanoTime() < deadline) Thread.sleep(5);
+        assertFalse(remote.isOpen());
+        long sessionMillis = metrics.getSessionMillis();
+        Thread.sleep(50);
+
+        listener.onClose(remote.session(), StatusCode.SHUTDOWN, "Timed out");
+        assertEquals(1, errors.get());
+        assertEquals(0, closes.get());
+        assertEquals(sessionMillis, metrics.getSessionMillis());
+        assertEquals(0, client.getActiveSessionCount());
+    }
+
+    @Test
+    public void aClosedSessionIsReportedOnce() {
+        listener.onClose(remote.session(), StatusCode.NORMAL, "Done");
+        listener.onClose(remote.session(), StatusCode.NORMAL, "Done");
+        assertEquals(1, closes.get());
+        assertEquals(0, errors.get());
+        assertEquals(0, client.getActiveSessionCount());
+    }
+
+    private class CountingObserver implements SpeechResultObserver {
+        @Override
+        public void onListening() {
+        }
+
+        @Override
+        public void onPartialTranscriptionReceived(String text) {
+        }
+
+        @Override
+        public void onFinalTranscriptionReceived(String text) {
+        }
+
+        @Override
+        public void onCloseConnection(VrexResponse response) {
+            closes.incrementAndGet();
+        }
+
+        @Override
+        public void onWakeUpWordVerificationSuccess(Integer confidence) {
+        }
+
+        @Override
+        public void onWakeUpWordVerificationFailure(Integer confidence) {
+        }
+
+        @Override
+        public void onFinalResponseSuccess(VrexResponse response) {
+        }
+
+        @Override
+        public void onFinalResponseFailure(VrexResponse response) {
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            errors.incrementAndGet();
+            failed.countDown();
+        }
+    }
+}